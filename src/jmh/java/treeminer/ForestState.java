@@ -0,0 +1,74 @@
+package treeminer;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import treeminer.util.SyntheticForestGenerator;
+import treeminer.util.TreeDatabaseSupplier;
+
+/**
+ * A generated forest the benchmarks are run on. The forest only depends on the
+ * parameters, so that the results of different runs are comparable. Instead of
+ * generating the forest, it can be read from a file with one tree per line,
+ * e.g. one written by {@link SyntheticForestGenerator}.
+ * 
+ * @author Helena Graf
+ *
+ */
+@State(Scope.Benchmark)
+public class ForestState {
+
+	private static final long SEED = 42;
+
+	/** the number of distinct labels in the forest */
+	@Param({ "10", "100" })
+	public int numLabels;
+
+	/** the number of nodes of each tree */
+	@Param({ "10", "30" })
+	public int numNodesPerTree;
+
+	/** the number of trees in the forest */
+	@Param({ "1000" })
+	public int numTrees;
+
+	/** the file to read the forest from, or empty to generate it */
+	@Param({ "" })
+	public String forestFile;
+
+	/** the minimal support as a fraction of the number of trees */
+	@Param({ "0.1", "0.02" })
+	public double relativeMinSupport;
+
+	/** the trees of the forest */
+	public List<String> trees;
+
+	/** the database of the trees of the forest */
+	public TreeDatabase database;
+
+	/** the minimal support as a number of trees */
+	public int minSupport;
+
+	/**
+	 * Generates the forest, or reads it from the forest file.
+	 * 
+	 * @throws IOException
+	 *             if the forest file cannot be read
+	 */
+	@Setup
+	public void generateForest() throws IOException {
+		if (forestFile.isEmpty()) {
+			trees = TreeDatabaseSupplier.generateTreesForPerformanceTest(numLabels, numNodesPerTree, numTrees, SEED);
+		} else {
+			trees = SyntheticForestGenerator.readTrees(Paths.get(forestFile));
+		}
+		database = new TreeDatabase(trees);
+		minSupport = Math.max(1, (int) Math.ceil(relativeMinSupport * trees.size()));
+	}
+}
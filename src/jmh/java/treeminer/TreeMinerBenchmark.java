@@ -0,0 +1,63 @@
+package treeminer;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks complete runs of the tree miner on a generated forest.
+ * 
+ * @author Helena Graf
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TreeMinerBenchmark {
+
+	/** whether multiple occurrences of a pattern within a tree are counted */
+	@Param({ "true", "false" })
+	public boolean countMultipleOccurrences;
+
+	/**
+	 * Finds the frequent subtrees, removing the embedded ones at the end.
+	 * 
+	 * @param forest
+	 *            the forest to mine
+	 * @return the frequent subtrees
+	 */
+	@Benchmark
+	public List<String> findFrequentSubtrees(ForestState forest) {
+		TreeMiner miner = new TreeMiner();
+		miner.setCountMultipleOccurrences(countMultipleOccurrences);
+		return miner.findFrequentSubtrees(forest.database, forest.minSupport);
+	}
+
+	/**
+	 * Finds the frequent induced subtrees without expanding embedded ones.
+	 * 
+	 * @param forest
+	 *            the forest to mine
+	 * @return the frequent induced subtrees
+	 */
+	@Benchmark
+	public List<String> findFrequentInducedSubtrees(ForestState forest) {
+		TreeMiner miner = new TreeMiner();
+		miner.setCountMultipleOccurrences(countMultipleOccurrences);
+		miner.setOnlySearchForInducedSubtrees(true);
+		return miner.findFrequentSubtrees(forest.database, forest.minSupport);
+	}
+}
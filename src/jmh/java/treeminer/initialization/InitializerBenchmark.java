@@ -0,0 +1,84 @@
+package treeminer.initialization;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import treeminer.EquivalenceClass;
+import treeminer.ForestState;
+
+/**
+ * Benchmarks finding the frequent F1 subtrees and the F2 equivalence classes
+ * with both initializers.
+ * 
+ * @author Helena Graf
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class InitializerBenchmark {
+
+	private EquivalenceClass f1;
+
+	/**
+	 * Finds the frequent F1 subtrees the F2 equivalence classes are derived from.
+	 * 
+	 * @param forest
+	 *            the forest the benchmarks are run on
+	 */
+	@Setup
+	public void findF1(ForestState forest) {
+		f1 = TreeMinerGeneralInitializer.findFrequentF1Subtrees(forest.database, forest.minSupport);
+	}
+
+	/**
+	 * Finds the frequent F1 subtrees.
+	 * 
+	 * @param forest
+	 *            the forest the benchmarks are run on
+	 * @return the F1 equivalence class
+	 */
+	@Benchmark
+	public EquivalenceClass findFrequentF1Subtrees(ForestState forest) {
+		return TreeMinerGeneralInitializer.findFrequentF1Subtrees(forest.database, forest.minSupport);
+	}
+
+	/**
+	 * Finds the F2 equivalence classes with scope lists that count multiple
+	 * occurrences.
+	 * 
+	 * @param forest
+	 *            the forest the benchmarks are run on
+	 * @return the F2 equivalence classes
+	 */
+	@Benchmark
+	public List<EquivalenceClass> initializeNonDistinct(ForestState forest) {
+		return TreeMinerNonDistinctInitializer.initialize(f1, forest.database, forest.minSupport);
+	}
+
+	/**
+	 * Finds the F2 equivalence classes with scope vector lists.
+	 * 
+	 * @param forest
+	 *            the forest the benchmarks are run on
+	 * @return the F2 equivalence classes
+	 */
+	@Benchmark
+	public List<EquivalenceClass> initializeDistinct(ForestState forest) {
+		return TreeMinerDistinctInitializer.initialize(f1, forest.database, forest.minSupport);
+	}
+}
@@ -0,0 +1,109 @@
+package treeminer.scopelists.representation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import treeminer.EquivalenceClass;
+import treeminer.ForestState;
+import treeminer.TreeDatabase;
+import treeminer.initialization.TreeMinerGeneralInitializer;
+import treeminer.scopelists.elements.SimpleScopeListElement;
+import treeminer.util.ScopeListRepresentationUtils;
+
+/**
+ * Benchmarks the joins of the two largest scope lists of an F2 equivalence
+ * class, which are {@link ScopeListRepresentation}s if multiple occurrences are
+ * counted and {@link ScopeVectorListRepresentation}s otherwise.
+ * 
+ * @author Helena Graf
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ScopeListJoinBenchmark {
+
+	/** whether multiple occurrences of a pattern within a tree are counted */
+	@Param({ "true", "false" })
+	public boolean countMultipleOccurrences;
+
+	private TreeDatabase trees;
+	private AScopeListRepresentation<? extends SimpleScopeListElement> xScopeList;
+	private AScopeListRepresentation<? extends SimpleScopeListElement> yScopeList;
+
+	/**
+	 * Finds the F2 equivalence classes and picks the two largest scope lists of
+	 * the class with the most occurrences, or its only scope list twice.
+	 * 
+	 * @param forest
+	 *            the forest the benchmarks are run on
+	 */
+	@Setup
+	public void findScopeLists(ForestState forest) {
+		trees = forest.database;
+		EquivalenceClass f1 = TreeMinerGeneralInitializer.findFrequentF1Subtrees(trees, forest.minSupport);
+		List<EquivalenceClass> f2Classes = TreeMinerGeneralInitializer.findFrequentF2Subtrees(f1, trees,
+				countMultipleOccurrences, forest.minSupport);
+
+		EquivalenceClass largestClass = null;
+		int largestNumberOfOccurrences = -1;
+		for (EquivalenceClass equivalenceClass : f2Classes) {
+			int numberOfOccurrences = 0;
+			for (AScopeListRepresentation<? extends SimpleScopeListElement> scopeList : equivalenceClass
+					.getScopeLists().values()) {
+				numberOfOccurrences += scopeList.size();
+			}
+			if (numberOfOccurrences > largestNumberOfOccurrences) {
+				largestClass = equivalenceClass;
+				largestNumberOfOccurrences = numberOfOccurrences;
+			}
+		}
+		if (largestClass == null) {
+			throw new IllegalStateException("The forest has no frequent F2 subtrees to join");
+		}
+
+		List<AScopeListRepresentation<? extends SimpleScopeListElement>> scopeLists = new ArrayList<>(
+				largestClass.getScopeLists().values());
+		scopeLists.sort((first, second) -> Integer.compare(second.size(), first.size()));
+		xScopeList = scopeLists.get(0);
+		yScopeList = scopeLists.get(Math.min(1, scopeLists.size() - 1));
+	}
+
+	/**
+	 * Joins the scope lists for the y node being attached below the x node.
+	 * 
+	 * @return the joined scope list
+	 */
+	@Benchmark
+	public AScopeListRepresentation<? extends SimpleScopeListElement> inScopeJoin() {
+		return ScopeListRepresentationUtils.doInScopeJoin(xScopeList, yScopeList, trees, countMultipleOccurrences);
+	}
+
+	/**
+	 * Joins the scope lists for the y node being attached to the root after the x
+	 * node.
+	 * 
+	 * @return the joined scope list
+	 */
+	@Benchmark
+	public AScopeListRepresentation<? extends SimpleScopeListElement> outScopeJoin() {
+		return ScopeListRepresentationUtils.doOutScopeJoin(xScopeList, yScopeList, 0, 0, 1, trees,
+				countMultipleOccurrences);
+	}
+}
@@ -0,0 +1,120 @@
+package treeminer.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import treeminer.ForestState;
+import treeminer.TreeDatabase;
+import treeminer.TreeMiner;
+
+/**
+ * Benchmarks the operations on the String representation of trees, checking
+ * the frequent subtrees of a forest against its trees and extending them.
+ * 
+ * @author Helena Graf
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TreeRepresentationUtilsBenchmark {
+
+	/** the maximal number of frequent subtrees that are checked */
+	private static final int MAX_NUMBER_OF_SUBTREES = 100;
+
+	private List<String> trees;
+	private List<String> subtrees;
+	private List<int[]> encodedTrees;
+	private List<int[]> encodedSubtrees;
+	private Pair<String, Integer> node;
+
+	/**
+	 * Finds the frequent subtrees of the forest.
+	 * 
+	 * @param forest
+	 *            the forest the benchmarks are run on
+	 */
+	@Setup
+	public void findSubtrees(ForestState forest) {
+		trees = forest.trees.subList(0, Math.min(MAX_NUMBER_OF_SUBTREES, forest.trees.size()));
+		List<String> frequentSubtrees = new TreeMiner().findFrequentSubtrees(forest.database, forest.minSupport);
+		subtrees = frequentSubtrees.subList(0, Math.min(MAX_NUMBER_OF_SUBTREES, frequentSubtrees.size()));
+
+		TreeDatabase database = forest.database;
+		encodedTrees = new ArrayList<>();
+		for (int tree = 0; tree < trees.size(); tree++) {
+			encodedTrees.add(database.getEncoding(tree));
+		}
+		encodedSubtrees = new ArrayList<>();
+		subtrees.forEach(subtree -> encodedSubtrees.add(database.encode(subtree)));
+		node = new ImmutablePair<>(database.getLabel(0), 0);
+	}
+
+	/**
+	 * Checks for each tree which of the subtrees it contains.
+	 * 
+	 * @return the number of contained subtrees
+	 */
+	@Benchmark
+	public int containsSubtree() {
+		int numberOfContainedSubtrees = 0;
+		for (String tree : trees) {
+			for (String subtree : subtrees) {
+				if (TreeRepresentationUtils.containsSubtree(tree, subtree)) {
+					numberOfContainedSubtrees++;
+				}
+			}
+		}
+		return numberOfContainedSubtrees;
+	}
+
+	/**
+	 * Checks for each tree which of the subtrees it contains, using their
+	 * encodings.
+	 * 
+	 * @return the number of contained subtrees
+	 */
+	@Benchmark
+	public int containsSubtreeEncoded() {
+		int numberOfContainedSubtrees = 0;
+		for (int[] tree : encodedTrees) {
+			for (int[] subtree : encodedSubtrees) {
+				if (TreeRepresentationUtils.containsSubtree(tree, subtree)) {
+					numberOfContainedSubtrees++;
+				}
+			}
+		}
+		return numberOfContainedSubtrees;
+	}
+
+	/**
+	 * Attaches a node to the root of each of the subtrees.
+	 * 
+	 * @return the extended subtrees
+	 */
+	@Benchmark
+	public List<String> addNodeToTree() {
+		List<String> extendedSubtrees = new ArrayList<>(subtrees.size());
+		for (String subtree : subtrees) {
+			extendedSubtrees.add(TreeRepresentationUtils.addNodeToTree(subtree, node));
+		}
+		return extendedSubtrees;
+	}
+}
@@ -0,0 +1,43 @@
+package treeminer;
+
+/**
+ * A token that can be used to cancel a running search from another thread. The
+ * search stops soon after the token has been cancelled, and returns the
+ * subtrees found so far as an incomplete {@link MiningResult}. The search
+ * checks the token before each tree while it initializes the classes F1 and F2,
+ * before it expands an element of an equivalence class, and before it extracts
+ * each found class whose subtrees are returned as a list.
+ * 
+ * <p>
+ * The characterizations of the trees can be cancelled with a token as well,
+ * see
+ * {@link TreeMiner#getSparseCharacterizationsOfTrainingExamples(MiningBudget, CancellationToken)}.
+ * They check it before each found equivalence class and throw a
+ * {@link java.util.concurrent.CancellationException} once it has been
+ * cancelled.
+ * </p>
+ * 
+ * @author Helena Graf
+ *
+ */
+public class CancellationToken {
+
+	private volatile boolean cancelled;
+
+	/**
+	 * Cancels the searches this token has been passed to. A cancelled token
+	 * cannot be reset.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	/**
+	 * Get whether this token has been cancelled.
+	 * 
+	 * @return whether the token has been cancelled
+	 */
+	public boolean isCancelled() {
+		return cancelled;
+	}
+}
@@ -1,28 +1,75 @@
 package treeminer;
 
-import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.function.IntPredicate;
 
+import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
 
 import treeminer.scopelists.elements.SimpleScopeListElement;
 import treeminer.scopelists.representation.AScopeListRepresentation;
-import treeminer.util.TreeRepresentationUtils;
+import treeminer.scopelists.representation.ScopeListSpillFile;
+import treeminer.scopelists.representation.ScopeListSpillFile.SpilledScopeList;
 
 /**
  * Represents an equivalence class of found subtrees that all begin with the
  * same prefix and only differ in the last node appended to this prefix.
  * 
+ * <p>
+ * The elements of the class (the label of the appended node together with the
+ * position of the node of the prefix it is attached to) are kept in two
+ * parallel arrays of label ids and positions, and are identified by their
+ * index. The Pair-based methods convert from and to this representation. The
+ * scope lists of the subtrees are kept in a third array aligned with the
+ * elements; the map from the String representation of the subtrees to their
+ * scope lists is only derived when it is requested.
+ * </p>
+ * 
+ * <p>
+ * Once a class has been fully explored, its scope lists can be released. Only
+ * the indices of the trees each subtree occurs in are kept then, and the class
+ * can no longer be changed or expanded.
+ * </p>
+ * 
+ * <p>
+ * To free memory while a class waits to be expanded, its scope lists can also
+ * be spilled to a {@link ScopeListSpillFile}. Looking up a spilled scope list
+ * reads it from the file without keeping it, so that classes that are only
+ * looked up stay on disk. The scope lists are loaded back into memory for good
+ * when the class is about to be expanded or is changed.
+ * </p>
+ * 
  * @author Helena Graf
  *
  */
 public class EquivalenceClass {
 
-	private String prefix;
-	private List<Pair<String, Integer>> elementList;
+	private static final int DEFAULT_CAPACITY = 8;
+
+	private SubtreePattern prefix;
+	private int[] elementLabelIds;
+	private int[] elementPositions;
+	/** Replaced as a whole when scope lists are spilled or loaded, so that concurrent lookups stay consistent */
+	private volatile AScopeListRepresentation<?>[] elementScopeLists;
+	private int numberOfElements;
+	/** Whether the tree database of the prefix belongs to this class, so that labels may be added to it */
+	private boolean ownsTreeDatabase;
+
+	/** Tree indices of the subtrees of the elements once the scope lists are released */
+	private int[][] elementTreeIndices;
+
+	/** Spilled scope lists of the elements, or null if no scope lists are spilled */
+	private volatile SpilledScopeList[] elementSpilledScopeLists;
+	private ScopeListSpillFile spillFile;
+	/** Whether the scope lists are kept in memory because the class is being expanded or joined */
+	private volatile boolean scopeListsKeptInMemory;
+
+	/** Scope lists by subtree, derived from the elements; null if not derived yet */
 	private SortedMap<String, AScopeListRepresentation<? extends SimpleScopeListElement>> scopeLists;
 
 	/**
@@ -35,10 +82,9 @@ public class EquivalenceClass {
 	 * @param elementList
 	 *            The elements of the new equivalence class
 	 */
-	public EquivalenceClass(String prefix, List<Pair<String, Integer>> elementList) {
-		this.prefix = prefix;
-		this.elementList = elementList;
-		this.scopeLists = new TreeMap<>();
+	public EquivalenceClass(SubtreePattern prefix, List<Pair<String, Integer>> elementList) {
+		this(prefix);
+		setElementList(elementList);
 	}
 
 	/**
@@ -47,10 +93,69 @@ public class EquivalenceClass {
 	 * @param prefix
 	 *            The prefix of the new equivalence class
 	 */
-	public EquivalenceClass(String prefix) {
+	public EquivalenceClass(SubtreePattern prefix) {
 		this.prefix = prefix;
-		this.elementList = new ArrayList<>();
-		this.scopeLists = new TreeMap<>();
+		this.elementLabelIds = new int[DEFAULT_CAPACITY];
+		this.elementPositions = new int[DEFAULT_CAPACITY];
+		this.elementScopeLists = new AScopeListRepresentation<?>[DEFAULT_CAPACITY];
+	}
+
+	/**
+	 * Creates a new equivalence class with the given prefix and list of elements it
+	 * contains (labels of the nodes attached to the prefix together with the
+	 * position where they are attached). The labels are resolved by a tree
+	 * database of their own, so that the class is not related to the label ids of
+	 * any other tree database.
+	 * 
+	 * @param prefix
+	 *            The String representation of the prefix of the new equivalence
+	 *            class
+	 * @param elementList
+	 *            The elements of the new equivalence class
+	 * @deprecated Use {@link #EquivalenceClass(SubtreePattern, List)} with a
+	 *             prefix of the tree database that is mined instead
+	 */
+	@Deprecated
+	public EquivalenceClass(String prefix, List<Pair<String, Integer>> elementList) {
+		this(prefix);
+		setElementList(elementList);
+	}
+
+	/**
+	 * Creates a new equivalence class with the given prefix. The labels are
+	 * resolved by a tree database of their own, so that the class is not related
+	 * to the label ids of any other tree database.
+	 * 
+	 * @param prefix
+	 *            The String representation of the prefix of the new equivalence
+	 *            class
+	 * @deprecated Use {@link #EquivalenceClass(SubtreePattern)} with a prefix of
+	 *             the tree database that is mined instead
+	 */
+	@Deprecated
+	public EquivalenceClass(String prefix) {
+		this(parsePrefix(prefix));
+		this.ownsTreeDatabase = true;
+	}
+
+	private static SubtreePattern parsePrefix(String prefix) {
+		if (prefix.isEmpty()) {
+			return SubtreePattern.empty(new TreeDatabase(Collections.emptyList()));
+		}
+
+		TreeDatabase trees = new TreeDatabase(Collections.singletonList(prefix));
+		SubtreePattern pattern = SubtreePattern.empty(trees);
+		int[] openNodes = new int[trees.getNumberOfNodes(0)];
+		int numberOfOpenNodes = 0;
+		for (int labelId : trees.getEncoding(0)) {
+			if (labelId == TreeDatabase.MOVE_UP_ID) {
+				numberOfOpenNodes--;
+			} else {
+				pattern = pattern.extend(labelId, numberOfOpenNodes > 0 ? openNodes[numberOfOpenNodes - 1] : -1);
+				openNodes[numberOfOpenNodes++] = pattern.size() - 1;
+			}
+		}
+		return pattern;
 	}
 
 	/**
@@ -58,43 +163,180 @@ public class EquivalenceClass {
 	 * their elements as well as scope lists if they are not frequent.
 	 * 
 	 * @param minSupport
-	 *            The minimal number of occurrences a subtree must have to be
+	 *            The minimal number of distinct trees a subtree must occur in to be
 	 *            considered frequent
 	 */
 	public void discardNonFrequentElements(int minSupport) {
-		// Check the minimum support in the scope lists
-		TreeMap<String, AScopeListRepresentation<? extends SimpleScopeListElement>> newScopeLists = new TreeMap<>();
-		scopeLists.forEach((label, list) -> {
-			// Discard scope lists with not enough occurrences
-			if (list.size() >= minSupport) {
-				// Discard scope lists with not enough distinct occurrences
-				HashSet<Integer> distinctOccurrences = new HashSet<>();
-				list.forEach(scope -> distinctOccurrences.add(scope.getTreeIndex()));
-				if (distinctOccurrences.size() >= minSupport) {
-					newScopeLists.put(label, list);
+		retainElements(element -> {
+			AScopeListRepresentation<? extends SimpleScopeListElement> list = getScopeList(element);
+			// Discard scope lists with not enough distinct occurrences
+			return list != null && list.getNumberOfTrees() >= minSupport;
+		});
+	}
+
+	/**
+	 * Get the number of elements in this equivalence class.
+	 * 
+	 * @return The number of elements
+	 */
+	public int getNumberOfElements() {
+		return numberOfElements;
+	}
+
+	/**
+	 * Get the label id of the node that the given element appends to the prefix.
+	 * 
+	 * @param element
+	 *            The index of the element
+	 * @return The label id of the element
+	 */
+	public int getElementLabelId(int element) {
+		checkElement(element);
+		return elementLabelIds[element];
+	}
+
+	/**
+	 * Get the label of the node that the given element appends to the prefix.
+	 * 
+	 * @param element
+	 *            The index of the element
+	 * @return The label of the element
+	 */
+	public String getElementLabel(int element) {
+		return prefix.getTreeDatabase().getLabel(getElementLabelId(element));
+	}
+
+	/**
+	 * Get the position of the node of the prefix that the given element is
+	 * attached to.
+	 * 
+	 * @param element
+	 *            The index of the element
+	 * @return The position the element is attached to
+	 */
+	public int getElementPosition(int element) {
+		checkElement(element);
+		return elementPositions[element];
+	}
+
+	private void checkElement(int element) {
+		if (element < 0 || element >= numberOfElements) {
+			throw new IndexOutOfBoundsException(
+					"Equivalence class has " + numberOfElements + " elements, no element " + element);
+		}
+	}
+
+	/**
+	 * Add an element to the elements of this equivalence class.
+	 * 
+	 * @param labelId
+	 *            The label id of the node that is appended to the prefix
+	 * @param position
+	 *            The position of the node of the prefix it is attached to
+	 */
+	public void addElement(int labelId, int position) {
+		addElement(labelId, position, null);
+	}
+
+	/**
+	 * Add an element to the elements of this equivalence class together with the
+	 * scope list of its subtree.
+	 * 
+	 * @param labelId
+	 *            The label id of the node that is appended to the prefix
+	 * @param position
+	 *            The position of the node of the prefix it is attached to
+	 * @param scopeList
+	 *            The occurrences of the subtree of the element
+	 */
+	public void addElement(int labelId, int position,
+			AScopeListRepresentation<? extends SimpleScopeListElement> scopeList) {
+		checkScopeListsNotReleased();
+		readBackSpilledScopeLists();
+		if (numberOfElements == elementLabelIds.length) {
+			int capacity = Math.max(DEFAULT_CAPACITY, 2 * numberOfElements);
+			elementLabelIds = Arrays.copyOf(elementLabelIds, capacity);
+			elementPositions = Arrays.copyOf(elementPositions, capacity);
+			elementScopeLists = Arrays.copyOf(elementScopeLists, capacity);
+		}
+		elementLabelIds[numberOfElements] = labelId;
+		elementPositions[numberOfElements] = position;
+		elementScopeLists[numberOfElements] = scopeList;
+		numberOfElements++;
+		scopeLists = null;
+	}
+
+	/**
+	 * Removes all elements of this equivalence class that do not satisfy the given
+	 * condition together with their scope lists, keeping the order of the
+	 * remaining elements. The condition is
+	 * tested for the elements in ascending order of their index before any element
+	 * is removed. Spilled scope lists of the remaining elements stay spilled, and
+	 * the regions of the others are released.
+	 * 
+	 * @param condition
+	 *            Tests whether the element with the given index is kept
+	 */
+	public synchronized void retainElements(IntPredicate condition) {
+		SpilledScopeList[] spilledScopeLists = elementSpilledScopeLists;
+		int numberOfRetainedElements = 0;
+		int numberOfRetainedSpilledScopeLists = 0;
+		for (int element = 0; element < numberOfElements; element++) {
+			if (condition.test(element)) {
+				elementLabelIds[numberOfRetainedElements] = elementLabelIds[element];
+				elementPositions[numberOfRetainedElements] = elementPositions[element];
+				elementScopeLists[numberOfRetainedElements] = elementScopeLists[element];
+				if (elementTreeIndices != null) {
+					elementTreeIndices[numberOfRetainedElements] = elementTreeIndices[element];
+				}
+				if (spilledScopeLists != null) {
+					spilledScopeLists[numberOfRetainedElements] = spilledScopeLists[element];
+					numberOfRetainedSpilledScopeLists += spilledScopeLists[element] != null ? 1 : 0;
 				}
+				numberOfRetainedElements++;
+			} else if (spilledScopeLists != null && spilledScopeLists[element] != null) {
+				spillFile.release(spilledScopeLists[element]);
 			}
-		});
-		scopeLists = newScopeLists;
-
-		// Discard the elements that have no scope list anymore
-		List<Pair<String, Integer>> newElementList = new ArrayList<>();
-		elementList.forEach(element -> {
-			String subTree = TreeRepresentationUtils.addNodeToTree(prefix, element);
-			if (scopeLists.get(subTree) != null && !scopeLists.get(subTree).isEmpty()) {
-				newElementList.add(element);
+		}
+		Arrays.fill(elementScopeLists, numberOfRetainedElements, numberOfElements, null);
+		if (spilledScopeLists != null) {
+			Arrays.fill(spilledScopeLists, numberOfRetainedElements, numberOfElements, null);
+			if (numberOfRetainedSpilledScopeLists == 0) {
+				spillFile = null;
+				elementSpilledScopeLists = null;
 			}
-		});
-		elementList = newElementList;
+		}
+		numberOfElements = numberOfRetainedElements;
+		scopeLists = null;
 	}
 
 	/**
-	 * Get the list of elements in this equivalence class.
+	 * Get the list of elements in this equivalence class as pairs of the label of
+	 * the node appended to the prefix and the position it is attached to.
 	 * 
-	 * @return The list of elements
+	 * <p>
+	 * The list is a read-only view that reflects later changes of the elements.
+	 * Modifying it throws an {@link UnsupportedOperationException}; elements are
+	 * changed with {@link #addElement(Pair)}, {@link #setElementList(List)} and
+	 * {@link #retainElements(IntPredicate)} instead, and a modifiable copy is
+	 * obtained with {@code new ArrayList<>(getElementList())}.
+	 * </p>
+	 * 
+	 * @return The read-only list of elements
 	 */
 	public List<Pair<String, Integer>> getElementList() {
-		return elementList;
+		return new AbstractList<Pair<String, Integer>>() {
+
+			@Override
+			public Pair<String, Integer> get(int element) {
+				return new ImmutablePair<>(getElementLabel(element), getElementPosition(element));
+			}
+
+			@Override
+			public int size() {
+				return numberOfElements;
+			}
+		};
 	}
 
 	/**
@@ -104,7 +346,10 @@ public class EquivalenceClass {
 	 *            The list of element
 	 */
 	public void setElementList(List<Pair<String, Integer>> elementList) {
-		this.elementList = elementList;
+		readBackSpilledScopeLists();
+		Arrays.fill(elementScopeLists, 0, numberOfElements, null);
+		numberOfElements = 0;
+		elementList.forEach(this::addElement);
 	}
 
 	/**
@@ -114,7 +359,49 @@ public class EquivalenceClass {
 	 *            The element to be added
 	 */
 	public void addElement(Pair<String, Integer> element) {
-		elementList.add(element);
+		TreeDatabase trees = prefix.getTreeDatabase();
+		addElement(ownsTreeDatabase ? trees.getOrAddLabelId(element.getLeft()) : trees.getLabelId(element.getLeft()),
+				element.getRight());
+	}
+
+	/**
+	 * Gets the scope list of the subtree of the given element.
+	 * 
+	 * @param element
+	 *            The index of the element
+	 * @return The scope list of the subtree of the element, or null if it has
+	 *         none
+	 */
+	public AScopeListRepresentation<? extends SimpleScopeListElement> getScopeList(int element) {
+		checkElement(element);
+		AScopeListRepresentation<? extends SimpleScopeListElement> scopeList = elementScopeLists[element];
+		// A missing scope list may be spilled, which is only known for sure while holding the lock
+		return scopeList != null ? scopeList : lookUpSpilledScopeList(element);
+	}
+
+	private synchronized AScopeListRepresentation<? extends SimpleScopeListElement> lookUpSpilledScopeList(
+			int element) {
+		SpilledScopeList[] spilledScopeLists = elementSpilledScopeLists;
+		if (spilledScopeLists != null && spilledScopeLists[element] != null) {
+			return spillFile.read(spilledScopeLists[element]);
+		}
+		return elementScopeLists[element];
+	}
+
+	/**
+	 * Sets the scope list of the subtree of the given element.
+	 * 
+	 * @param element
+	 *            The index of the element
+	 * @param scopeList
+	 *            The occurrences of the subtree of the element
+	 */
+	public void setScopeList(int element, AScopeListRepresentation<? extends SimpleScopeListElement> scopeList) {
+		checkElement(element);
+		checkScopeListsNotReleased();
+		readBackSpilledScopeLists();
+		elementScopeLists[element] = scopeList;
+		scopeLists = null;
 	}
 
 	/**
@@ -125,11 +412,12 @@ public class EquivalenceClass {
 	 * @return The scope list of the subtree
 	 */
 	public AScopeListRepresentation<? extends SimpleScopeListElement> getScopeListFor(String subtree) {
-		return scopeLists.get(subtree);
+		return getScopeLists().get(subtree);
 	}
 
 	/**
-	 * Adds a subtree together with its occurrences
+	 * Adds a subtree together with its occurrences. The subtree has to be the
+	 * subtree of an element of this class.
 	 * 
 	 * @param subtree
 	 *            The subtree to be added
@@ -137,38 +425,280 @@ public class EquivalenceClass {
 	 *            The occurrences of the subtree given by a scope list
 	 */
 	public void addScopeListFor(String subtree, AScopeListRepresentation<? extends SimpleScopeListElement> scopeList) {
-		scopeLists.put(subtree, scopeList);
+		for (int element = 0; element < numberOfElements; element++) {
+			if (getSubtreeFor(element).equals(subtree)) {
+				setScopeList(element, scopeList);
+				return;
+			}
+		}
+		throw new IllegalArgumentException("Subtree " + subtree + " is not the subtree of an element of " + prefix);
 	}
 
 	/**
-	 * Get the scope lists for all subtrees represented by this equivalence class.
+	 * Get the scope lists for all subtrees represented by this equivalence class,
+	 * sorted by the String representation of the subtrees. The map is a read-only
+	 * view that is derived from the elements when it is first requested after they
+	 * have changed. If scope lists are spilled, the map is derived again for each
+	 * request instead, so that it does not keep them in memory.
 	 * 
 	 * @return The scope lists of this class
 	 */
 	public SortedMap<String, AScopeListRepresentation<? extends SimpleScopeListElement>> getScopeLists() {
+		if (scopeLists == null) {
+			TreeMap<String, AScopeListRepresentation<? extends SimpleScopeListElement>> newScopeLists = new TreeMap<>();
+			for (int element = 0; element < numberOfElements; element++) {
+				AScopeListRepresentation<? extends SimpleScopeListElement> scopeList = getScopeList(element);
+				if (scopeList != null) {
+					newScopeLists.put(getSubtreeFor(element), scopeList);
+				}
+			}
+			if (elementSpilledScopeLists != null) {
+				return Collections.unmodifiableSortedMap(newScopeLists);
+			}
+			scopeLists = Collections.unmodifiableSortedMap(newScopeLists);
+		}
 		return scopeLists;
 	}
 
 	/**
-	 * Set the scope lists for this equivalence class.
+	 * Set the scope lists for this equivalence class. Each element gets the scope
+	 * list of its subtree, or none if the map does not contain it.
 	 * 
 	 * @param scopeLists
 	 *            The new scope lists
 	 */
 	public void setScopeLists(
 			SortedMap<String, AScopeListRepresentation<? extends SimpleScopeListElement>> scopeLists) {
-		this.scopeLists = scopeLists;
+		for (int element = 0; element < numberOfElements; element++) {
+			setScopeList(element, scopeLists.get(getSubtreeFor(element)));
+		}
 	}
 
 	/**
-	 * Get the prefix of this equivalence class.
+	 * Releases the scope lists of the elements, so that their occurrences can be
+	 * garbage collected, and keeps only the indices of the trees the subtrees of
+	 * the elements occur in. Afterwards, no elements or scope lists can be added to
+	 * this class. Spilled scope lists are read once to find their trees, and their
+	 * regions of the spill file are released.
+	 */
+	public synchronized void releaseScopeLists() {
+		if (elementTreeIndices == null) {
+			int[][] treeIndices = new int[numberOfElements][];
+			for (int element = 0; element < numberOfElements; element++) {
+				treeIndices[element] = getTreeIndices(element);
+			}
+			elementTreeIndices = treeIndices;
+			releaseSpilledScopeLists();
+			Arrays.fill(elementScopeLists, null);
+			scopeLists = null;
+		}
+	}
+
+	/**
+	 * Get whether the scope lists of this class have been released.
+	 * 
+	 * @return whether the scope lists have been released
+	 */
+	public boolean hasReleasedScopeLists() {
+		return elementTreeIndices != null;
+	}
+
+	private void checkScopeListsNotReleased() {
+		if (elementTreeIndices != null) {
+			throw new IllegalStateException("The scope lists of the class with prefix " + prefix + " are released");
+		}
+	}
+
+	/**
+	 * Spills the scope lists of the elements that have at least the given number of
+	 * occurrences to the given file, so that they can be garbage collected. Looking
+	 * them up reads them from the file until they are loaded with
+	 * {@link #loadSpilledScopeLists()}, or the class is changed. Nothing is spilled
+	 * if the scope lists are already spilled, released, or kept in memory for the
+	 * expansion of the class.
+	 * 
+	 * @param file
+	 *            The file to spill the scope lists to
+	 * @param minSize
+	 *            The minimal number of occurrences of a spilled scope list
+	 * @return The number of bytes that have been spilled
+	 */
+	public synchronized long spillScopeLists(ScopeListSpillFile file, int minSize) {
+		if (scopeListsKeptInMemory || elementSpilledScopeLists != null || elementTreeIndices != null) {
+			return 0;
+		}
+
+		SpilledScopeList[] spilledScopeLists = new SpilledScopeList[numberOfElements];
+		AScopeListRepresentation<?>[] remainingScopeLists = elementScopeLists.clone();
+		long spilledBytes = 0;
+		for (int element = 0; element < numberOfElements; element++) {
+			AScopeListRepresentation<? extends SimpleScopeListElement> scopeList = remainingScopeLists[element];
+			if (scopeList != null && scopeList.size() >= minSize) {
+				spilledScopeLists[element] = file.write(scopeList);
+				spilledBytes += spilledScopeLists[element].getLength();
+				remainingScopeLists[element] = null;
+			}
+		}
+		if (spilledBytes == 0) {
+			return 0;
+		}
+
+		spillFile = file;
+		elementSpilledScopeLists = spilledScopeLists;
+		// Threads that still see the old array find the scope lists there
+		elementScopeLists = remainingScopeLists;
+		scopeLists = null;
+		return spilledBytes;
+	}
+
+	/**
+	 * Get whether scope lists of this class are spilled to a file.
+	 * 
+	 * @return whether scope lists are spilled
+	 */
+	public boolean hasSpilledScopeLists() {
+		return elementSpilledScopeLists != null;
+	}
+
+	/**
+	 * Loads the scope lists of this class that are spilled to a file back into
+	 * memory for good, e.g. because the class is about to be expanded, and
+	 * releases their regions of the file. The scope lists of the class are not
+	 * spilled again afterwards, so loading them again is cheap.
+	 */
+	public void loadSpilledScopeLists() {
+		if (!scopeListsKeptInMemory) {
+			synchronized (this) {
+				scopeListsKeptInMemory = true;
+			}
+		}
+		readBackSpilledScopeLists();
+	}
+
+	private void readBackSpilledScopeLists() {
+		// Only classes that have been spilled need the lock
+		if (elementSpilledScopeLists == null) {
+			return;
+		}
+		synchronized (this) {
+			SpilledScopeList[] spilledScopeLists = elementSpilledScopeLists;
+			if (spilledScopeLists != null) {
+				AScopeListRepresentation<?>[] loadedScopeLists = elementScopeLists.clone();
+				for (int element = 0; element < numberOfElements; element++) {
+					if (spilledScopeLists[element] != null) {
+						loadedScopeLists[element] = spillFile.read(spilledScopeLists[element]);
+					}
+				}
+				elementScopeLists = loadedScopeLists;
+				releaseSpilledScopeLists();
+			}
+		}
+	}
+
+	private void releaseSpilledScopeLists() {
+		SpilledScopeList[] spilledScopeLists = elementSpilledScopeLists;
+		if (spilledScopeLists != null) {
+			for (SpilledScopeList spilledScopeList : spilledScopeLists) {
+				if (spilledScopeList != null) {
+					spillFile.release(spilledScopeList);
+				}
+			}
+			spillFile = null;
+			elementSpilledScopeLists = null;
+		}
+	}
+
+	/**
+	 * Get the indices of the distinct trees the subtree of the given element
+	 * occurs in, in ascending order. They are also available after the scope lists
+	 * have been released.
+	 * 
+	 * @param element
+	 *            The index of the element
+	 * @return The tree indices, or null if the element has no scope list
+	 */
+	public int[] getTreeIndices(int element) {
+		checkElement(element);
+		if (elementTreeIndices != null) {
+			return elementTreeIndices[element];
+		}
+
+		AScopeListRepresentation<? extends SimpleScopeListElement> scopeList = getScopeList(element);
+		if (scopeList == null) {
+			return null;
+		}
+		int[] treeIndices = new int[scopeList.getNumberOfTrees()];
+		int numberOfTrees = 0;
+		for (SimpleScopeListElement occurrence : scopeList) {
+			// Occurrences are sorted by tree
+			if (numberOfTrees == 0 || treeIndices[numberOfTrees - 1] != occurrence.getTreeIndex()) {
+				treeIndices[numberOfTrees++] = occurrence.getTreeIndex();
+			}
+		}
+		return treeIndices;
+	}
+
+	/**
+	 * Get the indices of the elements that have a scope list, or had one before
+	 * the scope lists were released, sorted by the String representation of their
+	 * subtrees like the map of the scope lists.
+	 * 
+	 * @return The indices of the elements in the order of their subtrees
+	 */
+	public int[] getElementsInSubtreeOrder() {
+		SpilledScopeList[] spilledScopeLists = elementSpilledScopeLists;
+		TreeMap<String, Integer> elementsBySubtree = new TreeMap<>();
+		for (int element = 0; element < numberOfElements; element++) {
+			if (elementScopeLists[element] != null || (spilledScopeLists != null && spilledScopeLists[element] != null)
+					|| (elementTreeIndices != null && elementTreeIndices[element] != null)) {
+				elementsBySubtree.put(getSubtreeFor(element), element);
+			}
+		}
+		return elementsBySubtree.values().stream().mapToInt(Integer::intValue).toArray();
+	}
+
+	/**
+	 * Get the String representation of the prefix of this equivalence class.
 	 * 
 	 * @return The prefix of this class
 	 */
 	public String getPrefix() {
+		return prefix.toString();
+	}
+
+	/**
+	 * Get the prefix of this equivalence class.
+	 * 
+	 * @return The prefix of this class
+	 */
+	public SubtreePattern getPrefixPattern() {
 		return prefix;
 	}
 
+	/**
+	 * Get the String representation of the subtree that consists of the prefix of
+	 * this class and the given element, under which its scope list is kept.
+	 * 
+	 * @param element
+	 *            The element that is attached to the prefix
+	 * @return The subtree of the element
+	 */
+	public String getSubtreeFor(Pair<String, Integer> element) {
+		return prefix.toStringExtendedBy(element.getLeft(), element.getRight());
+	}
+
+	/**
+	 * Get the String representation of the subtree that consists of the prefix of
+	 * this class and the given element, under which its scope list is kept.
+	 * 
+	 * @param element
+	 *            The index of the element that is attached to the prefix
+	 * @return The subtree of the element
+	 */
+	public String getSubtreeFor(int element) {
+		return prefix.toStringExtendedBy(getElementLabel(element), getElementPosition(element));
+	}
+
 	@Override
 	public String toString() {
 		StringBuilder builder = new StringBuilder();
@@ -176,12 +706,12 @@ public class EquivalenceClass {
 		builder.append(prefix);
 		builder.append("\n");
 		builder.append("Elements: \n");
-		elementList.forEach(pair -> {
-			builder.append(pair);
+		for (int element = 0; element < numberOfElements; element++) {
+			builder.append(new ImmutablePair<>(getElementLabel(element), elementPositions[element]));
 			builder.append(" ");
-		});
+		}
 		builder.append("\nScopes: \n");
-		scopeLists.forEach((label, scopeList) -> {
+		getScopeLists().forEach((label, scopeList) -> {
 			builder.append(label);
 			builder.append(" ");
 			builder.append(scopeList);
@@ -0,0 +1,22 @@
+package treeminer;
+
+/**
+ * Consumes the frequent subtrees found by a {@link FrequentSubtreeFinder} one
+ * at a time, so that they do not have to be kept in memory.
+ * 
+ * @author Helena Graf
+ *
+ */
+@FunctionalInterface
+public interface FrequentSubtreeConsumer {
+
+	/**
+	 * Accepts a found frequent subtree.
+	 * 
+	 * @param subtree
+	 *            The String representation of the found subtree
+	 * @param support
+	 *            The support of the subtree
+	 */
+	public void accept(String subtree, int support);
+}
@@ -1,5 +1,6 @@
 package treeminer;
 
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -7,7 +8,8 @@ import java.util.List;
  * a given tree or forest.
  * 
  * <p>
- * Trees are represented as Strings.
+ * Trees are represented as Strings, or as a {@link TreeDatabase} that has
+ * already been parsed from the String representations of the trees.
  * </p>
  * 
  * @author Helena Graf
@@ -30,9 +32,72 @@ public interface FrequentSubtreeFinder {
 	 */
 	public List<String> findFrequentSubtrees(List<String> trees, int minSupport);
 
+	/**
+	 * Finds all frequent subtrees in the given database of trees.
+	 * 
+	 * <p>
+	 * A tree is frequent if it appears in at least minSupport many trees.
+	 * </p>
+	 * 
+	 * @param trees
+	 *            The given database of trees which is searched for frequent
+	 *            subtrees
+	 * @param minSupport
+	 *            The minimum support a subtree must have to be considered frequent
+	 * @return The found frequent subtrees
+	 */
+	public List<String> findFrequentSubtrees(TreeDatabase trees, int minSupport);
+
+	/**
+	 * Finds all frequent subtrees in the given forest and passes each of them
+	 * together with its support to the given consumer as soon as it has been
+	 * found, in no particular order. The found subtrees are not kept.
+	 * 
+	 * @param trees
+	 *            The given forest which is searched for frequent subtrees
+	 * @param minSupport
+	 *            The minimum support a subtree must have to be considered frequent
+	 * @param consumer
+	 *            The consumer of the found frequent subtrees
+	 */
+	public default void findFrequentSubtrees(List<String> trees, int minSupport, FrequentSubtreeConsumer consumer) {
+		findFrequentSubtrees(new TreeDatabase(trees), minSupport, consumer);
+	}
+
+	/**
+	 * Finds all frequent subtrees in the given database of trees and passes each
+	 * of them together with its support to the given consumer as soon as it has
+	 * been found, in no particular order. The found subtrees are not kept.
+	 * 
+	 * <p>
+	 * By default, the subtrees are found as a list first and their supports are
+	 * counted in the characterizations of the trees, so that they are only passed
+	 * to the consumer once the search is complete.
+	 * </p>
+	 * 
+	 * @param trees
+	 *            The given database of trees which is searched for frequent
+	 *            subtrees
+	 * @param minSupport
+	 *            The minimum support a subtree must have to be considered frequent
+	 * @param consumer
+	 *            The consumer of the found frequent subtrees
+	 */
+	public default void findFrequentSubtrees(TreeDatabase trees, int minSupport, FrequentSubtreeConsumer consumer) {
+		List<String> subtrees = findFrequentSubtrees(trees, minSupport);
+		int[] supports = new int[subtrees.size()];
+		for (int pattern : getSparseCharacterizationsOfTrainingExamples().getPatternIndices()) {
+			supports[pattern]++;
+		}
+		for (int pattern = 0; pattern < subtrees.size(); pattern++) {
+			consumer.accept(subtrees.get(pattern), supports[pattern]);
+		}
+	}
+
 	/**
 	 * Get the equivalence classes found during the last call of
-	 * {@link #findFrequentSubtrees(List, int)}.
+	 * {@link #findFrequentSubtrees(List, int)} or
+	 * {@link #findFrequentSubtrees(TreeDatabase, int)}.
 	 * 
 	 * @return The found equivalence classes
 	 */
@@ -46,4 +111,32 @@ public interface FrequentSubtreeFinder {
 	 * @return A matrix indicating pattern occurrences
 	 */
 	double[][] getCharacterizationsOfTrainingExamples();
+
+	/**
+	 * Get which of the training example trees contain which pattern, as a sparse
+	 * characterization that only stores the patterns each tree contains.
+	 * 
+	 * <p>
+	 * By default, the characterization is derived from
+	 * {@link #getCharacterizationsOfTrainingExamples()}.
+	 * </p>
+	 * 
+	 * @return A sparse characterization indicating pattern occurrences
+	 */
+	public default SparseCharacterization getSparseCharacterizationsOfTrainingExamples() {
+		double[][] characterizations = getCharacterizationsOfTrainingExamples();
+		int numPatterns = characterizations.length > 0 ? characterizations[0].length : 0;
+		int[] rowOffsets = new int[characterizations.length + 1];
+		int[] patternIndices = new int[characterizations.length * numPatterns];
+		for (int tree = 0; tree < characterizations.length; tree++) {
+			rowOffsets[tree + 1] = rowOffsets[tree];
+			for (int pattern = 0; pattern < numPatterns; pattern++) {
+				if (characterizations[tree][pattern] != 0) {
+					patternIndices[rowOffsets[tree + 1]++] = pattern;
+				}
+			}
+		}
+		return new SparseCharacterization(numPatterns, rowOffsets,
+				Arrays.copyOf(patternIndices, rowOffsets[characterizations.length]));
+	}
 }
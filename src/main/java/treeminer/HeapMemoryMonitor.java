@@ -0,0 +1,99 @@
+package treeminer;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Watches the heap memory that is still used after garbage collections, so that
+ * a search can react when it exceeds a budget. Memory that is only used by
+ * garbage is not counted, since the usage is taken from the tenured heap pool
+ * after it has been collected. The monitor polls the pool and its collectors
+ * and does not change any of their settings, so that several monitors and other
+ * users of the pool do not interfere with each other.
+ * 
+ * <p>
+ * The excess of each collection over the budget can be taken by exactly one
+ * caller, so that the threads of a search can poll the monitor cheaply and only
+ * one of them frees memory after each collection.
+ * </p>
+ * 
+ * @author Helena Graf
+ *
+ */
+class HeapMemoryMonitor {
+
+	private final long budget;
+	private final MemoryPoolMXBean pool;
+	private final List<GarbageCollectorMXBean> collectors = new ArrayList<>();
+
+	/** the number of collections of the pool whose excess has been taken, or -1 if none has been taken yet */
+	private final AtomicLong numberOfTakenCollections = new AtomicLong(-1);
+
+	/**
+	 * Starts to watch the heap memory that is used after garbage collections.
+	 * 
+	 * @param budget
+	 *            the used heap memory in bytes above which the search is over
+	 *            budget
+	 * @throws IllegalStateException
+	 *             if no heap pool of the garbage collector reports its usage after
+	 *             collections
+	 */
+	HeapMemoryMonitor(long budget) {
+		this.budget = budget;
+		this.pool = findTenuredPool();
+		for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+			if (Arrays.asList(collector.getMemoryPoolNames()).contains(pool.getName())) {
+				collectors.add(collector);
+			}
+		}
+	}
+
+	private static MemoryPoolMXBean findTenuredPool() {
+		// Only the pools of objects that survive collections support collection usage thresholds
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP && pool.isUsageThresholdSupported()
+					&& pool.isCollectionUsageThresholdSupported()) {
+				return pool;
+			}
+		}
+		throw new IllegalStateException(
+				"No heap memory pool reports its usage after collections, so the used heap memory cannot be watched");
+	}
+
+	private long getNumberOfCollections() {
+		long numberOfCollections = 0;
+		for (GarbageCollectorMXBean collector : collectors) {
+			numberOfCollections += Math.max(0, collector.getCollectionCount());
+		}
+		return numberOfCollections;
+	}
+
+	/**
+	 * Takes the used memory above the budget after the last garbage collection,
+	 * so that other callers get 0 until the next collection. The first call takes
+	 * the excess of the last collection before the monitor has been created, since
+	 * a search may start over budget.
+	 * 
+	 * @return the number of bytes that should be freed, or 0 if the memory is
+	 *         within the budget or another caller frees it
+	 */
+	long takeExcess() {
+		long numberOfCollections = getNumberOfCollections();
+		long numberOfTaken = numberOfTakenCollections.get();
+		// Only one of the callers that see a new collection takes it
+		if (numberOfCollections == numberOfTaken
+				|| !numberOfTakenCollections.compareAndSet(numberOfTaken, numberOfCollections)) {
+			return 0;
+		}
+		MemoryUsage usageAfterCollection = pool.getCollectionUsage();
+		return usageAfterCollection != null ? Math.max(0, usageAfterCollection.getUsed() - budget) : 0;
+	}
+}
@@ -0,0 +1,102 @@
+package treeminer;
+
+import java.time.Instant;
+
+/**
+ * The limits of a search. Once one of them is exceeded, the search stops and
+ * returns the subtrees found so far as an incomplete {@link MiningResult}. By
+ * default, a budget is unlimited.
+ * 
+ * <p>
+ * The limits are checked before each tree is processed during the
+ * initialization, before an element of an equivalence class is expanded and
+ * before the subtrees of a class are extracted. A search that is stopped during
+ * the initialization returns no subtrees, since the skipped trees may contain
+ * occurrences of any pattern, and one that is stopped during the extraction
+ * only returns the subtrees of the classes extracted until then. A search may
+ * exceed the maximal number of joined scope list elements by the joins of the
+ * classes that are being expanded when it is reached. The maximal number of
+ * patterns is never exceeded, since the patterns beyond it are dropped.
+ * </p>
+ * 
+ * @author Helena Graf
+ *
+ */
+public class MiningBudget {
+
+	private Instant deadline;
+	private long maxPatterns = Long.MAX_VALUE;
+	private long maxJoinedScopeListElements = Long.MAX_VALUE;
+
+	/**
+	 * Set the point in time at which the search shall be stopped.
+	 * 
+	 * @param deadline
+	 *            the deadline, or null if the search has no deadline
+	 */
+	public void setDeadline(Instant deadline) {
+		this.deadline = deadline;
+	}
+
+	/**
+	 * Get the point in time at which the search is stopped.
+	 * 
+	 * @return the deadline, or null if there is none
+	 */
+	public Instant getDeadline() {
+		return deadline;
+	}
+
+	/**
+	 * Set the maximal number of frequent patterns the search shall return. Only the
+	 * returned patterns are counted, so in the default mode the frequent patterns
+	 * that only occur embedded do not count. The search is stopped once it finds a
+	 * pattern beyond this number, which is dropped.
+	 * 
+	 * @param maxPatterns
+	 *            the maximal number of patterns, at least 0
+	 */
+	public void setMaxPatterns(long maxPatterns) {
+		if (maxPatterns < 0) {
+			throw new IllegalArgumentException("Max patterns must be at least 0, but is " + maxPatterns);
+		}
+		this.maxPatterns = maxPatterns;
+	}
+
+	/**
+	 * Get the maximal number of frequent patterns the search returns.
+	 * 
+	 * @return the maximal number of patterns
+	 */
+	public long getMaxPatterns() {
+		return maxPatterns;
+	}
+
+	/**
+	 * Set the total number of occurrences in the scope lists resulting from joins
+	 * after which the search shall be stopped. This limits the work of the joins
+	 * rather than the memory of the scope lists: the occurrences of all joins are
+	 * counted, including the joins of infrequent candidates and of classes whose
+	 * scope lists have already been released.
+	 * 
+	 * @param maxJoinedScopeListElements
+	 *            the maximal number of joined scope list elements, at least 0
+	 */
+	public void setMaxJoinedScopeListElements(long maxJoinedScopeListElements) {
+		if (maxJoinedScopeListElements < 0) {
+			throw new IllegalArgumentException(
+					"Max joined scope list elements must be at least 0, but is " + maxJoinedScopeListElements);
+		}
+		this.maxJoinedScopeListElements = maxJoinedScopeListElements;
+	}
+
+	/**
+	 * Get the total number of occurrences in the scope lists resulting from joins
+	 * after which the search is stopped.
+	 * 
+	 * @return the maximal number of joined scope list elements
+	 */
+	public long getMaxJoinedScopeListElements() {
+		return maxJoinedScopeListElements;
+	}
+}
@@ -0,0 +1,21 @@
+package treeminer;
+
+/**
+ * Is notified of the progress of a search, e.g. to report it to a scheduler.
+ * 
+ * @author Helena Graf
+ *
+ */
+@FunctionalInterface
+public interface MiningProgressListener {
+
+	/**
+	 * Called each time the part of the search below an element of an initial
+	 * equivalence class is complete, i.e. when the number of explored initial
+	 * elements of the statistics has grown.
+	 * 
+	 * @param statistics
+	 *            The statistics of the running search
+	 */
+	public void progress(MiningStatistics statistics);
+}
@@ -0,0 +1,74 @@
+package treeminer;
+
+import java.util.List;
+
+/**
+ * The result of a search with a {@link MiningBudget}. If the search has been
+ * stopped before it was complete, the result contains the frequent subtrees
+ * found until then, each of which is frequent, and the reason why the search
+ * has been stopped.
+ * 
+ * @author Helena Graf
+ *
+ */
+public class MiningResult {
+
+	/**
+	 * The reasons why a search is stopped before it is complete.
+	 */
+	public enum StopReason {
+		/** the cancellation token has been cancelled */
+		CANCELLED,
+		/** the deadline has passed */
+		DEADLINE,
+		/** a pattern beyond the maximal number of patterns has been found */
+		MAX_PATTERNS,
+		/** the maximal number of joined scope list elements has been exceeded */
+		MAX_JOINED_SCOPE_LIST_ELEMENTS
+	}
+
+	private final List<String> frequentSubtrees;
+	private final StopReason stopReason;
+
+	/**
+	 * Creates a new result.
+	 * 
+	 * @param frequentSubtrees
+	 *            The found frequent subtrees
+	 * @param stopReason
+	 *            The reason why the search has been stopped, or null if it is
+	 *            complete
+	 */
+	public MiningResult(List<String> frequentSubtrees, StopReason stopReason) {
+		this.frequentSubtrees = frequentSubtrees;
+		this.stopReason = stopReason;
+	}
+
+	/**
+	 * Get the found frequent subtrees, which are all frequent subtrees if the
+	 * search is complete.
+	 * 
+	 * @return The found frequent subtrees
+	 */
+	public List<String> getFrequentSubtrees() {
+		return frequentSubtrees;
+	}
+
+	/**
+	 * Get whether the search has found all frequent subtrees.
+	 * 
+	 * @return Whether the result is complete
+	 */
+	public boolean isComplete() {
+		return stopReason == null;
+	}
+
+	/**
+	 * Get the reason why the search has been stopped before it was complete.
+	 * 
+	 * @return The reason, or null if the result is complete
+	 */
+	public StopReason getStopReason() {
+		return stopReason;
+	}
+}
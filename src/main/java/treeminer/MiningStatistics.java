@@ -0,0 +1,334 @@
+package treeminer;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Statistics of the searches of a {@link TreeMiner}, which are reset at the
+ * start of each search. They are updated while the search is running and can be
+ * read at any time from any thread, e.g. to show the progress of a long search,
+ * either directly or by registering them as an MBean with
+ * {@link #registerMBean(String)}.
+ * 
+ * <p>
+ * The time of a phase is the sum of the times of its steps. The steps of the
+ * induced filtering happen during the search if the frequent subtrees are
+ * passed to a consumer, and may run in parallel if the parallelism is greater
+ * than 1, so the times of the phases do not necessarily add up to the total
+ * time.
+ * </p>
+ * 
+ * @author Helena Graf
+ *
+ */
+public class MiningStatistics implements MiningStatisticsMXBean {
+
+	/**
+	 * The phases of a search.
+	 */
+	public enum Phase {
+		/** finding the frequent subtrees of one node */
+		F1,
+		/** finding the frequent subtrees of two nodes */
+		F2,
+		/** exploring the equivalence classes */
+		SEARCH,
+		/** extracting the subtrees that occur directly from the equivalence classes */
+		INDUCED_FILTERING,
+		/** computing the characterizations of the trees */
+		CHARACTERIZATION
+	}
+
+	private volatile Phase currentPhase;
+	private final Map<Phase, LongAdder> nanosByPhase = new EnumMap<>(Phase.class);
+
+	private volatile long numberOfInitialElements;
+	private final LongAdder numberOfExploredInitialElements = new LongAdder();
+	private final LongAdder numberOfExploredClasses = new LongAdder();
+	private final LongAdder numberOfFoundPatterns = new LongAdder();
+
+	/**
+	 * the number of candidates indexed by their number of nodes; all entries are
+	 * filled before the array is published, and it is only replaced by a longer
+	 * copy with the same counters when a larger pattern occurs
+	 */
+	private volatile LongAdder[] numberOfCandidatesBySize = newCounters(new LongAdder[0], 16);
+	private final LongAdder numberOfJoinsAttempted = new LongAdder();
+	private final LongAdder numberOfJoinsSucceeded = new LongAdder();
+	private final LongAdder numberOfJoinsPruned = new LongAdder();
+	private final LongAdder totalScopeListSize = new LongAdder();
+	private final LongAccumulator maxScopeListSize = new LongAccumulator(Math::max, 0);
+	private final LongAdder numberOfSpilledBytes = new LongAdder();
+
+	/** the name this object is registered with as an MBean, or null if it is not */
+	private ObjectName objectName;
+
+	/**
+	 * Creates empty statistics.
+	 */
+	public MiningStatistics() {
+		for (Phase phase : Phase.values()) {
+			nanosByPhase.put(phase, new LongAdder());
+		}
+	}
+
+	/**
+	 * Resets all statistics for a new search.
+	 */
+	void reset() {
+		currentPhase = null;
+		nanosByPhase.values().forEach(LongAdder::reset);
+		numberOfInitialElements = 0;
+		numberOfExploredInitialElements.reset();
+		numberOfExploredClasses.reset();
+		numberOfFoundPatterns.reset();
+		for (LongAdder numberOfCandidates : numberOfCandidatesBySize) {
+			numberOfCandidates.reset();
+		}
+		numberOfJoinsAttempted.reset();
+		numberOfJoinsSucceeded.reset();
+		numberOfJoinsPruned.reset();
+		totalScopeListSize.reset();
+		maxScopeListSize.reset();
+		numberOfSpilledBytes.reset();
+	}
+
+	/**
+	 * Sets the phase the search is currently in.
+	 * 
+	 * @param phase
+	 *            the current phase, or null if the search has ended
+	 */
+	void setCurrentPhase(Phase phase) {
+		currentPhase = phase;
+	}
+
+	/**
+	 * Adds the time of a step of the given phase.
+	 * 
+	 * @param phase
+	 *            the phase of the step
+	 * @param startNanos
+	 *            the value of {@link System#nanoTime()} at the start of the step
+	 */
+	void addTimeSince(Phase phase, long startNanos) {
+		nanosByPhase.get(phase).add(System.nanoTime() - startNanos);
+	}
+
+	void setNumberOfInitialElements(long numberOfInitialElements) {
+		this.numberOfInitialElements = numberOfInitialElements;
+	}
+
+	void initialElementExplored() {
+		numberOfExploredInitialElements.increment();
+	}
+
+	void classExplored() {
+		numberOfExploredClasses.increment();
+	}
+
+	void patternFound() {
+		numberOfFoundPatterns.increment();
+	}
+
+	/**
+	 * Records a scope list join.
+	 * 
+	 * @param patternSize
+	 *            the number of nodes of the candidate pattern
+	 * @param scopeListSize
+	 *            the number of occurrences of the resulting scope list
+	 * @param succeeded
+	 *            whether the candidate occurs in enough trees
+	 */
+	void joinAttempted(int patternSize, int scopeListSize, boolean succeeded) {
+		LongAdder[] candidates = numberOfCandidatesBySize;
+		if (patternSize >= candidates.length) {
+			candidates = growCandidateCounters(patternSize);
+		}
+		candidates[patternSize].increment();
+		numberOfJoinsAttempted.increment();
+		if (succeeded) {
+			numberOfJoinsSucceeded.increment();
+		}
+		totalScopeListSize.add(scopeListSize);
+		maxScopeListSize.accumulate(scopeListSize);
+	}
+
+	private synchronized LongAdder[] growCandidateCounters(int patternSize) {
+		if (patternSize >= numberOfCandidatesBySize.length) {
+			numberOfCandidatesBySize = newCounters(numberOfCandidatesBySize,
+					Math.max(patternSize + 1, 2 * numberOfCandidatesBySize.length));
+		}
+		return numberOfCandidatesBySize;
+	}
+
+	private static LongAdder[] newCounters(LongAdder[] counters, int length) {
+		LongAdder[] newCounters = Arrays.copyOf(counters, length);
+		for (int i = counters.length; i < length; i++) {
+			newCounters[i] = new LongAdder();
+		}
+		return newCounters;
+	}
+
+	void joinsPruned(int numberOfJoins) {
+		numberOfJoinsPruned.add(numberOfJoins);
+	}
+
+	void scopeListsSpilled(long numberOfBytes) {
+		numberOfSpilledBytes.add(numberOfBytes);
+	}
+
+	/**
+	 * Get the phase the search is currently in.
+	 * 
+	 * @return the current phase, or null if no search is running
+	 */
+	public Phase getPhase() {
+		return currentPhase;
+	}
+
+	/**
+	 * Get the time spent in the given phase.
+	 * 
+	 * @param phase
+	 *            the phase
+	 * @param unit
+	 *            the unit of the returned time
+	 * @return the time spent in the phase
+	 */
+	public long getTime(Phase phase, TimeUnit unit) {
+		return unit.convert(nanosByPhase.get(phase).sum(), TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public String getCurrentPhase() {
+		Phase phase = currentPhase;
+		return phase == null ? null : phase.name();
+	}
+
+	@Override
+	public long getNumberOfInitialElements() {
+		return numberOfInitialElements;
+	}
+
+	@Override
+	public long getNumberOfExploredInitialElements() {
+		return numberOfExploredInitialElements.sum();
+	}
+
+	@Override
+	public long getNumberOfExploredClasses() {
+		return numberOfExploredClasses.sum();
+	}
+
+	@Override
+	public long getNumberOfFoundPatterns() {
+		return numberOfFoundPatterns.sum();
+	}
+
+	@Override
+	public SortedMap<Integer, Long> getNumberOfCandidatesBySize() {
+		SortedMap<Integer, Long> candidates = new TreeMap<>();
+		LongAdder[] numberOfCandidates = numberOfCandidatesBySize;
+		for (int size = 0; size < numberOfCandidates.length; size++) {
+			long number = numberOfCandidates[size].sum();
+			if (number > 0) {
+				candidates.put(size, number);
+			}
+		}
+		return candidates;
+	}
+
+	@Override
+	public long getNumberOfJoinsAttempted() {
+		return numberOfJoinsAttempted.sum();
+	}
+
+	@Override
+	public long getNumberOfJoinsSucceeded() {
+		return numberOfJoinsSucceeded.sum();
+	}
+
+	@Override
+	public long getNumberOfJoinsPruned() {
+		return numberOfJoinsPruned.sum();
+	}
+
+	@Override
+	public long getMaxScopeListSize() {
+		return maxScopeListSize.get();
+	}
+
+	@Override
+	public long getTotalScopeListSize() {
+		return totalScopeListSize.sum();
+	}
+
+	@Override
+	public double getAverageScopeListSize() {
+		long joins = numberOfJoinsAttempted.sum();
+		return joins == 0 ? 0 : (double) totalScopeListSize.sum() / joins;
+	}
+
+	@Override
+	public long getNumberOfSpilledBytes() {
+		return numberOfSpilledBytes.sum();
+	}
+
+	@Override
+	public Map<String, Long> getTimeMillisByPhase() {
+		Map<String, Long> times = new LinkedHashMap<>();
+		for (Phase phase : Phase.values()) {
+			times.put(phase.name(), getTime(phase, TimeUnit.MILLISECONDS));
+		}
+		return times;
+	}
+
+	/**
+	 * Registers these statistics as an MBean with the platform MBean server, under
+	 * the name "treeminer:type=MiningStatistics,name=" followed by the given name.
+	 * 
+	 * @param name
+	 *            the name that distinguishes these statistics from those of other
+	 *            miners
+	 * @return the name of the registered MBean
+	 * @throws JMException
+	 *             if the MBean cannot be registered, e.g. because the name is
+	 *             already taken
+	 */
+	public synchronized ObjectName registerMBean(String name) throws JMException {
+		if (objectName != null) {
+			throw new IllegalStateException("The statistics are already registered as " + objectName);
+		}
+		ObjectName newObjectName = new ObjectName("treeminer:type=MiningStatistics,name=" + ObjectName.quote(name));
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, newObjectName);
+		objectName = newObjectName;
+		return objectName;
+	}
+
+	/**
+	 * Unregisters these statistics from the platform MBean server if they have been
+	 * registered.
+	 * 
+	 * @throws JMException
+	 *             if the MBean cannot be unregistered
+	 */
+	public synchronized void unregisterMBean() throws JMException {
+		if (objectName != null) {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+			objectName = null;
+		}
+	}
+}
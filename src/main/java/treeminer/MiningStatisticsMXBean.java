@@ -0,0 +1,122 @@
+package treeminer;
+
+import java.util.Map;
+
+/**
+ * The management interface of the {@link MiningStatistics} of a
+ * {@link TreeMiner}, so that a running search can be observed with any JMX
+ * client.
+ * 
+ * @author Helena Graf
+ *
+ */
+public interface MiningStatisticsMXBean {
+
+	/**
+	 * Get the phase the search is currently in.
+	 * 
+	 * @return the name of the current phase, or null if no search is running
+	 */
+	public String getCurrentPhase();
+
+	/**
+	 * Get the number of elements of the initial equivalence classes, each of which
+	 * is the root of a part of the search.
+	 * 
+	 * @return the number of initial elements
+	 */
+	public long getNumberOfInitialElements();
+
+	/**
+	 * Get the number of elements of the initial equivalence classes whose part of
+	 * the search is complete.
+	 * 
+	 * @return the number of explored initial elements
+	 */
+	public long getNumberOfExploredInitialElements();
+
+	/**
+	 * Get the number of equivalence classes that have been created by expanding an
+	 * element.
+	 * 
+	 * @return the number of explored equivalence classes
+	 */
+	public long getNumberOfExploredClasses();
+
+	/**
+	 * Get the number of frequent subtrees that have been extracted from the
+	 * equivalence classes.
+	 * 
+	 * @return the number of found patterns
+	 */
+	public long getNumberOfFoundPatterns();
+
+	/**
+	 * Get the number of candidate patterns by their number of nodes, i.e. the
+	 * number of scope list joins that produced a pattern of that size.
+	 * 
+	 * @return the number of candidates by pattern size
+	 */
+	public Map<Integer, Long> getNumberOfCandidatesBySize();
+
+	/**
+	 * Get the number of scope list joins that have been performed.
+	 * 
+	 * @return the number of attempted joins
+	 */
+	public long getNumberOfJoinsAttempted();
+
+	/**
+	 * Get the number of scope list joins whose result occurs in enough trees to be
+	 * added to an equivalence class.
+	 * 
+	 * @return the number of succeeded joins
+	 */
+	public long getNumberOfJoinsSucceeded();
+
+	/**
+	 * Get the number of scope list joins that have been skipped because the joined
+	 * lists do not share enough trees.
+	 * 
+	 * @return the number of pruned joins
+	 */
+	public long getNumberOfJoinsPruned();
+
+	/**
+	 * Get the maximal number of occurrences of a scope list resulting from a join.
+	 * 
+	 * @return the maximal scope list size
+	 */
+	public long getMaxScopeListSize();
+
+	/**
+	 * Get the total number of occurrences of the scope lists resulting from the
+	 * joins.
+	 * 
+	 * @return the total scope list size
+	 */
+	public long getTotalScopeListSize();
+
+	/**
+	 * Get the average number of occurrences of the scope lists resulting from the
+	 * joins.
+	 * 
+	 * @return the average scope list size, or 0 if no join has been performed
+	 */
+	public double getAverageScopeListSize();
+
+	/**
+	 * Get the number of bytes of scope lists that have been spilled to a file
+	 * because the heap memory budget has been exceeded.
+	 * 
+	 * @return the number of spilled bytes
+	 */
+	public long getNumberOfSpilledBytes();
+
+	/**
+	 * Get the time spent in each phase in milliseconds.
+	 * 
+	 * @return the time by the name of the phase
+	 */
+	public Map<String, Long> getTimeMillisByPhase();
+}
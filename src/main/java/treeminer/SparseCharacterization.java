@@ -0,0 +1,121 @@
+package treeminer;
+
+import java.util.Arrays;
+
+/**
+ * A sparse representation of which trees contain which patterns, stored in
+ * compressed sparse row (CSR) form: the patterns contained in tree i are the
+ * pattern indices at the positions rowOffsets[i] (inclusive) to
+ * rowOffsets[i+1] (exclusive), sorted in ascending order.
+ * 
+ * @author Helena Graf
+ *
+ */
+public class SparseCharacterization {
+
+	private int numPatterns;
+	private int[] rowOffsets;
+	private int[] patternIndices;
+
+	/**
+	 * Creates a new sparse characterization from the given CSR arrays.
+	 * 
+	 * @param numPatterns
+	 *            The number of patterns, i.e. columns
+	 * @param rowOffsets
+	 *            The offsets of the rows of the trees in the pattern indices, with
+	 *            one more entry than there are trees
+	 * @param patternIndices
+	 *            The indices of the patterns contained in the trees, row by row
+	 */
+	public SparseCharacterization(int numPatterns, int[] rowOffsets, int[] patternIndices) {
+		this.numPatterns = numPatterns;
+		this.rowOffsets = rowOffsets;
+		this.patternIndices = patternIndices;
+	}
+
+	/**
+	 * Get the number of trees, i.e. rows.
+	 * 
+	 * @return The number of trees
+	 */
+	public int getNumberOfTrees() {
+		return rowOffsets.length - 1;
+	}
+
+	/**
+	 * Get the number of patterns, i.e. columns.
+	 * 
+	 * @return The number of patterns
+	 */
+	public int getNumberOfPatterns() {
+		return numPatterns;
+	}
+
+	/**
+	 * Get the number of pattern occurrences, i.e. non-zero entries.
+	 * 
+	 * @return The number of pattern occurrences
+	 */
+	public int getNumberOfOccurrences() {
+		return patternIndices.length;
+	}
+
+	/**
+	 * Get the offsets of the rows of the trees in the pattern indices.
+	 * 
+	 * @return The row offsets, with one more entry than there are trees
+	 */
+	public int[] getRowOffsets() {
+		return rowOffsets;
+	}
+
+	/**
+	 * Get the indices of the patterns contained in the trees, row by row.
+	 * 
+	 * @return The pattern indices
+	 */
+	public int[] getPatternIndices() {
+		return patternIndices;
+	}
+
+	/**
+	 * Get the indices of the patterns that appear in the given tree.
+	 * 
+	 * @param tree
+	 *            The index of the tree
+	 * @return The indices of the patterns in ascending order
+	 */
+	public int[] getPatternsOfTree(int tree) {
+		return Arrays.copyOfRange(patternIndices, rowOffsets[tree], rowOffsets[tree + 1]);
+	}
+
+	/**
+	 * Get whether the given pattern appears in the given tree.
+	 * 
+	 * @param tree
+	 *            The index of the tree
+	 * @param pattern
+	 *            The index of the pattern
+	 * @return Whether the pattern appears in the tree
+	 */
+	public boolean contains(int tree, int pattern) {
+		return Arrays.binarySearch(patternIndices, rowOffsets[tree], rowOffsets[tree + 1], pattern) >= 0;
+	}
+
+	/**
+	 * Creates the dense matrix m of this characterization, where m[i][j]=1
+	 * indicates that pattern j appears in tree i, otherwise m[i][j]=0.
+	 * 
+	 * @return A matrix indicating pattern occurrences
+	 */
+	public double[][] toDenseMatrix() {
+		double[][] treesWithPatternOccurrences = new double[getNumberOfTrees()][numPatterns];
+		for (int tree = 0; tree < getNumberOfTrees(); tree++) {
+			for (int i = rowOffsets[tree]; i < rowOffsets[tree + 1]; i++) {
+				treesWithPatternOccurrences[tree][patternIndices[i]] = 1;
+			}
+		}
+		return treesWithPatternOccurrences;
+	}
+}
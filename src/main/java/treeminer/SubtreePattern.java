@@ -0,0 +1,273 @@
+package treeminer;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import treeminer.util.TreeRepresentationUtils;
+
+/**
+ * A pattern (subtree) that is represented by the label ids of its nodes in
+ * depth-first pre-order together with their depths, where the root has depth 0.
+ * The label ids are those of a {@link TreeDatabase}, which is also used to
+ * create the String representation of the pattern when it is needed.
+ *
+ * <p>
+ * A pattern is extended by attaching a new node to a node on its rightmost
+ * path. The new node becomes the last node in pre-order, so an extension only
+ * appends to the nodes of the pattern. Patterns are immutable, but the first
+ * extension of a pattern appends to the arrays of the pattern in place, so that
+ * extending a pattern along a search path takes amortized constant time. Each
+ * pattern also keeps the nodes on its rightmost path by their depth.
+ * </p>
+ *
+ * @author Helena Graf
+ *
+ */
+public class SubtreePattern {
+
+	private static final int DEFAULT_CAPACITY = 8;
+
+	private final TreeDatabase trees;
+	private final Nodes nodes;
+	private final int size;
+	private final int[] rightmostPath;
+
+	/** String representation of the pattern without the trailing move up tokens */
+	private String representationWithoutTrailingMoveUps;
+
+	private SubtreePattern(TreeDatabase trees, Nodes nodes, int size, int[] rightmostPath) {
+		this.trees = trees;
+		this.nodes = nodes;
+		this.size = size;
+		this.rightmostPath = rightmostPath;
+	}
+
+	/**
+	 * Creates the empty pattern for the labels of the given tree database.
+	 *
+	 * @param trees
+	 *            The tree database that gives the labels of the node label ids
+	 * @return The empty pattern
+	 */
+	public static SubtreePattern empty(TreeDatabase trees) {
+		return new SubtreePattern(trees, new Nodes(DEFAULT_CAPACITY), 0, new int[0]);
+	}
+
+	/**
+	 * Creates the pattern that results from attaching a node with the given label
+	 * to the given node of this pattern. The new node is attached as the last child
+	 * of that node.
+	 *
+	 * @param labelId
+	 *            The label id of the new node
+	 * @param attachedTo
+	 *            The node on the rightmost path of this pattern the new node is
+	 *            attached to, identified by its position in pre-order; ignored if
+	 *            this pattern is empty
+	 * @return The extended pattern
+	 */
+	public SubtreePattern extend(int labelId, int attachedTo) {
+		int depth = size == 0 ? 0 : getDepthOnRightmostPath(attachedTo) + 1;
+
+		// Append in place if no other extension of this pattern has done so yet
+		Nodes extendedNodes = nodes;
+		if (size == nodes.labelIds.length || !nodes.length.compareAndSet(size, size + 1)) {
+			extendedNodes = new Nodes(Math.max(DEFAULT_CAPACITY, 2 * size));
+			System.arraycopy(nodes.labelIds, 0, extendedNodes.labelIds, 0, size);
+			System.arraycopy(nodes.depths, 0, extendedNodes.depths, 0, size);
+			extendedNodes.length.set(size + 1);
+		}
+		extendedNodes.labelIds[size] = labelId;
+		extendedNodes.depths[size] = depth;
+
+		int[] extendedRightmostPath = Arrays.copyOf(rightmostPath, depth + 1);
+		extendedRightmostPath[depth] = size;
+		return new SubtreePattern(trees, extendedNodes, size + 1, extendedRightmostPath);
+	}
+
+	/**
+	 * Creates the pattern that results from attaching a node with the given label
+	 * to the given node of this pattern.
+	 *
+	 * @param label
+	 *            The label of the new node
+	 * @param attachedTo
+	 *            The node on the rightmost path of this pattern the new node is
+	 *            attached to, identified by its position in pre-order; ignored if
+	 *            this pattern is empty
+	 * @return The extended pattern
+	 * @see #extend(int, int)
+	 */
+	public SubtreePattern extend(String label, int attachedTo) {
+		return extend(trees.getLabelId(label), attachedTo);
+	}
+
+	private int getDepthOnRightmostPath(int node) {
+		// The nodes on the rightmost path are ascending in pre-order
+		int depth = Arrays.binarySearch(rightmostPath, node);
+		if (depth < 0) {
+			throw new IllegalArgumentException("Node " + node + " is not on the rightmost path of " + this);
+		}
+		return depth;
+	}
+
+	/**
+	 * Get the number of nodes of this pattern.
+	 *
+	 * @return The number of nodes
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Get the label id of the given node.
+	 *
+	 * @param node
+	 *            The node identified by its position in pre-order
+	 * @return The label id of the node
+	 */
+	public int getLabelId(int node) {
+		checkNode(node);
+		return nodes.labelIds[node];
+	}
+
+	/**
+	 * Get the depth of the given node, where the root has depth 0.
+	 *
+	 * @param node
+	 *            The node identified by its position in pre-order
+	 * @return The depth of the node
+	 */
+	public int getDepth(int node) {
+		checkNode(node);
+		return nodes.depths[node];
+	}
+
+	private void checkNode(int node) {
+		if (node < 0 || node >= size) {
+			throw new IndexOutOfBoundsException("Pattern " + this + " does not contain node " + node);
+		}
+	}
+
+	/**
+	 * Get the nodes on the rightmost path of this pattern, from the root to the
+	 * last node in pre-order. The node at depth d is at index d.
+	 *
+	 * @return The nodes on the rightmost path identified by their position in
+	 *         pre-order
+	 */
+	public int[] getRightmostPath() {
+		return Arrays.copyOf(rightmostPath, rightmostPath.length);
+	}
+
+	/**
+	 * Get the tree database that gives the labels of the label ids of this pattern.
+	 *
+	 * @return The tree database
+	 */
+	public TreeDatabase getTreeDatabase() {
+		return trees;
+	}
+
+	/**
+	 * Get the String representation of the pattern that results from attaching a
+	 * node with the given label to the given node of this pattern, without creating
+	 * that pattern.
+	 *
+	 * @param label
+	 *            The label of the new node
+	 * @param attachedTo
+	 *            The node on the rightmost path of this pattern the new node is
+	 *            attached to, identified by its position in pre-order; ignored if
+	 *            this pattern is empty
+	 * @return The String representation of the extended pattern
+	 */
+	public String toStringExtendedBy(String label, int attachedTo) {
+		if (size == 0) {
+			return label;
+		}
+
+		int depth = getDepthOnRightmostPath(attachedTo) + 1;
+		StringBuilder builder = new StringBuilder(getRepresentationWithoutTrailingMoveUps());
+		appendMoveUps(builder, rightmostPath.length - depth);
+		builder.append(TreeRepresentationUtils.TREE_NODE_SEPARATOR);
+		builder.append(label);
+		appendMoveUps(builder, depth);
+		return builder.toString();
+	}
+
+	private String getRepresentationWithoutTrailingMoveUps() {
+		if (representationWithoutTrailingMoveUps == null) {
+			StringBuilder builder = new StringBuilder();
+			for (int node = 0; node < size; node++) {
+				if (node > 0) {
+					appendMoveUps(builder, nodes.depths[node - 1] - nodes.depths[node] + 1);
+					builder.append(TreeRepresentationUtils.TREE_NODE_SEPARATOR);
+				}
+				builder.append(trees.getLabel(nodes.labelIds[node]));
+			}
+			representationWithoutTrailingMoveUps = builder.toString();
+		}
+		return representationWithoutTrailingMoveUps;
+	}
+
+	private static void appendMoveUps(StringBuilder builder, int numberOfMoveUps) {
+		for (int i = 0; i < numberOfMoveUps; i++) {
+			builder.append(TreeRepresentationUtils.TREE_NODE_SEPARATOR);
+			builder.append(TreeRepresentationUtils.MOVE_UP_TOKEN);
+		}
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		if (!(other instanceof SubtreePattern)) {
+			return false;
+		}
+		SubtreePattern otherPattern = (SubtreePattern) other;
+		if (size != otherPattern.size || trees != otherPattern.trees) {
+			return false;
+		}
+		for (int node = 0; node < size; node++) {
+			if (nodes.labelIds[node] != otherPattern.nodes.labelIds[node]
+					|| nodes.depths[node] != otherPattern.nodes.depths[node]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int hashCode() {
+		int result = 17;
+		for (int node = 0; node < size; node++) {
+			result = 31 * result + nodes.labelIds[node];
+			result = 31 * result + nodes.depths[node];
+		}
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder(getRepresentationWithoutTrailingMoveUps());
+		appendMoveUps(builder, rightmostPath.length - 1);
+		return builder.toString();
+	}
+
+	/**
+	 * The label ids and depths of the nodes of a pattern, which are shared by the
+	 * pattern with the first of its extensions. The length gives how many nodes
+	 * have been claimed by the patterns that share them.
+	 */
+	private static class Nodes {
+
+		private final int[] labelIds;
+		private final int[] depths;
+		private final AtomicInteger length = new AtomicInteger();
+
+		private Nodes(int capacity) {
+			labelIds = new int[capacity];
+			depths = new int[capacity];
+		}
+	}
+}
@@ -0,0 +1,259 @@
+package treeminer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import treeminer.util.TreeRepresentationUtils;
+
+/**
+ * A database (forest) of trees that is parsed only once from the String
+ * representation of its trees.
+ *
+ * <p>
+ * Labels are mapped to integer ids by a label dictionary. For each tree, the
+ * database keeps the flat encoding of its String representation (the label ids
+ * of the nodes with {@link #MOVE_UP_ID} in place of move up tokens), the label
+ * ids of its nodes in depth-first pre-order, the upper bound of the scope of
+ * each node and the parent of each node. The scope of node i of a tree is thus
+ * [i, upperBound[i]].
+ * </p>
+ *
+ * @author Helena Graf
+ *
+ */
+public class TreeDatabase {
+
+	/**
+	 * The id that represents a move up token in the encoding of a tree.
+	 */
+	public static final int MOVE_UP_ID = -1;
+
+	/**
+	 * The id that is returned for labels that do not occur in the database.
+	 */
+	public static final int UNKNOWN_LABEL_ID = -2;
+
+	/**
+	 * The parent that is given for the root of a tree.
+	 */
+	public static final int NO_PARENT = -1;
+
+	private List<String> labels = new ArrayList<>();
+	private HashMap<String, Integer> labelIds = new HashMap<>();
+
+	private int[][] encodings;
+	private int[][] nodeLabels;
+	private int[][] scopeUpperBounds;
+	private int[][] parents;
+
+	/**
+	 * Creates a new tree database by parsing the given trees.
+	 *
+	 * @param trees
+	 *            The String representations of the trees in the database
+	 */
+	public TreeDatabase(List<String> trees) {
+		encodings = new int[trees.size()][];
+		nodeLabels = new int[trees.size()][];
+		scopeUpperBounds = new int[trees.size()][];
+		parents = new int[trees.size()][];
+
+		for (int i = 0; i < trees.size(); i++) {
+			parseTree(i, trees.get(i));
+		}
+	}
+
+	private void parseTree(int treeIndex, String tree) {
+		String[] treeElements = tree.split(TreeRepresentationUtils.TREE_NODE_SEPARATOR);
+		int numNodes = (int) Math.ceil(treeElements.length / 2.0);
+
+		int[] encoding = new int[treeElements.length];
+		int[] labelsOfNodes = new int[numNodes];
+		int[] upperBounds = new int[numNodes];
+		int[] parentsOfNodes = new int[numNodes];
+
+		int atNode = -1;
+		int[] openScopes = new int[numNodes];
+		int numOpenScopes = 0;
+		for (int i = 0; i < treeElements.length; i++) {
+			if (!treeElements[i].equals(TreeRepresentationUtils.MOVE_UP_TOKEN)) {
+				// Start the scope of the current node
+				atNode++;
+				encoding[i] = getOrAddLabelId(treeElements[i]);
+				labelsOfNodes[atNode] = encoding[i];
+				parentsOfNodes[atNode] = numOpenScopes > 0 ? openScopes[numOpenScopes - 1] : NO_PARENT;
+				openScopes[numOpenScopes++] = atNode;
+			} else {
+				// End the scope of the most recently opened scope
+				encoding[i] = MOVE_UP_ID;
+				upperBounds[openScopes[--numOpenScopes]] = atNode;
+			}
+		}
+		// First node has to be closed separately because it doesn't have a moveUpToken
+		upperBounds[0] = numNodes - 1;
+
+		encodings[treeIndex] = encoding;
+		nodeLabels[treeIndex] = labelsOfNodes;
+		scopeUpperBounds[treeIndex] = upperBounds;
+		parents[treeIndex] = parentsOfNodes;
+	}
+
+	/**
+	 * Get the id of the given label, adding the label to the database if it does
+	 * not occur in it yet. Only for databases that are not shared with a search.
+	 *
+	 * @param label
+	 *            The label
+	 * @return The id of the label
+	 */
+	int getOrAddLabelId(String label) {
+		Integer id = labelIds.get(label);
+		if (id == null) {
+			id = labels.size();
+			labels.add(label);
+			labelIds.put(label, id);
+		}
+		return id;
+	}
+
+	/**
+	 * Get the number of trees in the database.
+	 *
+	 * @return The number of trees
+	 */
+	public int size() {
+		return encodings.length;
+	}
+
+	/**
+	 * Get the number of distinct labels in the database.
+	 *
+	 * @return The number of labels
+	 */
+	public int getNumberOfLabels() {
+		return labels.size();
+	}
+
+	/**
+	 * Get the label with the given id.
+	 *
+	 * @param labelId
+	 *            The id of the label
+	 * @return The label
+	 */
+	public String getLabel(int labelId) {
+		return labels.get(labelId);
+	}
+
+	/**
+	 * Get the id of the given label.
+	 *
+	 * @param label
+	 *            The label
+	 * @return The id of the label, or {@link #UNKNOWN_LABEL_ID} if the label does
+	 *         not occur in the database
+	 */
+	public int getLabelId(String label) {
+		Integer id = labelIds.get(label);
+		return id == null ? UNKNOWN_LABEL_ID : id;
+	}
+
+	/**
+	 * Get the number of nodes of the given tree.
+	 *
+	 * @param tree
+	 *            The index of the tree
+	 * @return The number of nodes in the tree
+	 */
+	public int getNumberOfNodes(int tree) {
+		return nodeLabels[tree].length;
+	}
+
+	/**
+	 * Get the encoding of the given tree, i.e. its String representation with
+	 * labels replaced by their ids and move up tokens replaced by
+	 * {@link #MOVE_UP_ID}.
+	 *
+	 * @param tree
+	 *            The index of the tree
+	 * @return The encoding of the tree
+	 */
+	public int[] getEncoding(int tree) {
+		return encodings[tree];
+	}
+
+	/**
+	 * Get the label ids of the nodes of the given tree in depth-first pre-order.
+	 *
+	 * @param tree
+	 *            The index of the tree
+	 * @return The label ids of the nodes
+	 */
+	public int[] getNodeLabels(int tree) {
+		return nodeLabels[tree];
+	}
+
+	/**
+	 * Get the upper bounds of the scopes of the nodes of the given tree, i.e. the
+	 * pre-order number of the rightmost node under each node.
+	 *
+	 * @param tree
+	 *            The index of the tree
+	 * @return The upper bounds of the node scopes
+	 */
+	public int[] getScopeUpperBounds(int tree) {
+		return scopeUpperBounds[tree];
+	}
+
+	/**
+	 * Get the parents of the nodes of the given tree, i.e. the pre-order number of
+	 * the parent of each node, or {@link #NO_PARENT} for the root.
+	 *
+	 * @param tree
+	 *            The index of the tree
+	 * @return The parents of the nodes
+	 */
+	public int[] getParents(int tree) {
+		return parents[tree];
+	}
+
+	/**
+	 * Encodes the given tree or subtree with the label ids of this database.
+	 *
+	 * @param tree
+	 *            The String representation of the tree
+	 * @return The encoding of the tree, in which labels that do not occur in the
+	 *         database are represented by {@link #UNKNOWN_LABEL_ID}
+	 */
+	public int[] encode(String tree) {
+		String[] treeElements = tree.split(TreeRepresentationUtils.TREE_NODE_SEPARATOR);
+		int[] encoding = new int[treeElements.length];
+		for (int i = 0; i < treeElements.length; i++) {
+			if (treeElements[i].equals(TreeRepresentationUtils.MOVE_UP_TOKEN)) {
+				encoding[i] = MOVE_UP_ID;
+			} else {
+				encoding[i] = getLabelId(treeElements[i]);
+			}
+		}
+		return encoding;
+	}
+
+	/**
+	 * Get the String representation of the given tree.
+	 *
+	 * @param tree
+	 *            The index of the tree
+	 * @return The String representation of the tree
+	 */
+	public String getTree(int tree) {
+		StringBuilder builder = new StringBuilder();
+		for (int element : encodings[tree]) {
+			if (builder.length() > 0) {
+				builder.append(TreeRepresentationUtils.TREE_NODE_SEPARATOR);
+			}
+			builder.append(element == MOVE_UP_ID ? TreeRepresentationUtils.MOVE_UP_TOKEN : labels.get(element));
+		}
+		return builder.toString();
+	}
+}
@@ -1,19 +1,34 @@
 package treeminer;
 
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
-import java.util.SortedMap;
-import java.util.TreeMap;
+import java.util.Map;
 import java.util.TreeSet;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
-import org.apache.commons.lang3.tuple.ImmutablePair;
-import org.apache.commons.lang3.tuple.Pair;
-
+import treeminer.MiningResult.StopReason;
+import treeminer.MiningStatistics.Phase;
 import treeminer.initialization.TreeMinerGeneralInitializer;
+import treeminer.jfr.EquivalenceClassExpandedEvent;
+import treeminer.jfr.FrequentTreesExtractedEvent;
+import treeminer.jfr.MiningEvents;
+import treeminer.jfr.MiningPhaseEvent;
 import treeminer.scopelists.elements.SimpleScopeListElement;
 import treeminer.scopelists.representation.AScopeListRepresentation;
+import treeminer.scopelists.representation.ScopeListSpillFile;
 import treeminer.util.ScopeListRepresentationUtils;
-import treeminer.util.TreeRepresentationUtils;
 
 /**
  * This class can be used to finds subtrees in a tree or forest with an
@@ -36,149 +51,828 @@ public class TreeMiner implements FrequentSubtreeFinder {
 	/** parameter: only find patterns that start at the root */
 	private boolean onlySearchForPatternsThatStartWithTheRoot = false;
 
+	/** parameter: only find induced patterns, and never expand embedded ones */
+	private boolean onlySearchForInducedSubtrees = false;
+
+	/** the equivalence classes of F2 by their prefix, used for induced in scope joins */
+	private Map<String, EquivalenceClass> f2ClassesByPrefix;
+
+	/** the consumer explored equivalence classes are passed to instead of keeping them */
+	private FrequentSubtreeConsumer patternConsumer;
+
+	/** whether explored classes are kept with released scope lists after being passed to the consumer */
+	private boolean keepExploredClasses;
+
+	/** parameter: release the scope lists of equivalence classes once they are explored */
+	private boolean releaseScopeListsOfFinishedClasses = false;
+
+	/** parameter: number of threads that find and explore equivalence classes */
+	private int parallelism = 1;
+
+	/** parameter: used heap memory after garbage collections above which waiting classes are spilled */
+	private long heapMemoryBudget = Long.MAX_VALUE;
+
+	/** parameter: the minimal number of occurrences of a scope list that is spilled */
+	private int minSpilledScopeListSize = 1024;
+
+	/** the equivalence classes of F2 in the order in which they are expanded */
+	private List<EquivalenceClass> f2Classes;
+
+	/** watches the used heap memory during the search if there is a heap memory budget */
+	private HeapMemoryMonitor heapMemoryMonitor;
+
+	/** the file scope lists are spilled to, created when it is first needed */
+	private ScopeListSpillFile spillFile;
+
+	/** the statistics of the current or last search */
+	private final MiningStatistics statistics = new MiningStatistics();
+
+	/** the budget of the current search, or null if it is unlimited */
+	private MiningBudget budget;
+
+	/** the token the current search can be cancelled with, or null if there is none */
+	private CancellationToken cancellationToken;
+
+	/** the listener that is notified of the progress of the current search, or null if there is none */
+	private MiningProgressListener progressListener;
+
+	/** the number of returned patterns of the current search, only counted if the number of patterns is limited */
+	private final AtomicLong numberOfAcceptedPatterns = new AtomicLong();
+
+	/** the reason why the current search has been stopped, or null if it has not been stopped */
+	private final AtomicReference<StopReason> stopReason = new AtomicReference<>();
+
 	@Override
 	public List<String> findFrequentSubtrees(List<String> trees, int minSupport) {
+		return findFrequentSubtrees(new TreeDatabase(trees), minSupport);
+	}
+
+	@Override
+	public List<String> findFrequentSubtrees(TreeDatabase trees, int minSupport) {
+		TreeSet<String> foundFrequentTrees = new TreeSet<>();
+		try {
+			if (releaseScopeListsOfFinishedClasses) {
+				FrequentSubtreeConsumer collector = synchronizeIfParallel(
+						(subtree, support) -> foundFrequentTrees.add(subtree));
+				findEquivalenceClasses(trees, minSupport, collector, true);
+
+				// The initial equivalence classes are needed until all classes are explored
+				statistics.setCurrentPhase(Phase.INDUCED_FILTERING);
+				extractRemainingClasses(foundClass -> !foundClass.hasReleasedScopeLists(), foundClass -> {
+					extractNonEmbeddedFrequentTrees(foundClass, trees, collector);
+					foundClass.releaseScopeLists();
+				});
+				patternConsumer = null;
+			} else {
+				findEquivalenceClasses(trees, minSupport, null, false);
+				statistics.setCurrentPhase(Phase.INDUCED_FILTERING);
+				extractRemainingClasses(foundClass -> true,
+						foundClass -> foundFrequentTrees.addAll(extractNonEmbeddedFrequentTrees(foundClass, trees)));
+			}
+		} finally {
+			statistics.setCurrentPhase(null);
+		}
+		numFoundPatterns = foundFrequentTrees.size();
+
+		return new ArrayList<>(foundFrequentTrees);
+	}
+
+	@Override
+	public void findFrequentSubtrees(List<String> trees, int minSupport, FrequentSubtreeConsumer consumer) {
+		findFrequentSubtrees(new TreeDatabase(trees), minSupport, consumer);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>
+	 * An equivalence class is finalized once all classes below it have been found,
+	 * so only the classes on the current search paths and the initial classes are
+	 * kept in memory. With a parallelism greater than 1, the consumer is called by
+	 * one thread at a time.
+	 * </p>
+	 */
+	@Override
+	public void findFrequentSubtrees(TreeDatabase trees, int minSupport, FrequentSubtreeConsumer consumer) {
+		FrequentSubtreeConsumer synchronizedConsumer = synchronizeIfParallel(consumer);
+
+		try {
+			findEquivalenceClasses(trees, minSupport, synchronizedConsumer, false);
+
+			// Only the initial equivalence classes have been kept
+			statistics.setCurrentPhase(Phase.INDUCED_FILTERING);
+			foundEquivalenceClasses
+					.forEach(foundClass -> extractNonEmbeddedFrequentTrees(foundClass, trees, synchronizedConsumer));
+		} finally {
+			foundEquivalenceClasses = new ArrayList<>();
+			numFoundPatterns = 0;
+			patternConsumer = null;
+			statistics.setCurrentPhase(null);
+		}
+	}
+
+	/**
+	 * Finds the frequent subtrees in the given database of trees within the given
+	 * budget. If the budget is exceeded or the search is cancelled, the search
+	 * stops, and the frequent subtrees found until then are returned as an
+	 * incomplete result, see {@link MiningBudget}. The found equivalence classes
+	 * and the characterizations then also only contain these subtrees.
+	 * 
+	 * @param trees
+	 *            The given database of trees which is searched for frequent
+	 *            subtrees
+	 * @param minSupport
+	 *            The minimum support a subtree must have to be considered frequent
+	 * @param budget
+	 *            The limits of the search, or null if it is unlimited
+	 * @param cancellationToken
+	 *            The token the search can be cancelled with, or null if it cannot
+	 *            be cancelled
+	 * @param progressListener
+	 *            The listener that is notified of the progress of the search, one
+	 *            thread at a time, or null if none shall be notified
+	 * @return The found frequent subtrees and whether they are complete
+	 */
+	public MiningResult findFrequentSubtrees(TreeDatabase trees, int minSupport, MiningBudget budget,
+			CancellationToken cancellationToken, MiningProgressListener progressListener) {
+		this.budget = budget != null ? budget : new MiningBudget();
+		this.cancellationToken = cancellationToken;
+		this.progressListener = progressListener;
+
+		try {
+			List<String> foundFrequentTrees = findFrequentSubtrees(trees, minSupport);
+			return new MiningResult(foundFrequentTrees, stopReason.get());
+		} finally {
+			this.budget = null;
+			this.cancellationToken = null;
+			this.progressListener = null;
+		}
+	}
+
+	/**
+	 * Starts a search for the frequent subtrees in the given database of trees
+	 * within the given budget in a new thread, see
+	 * {@link #findFrequentSubtrees(TreeDatabase, int, MiningBudget, CancellationToken, MiningProgressListener)}.
+	 * 
+	 * @param trees
+	 *            The given database of trees which is searched for frequent
+	 *            subtrees
+	 * @param minSupport
+	 *            The minimum support a subtree must have to be considered frequent
+	 * @param budget
+	 *            The limits of the search, or null if it is unlimited
+	 * @param cancellationToken
+	 *            The token the search can be cancelled with, or null if it can
+	 *            only be cancelled through the future
+	 * @param progressListener
+	 *            The listener that is notified of the progress of the search, or
+	 *            null if none shall be notified
+	 * @return The future result of the search
+	 */
+	public CompletableFuture<MiningResult> findFrequentSubtreesAsync(TreeDatabase trees, int minSupport,
+			MiningBudget budget, CancellationToken cancellationToken, MiningProgressListener progressListener) {
+		// A search can run for hours, so it gets its own thread rather than one of a
+		// shared pool
+		return findFrequentSubtreesAsync(trees, minSupport, budget, cancellationToken, progressListener,
+				runnable -> new Thread(runnable, "TreeMiner").start());
+	}
+
+	/**
+	 * Starts a search for the frequent subtrees in the given database of trees
+	 * within the given budget with the given executor, see
+	 * {@link #findFrequentSubtrees(TreeDatabase, int, MiningBudget, CancellationToken, MiningProgressListener)}.
+	 * 
+	 * <p>
+	 * If the cancellation token is cancelled, the future is completed with the
+	 * incomplete result. If the future itself is cancelled, the search is stopped
+	 * as well, but its result is discarded. This miner must not be used for
+	 * another search until the future is done.
+	 * </p>
+	 * 
+	 * @param trees
+	 *            The given database of trees which is searched for frequent
+	 *            subtrees
+	 * @param minSupport
+	 *            The minimum support a subtree must have to be considered frequent
+	 * @param budget
+	 *            The limits of the search, or null if it is unlimited
+	 * @param cancellationToken
+	 *            The token the search can be cancelled with, or null if it can
+	 *            only be cancelled through the future
+	 * @param progressListener
+	 *            The listener that is notified of the progress of the search, or
+	 *            null if none shall be notified
+	 * @param executor
+	 *            The executor that runs the search
+	 * @return The future result of the search
+	 */
+	public CompletableFuture<MiningResult> findFrequentSubtreesAsync(TreeDatabase trees, int minSupport,
+			MiningBudget budget, CancellationToken cancellationToken, MiningProgressListener progressListener,
+			Executor executor) {
+		CancellationToken token = cancellationToken != null ? cancellationToken : new CancellationToken();
+		CompletableFuture<MiningResult> future = CompletableFuture
+				.supplyAsync(() -> findFrequentSubtrees(trees, minSupport, budget, token, progressListener), executor);
+		future.whenComplete((result, exception) -> {
+			if (future.isCancelled()) {
+				token.cancel();
+			}
+		});
+		return future;
+	}
+
+	private FrequentSubtreeConsumer synchronizeIfParallel(FrequentSubtreeConsumer consumer) {
+		return parallelism > 1 ? (subtree, support) -> {
+			synchronized (consumer) {
+				consumer.accept(subtree, support);
+			}
+		} : consumer;
+	}
+
+	/**
+	 * Extracts the frequent subtrees of the found equivalence classes that have not
+	 * been extracted during the search, in their order. If the search is stopped
+	 * during the extraction, the classes that have not been extracted are removed
+	 * from the found classes, so that the characterizations only contain the
+	 * returned subtrees. A search that has already been stopped before extracts
+	 * all of the classes it has found.
+	 */
+	private void extractRemainingClasses(Predicate<EquivalenceClass> notExtracted,
+			Consumer<EquivalenceClass> extract) {
+		boolean stoppedBefore = stopReason.get() != null;
+		List<EquivalenceClass> extractedClasses = new ArrayList<>(foundEquivalenceClasses.size());
+		for (EquivalenceClass foundClass : foundEquivalenceClasses) {
+			if (!notExtracted.test(foundClass)) {
+				extractedClasses.add(foundClass);
+			} else if (stoppedBefore || !shouldStopSearch()) {
+				extract.accept(foundClass);
+				extractedClasses.add(foundClass);
+			} else {
+				foundClass.releaseScopeLists();
+			}
+		}
+		foundEquivalenceClasses = extractedClasses;
+	}
+
+	/**
+	 * Finds the frequent equivalence classes. The initial classes are added to the
+	 * found equivalence classes. If a pattern consumer is given, the other classes
+	 * are finalized and passed to it as soon as they have been explored, and only
+	 * kept with their scope lists released if explored classes shall be kept.
+	 * Otherwise they are added to the found equivalence classes as well.
+	 */
+	private void findEquivalenceClasses(TreeDatabase trees, int minSupport, FrequentSubtreeConsumer patternConsumer,
+			boolean keepExploredClasses) {
 		this.minSupport = minSupport;
 		this.numTrees = trees.size();
 		this.foundEquivalenceClasses = new ArrayList<>();
+		this.patternConsumer = patternConsumer;
+		this.keepExploredClasses = keepExploredClasses;
+		statistics.reset();
+		stopReason.set(null);
+		numberOfAcceptedPatterns.set(0);
+		// Classes of the last search whose scope lists are still spilled are no longer needed
+		closeSpillFile();
 
-		EquivalenceClass f1 = TreeMinerGeneralInitializer.findFrequentF1Subtrees(trees, minSupport);
+		statistics.setCurrentPhase(Phase.F1);
+		long start = System.nanoTime();
+		MiningPhaseEvent phaseEvent = MiningEvents.beginPhase();
+		EquivalenceClass f1 = TreeMinerGeneralInitializer.findFrequentF1Subtrees(trees, minSupport, parallelism,
+				this::shouldStopSearch);
+		boolean[] isRootLabel = new boolean[trees.getNumberOfLabels()];
 		if (onlySearchForPatternsThatStartWithTheRoot) {
-			EquivalenceClass newF1 = new EquivalenceClass(f1.getPrefix());
+			for (int i = 0; i < trees.size(); i++) {
+				isRootLabel[trees.getNodeLabels(i)[0]] = true;
+			}
+
+			EquivalenceClass newF1 = new EquivalenceClass(f1.getPrefixPattern());
 			// Only add those elements of f1 that are roots themselves
-			f1.getElementList().forEach(pair -> {
-				for (String tree : trees) {
-					if (tree.split(TreeRepresentationUtils.TREE_NODE_SEPARATOR)[0].equals(pair.getLeft())) {
-						newF1.addElement(pair);
-						break;
-					}
+			for (int element = 0; element < f1.getNumberOfElements(); element++) {
+				if (isRootLabel[f1.getElementLabelId(element)]) {
+					newF1.addElement(f1.getElementLabelId(element), f1.getElementPosition(element));
 				}
-			});
+			}
 			foundEquivalenceClasses.add(newF1);
 		} else {
 			foundEquivalenceClasses.add(f1);
 		}
+		statistics.addTimeSince(Phase.F1, start);
+		MiningEvents.commitPhase(phaseEvent, Phase.F1);
+		if (stopReason.get() != null) {
+			discardInitialClasses();
+			return;
+		}
 
-		List<EquivalenceClass> f2Classes = TreeMinerGeneralInitializer.findFrequentF2Subtrees(f1, trees,
-				countMultipleOccurrences, minSupport);
+		statistics.setCurrentPhase(Phase.F2);
+		start = System.nanoTime();
+		phaseEvent = MiningEvents.beginPhase();
+		f2Classes = TreeMinerGeneralInitializer.findFrequentF2Subtrees(f1, trees, countMultipleOccurrences, minSupport,
+				parallelism, onlySearchForInducedSubtrees, this::shouldStopSearch);
+		statistics.addTimeSince(Phase.F2, start);
+		MiningEvents.commitPhase(phaseEvent, Phase.F2);
+		if (stopReason.get() != null) {
+			discardInitialClasses();
+			return;
+		}
+		statistics.setNumberOfInitialElements(
+				f2Classes.stream().mapToLong(EquivalenceClass::getNumberOfElements).sum());
+		f2ClassesByPrefix = new HashMap<>();
+		f2Classes.forEach(equivalenceClass -> f2ClassesByPrefix.put(equivalenceClass.getPrefix(), equivalenceClass));
 
 		if (onlySearchForPatternsThatStartWithTheRoot) {
 			// Add the scopes to f1
-			foundEquivalenceClasses.get(0).getElementList().forEach(pair -> foundEquivalenceClasses.get(0)
-					.addScopeListFor(pair.getLeft(), f1.getScopeListFor(pair.getLeft())));
+			EquivalenceClass newF1 = foundEquivalenceClasses.get(0);
+			for (int element = 0; element < newF1.getNumberOfElements(); element++) {
+				newF1.setScopeList(element, f1.getScopeListFor(newF1.getElementLabel(element)));
+			}
 
 			// Add the correct f2 class
 			f2Classes.forEach(equivalenceClass -> {
-				for (String tree : trees) {
-					if (tree.split(TreeRepresentationUtils.TREE_NODE_SEPARATOR)[0]
-							.equals(equivalenceClass.getPrefix())) {
-						foundEquivalenceClasses.add(equivalenceClass);
-						break;
-					}
+				if (isRootLabel[equivalenceClass.getPrefixPattern().getLabelId(0)]) {
+					foundEquivalenceClasses.add(equivalenceClass);
 				}
 			});
 		} else {
 			foundEquivalenceClasses.addAll(f2Classes);
 		}
+		if (isNumberOfPatternsLimited()) {
+			// The initial patterns are returned first, and none are dropped unless they exceed the budget themselves
+			foundEquivalenceClasses.forEach(initialClass -> initialClass
+					.retainElements(element -> acceptPattern(initialClass.getScopeList(element))));
+		}
 
-		f2Classes.forEach(elem -> findFrequentSubtrees(elem, trees));
+		statistics.setCurrentPhase(Phase.SEARCH);
+		start = System.nanoTime();
+		MiningPhaseEvent searchEvent = MiningEvents.beginPhase();
+		ForkJoinPool pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+		heapMemoryMonitor = heapMemoryBudget == Long.MAX_VALUE ? null : new HeapMemoryMonitor(heapMemoryBudget);
+		try {
+			expandEquivalenceClasses(f2Classes, trees, pool);
+		} finally {
+			if (pool != null) {
+				pool.shutdown();
+			}
+			heapMemoryMonitor = null;
+			// Classes that have not been expanded because the search has been stopped
+			// are read from the file when their patterns are extracted
+			if (spillFile != null && !spillFile.hasSpilledScopeLists()) {
+				closeSpillFile();
+			}
+			statistics.addTimeSince(Phase.SEARCH, start);
+			MiningEvents.commitPhase(searchEvent, Phase.SEARCH);
+		}
+	}
 
-		TreeSet<String> foundFrequentTrees = new TreeSet<>();
-		foundEquivalenceClasses
-				.forEach(foundClass -> foundFrequentTrees.addAll(extractNonEmbeddedFrequentTrees(foundClass, trees)));
-		numFoundPatterns = foundFrequentTrees.size();
+	/**
+	 * Discards the initial equivalence classes of a search that has been stopped
+	 * during the initialization, since the trees that have been skipped may
+	 * contain occurrences of any of their patterns.
+	 */
+	private void discardInitialClasses() {
+		foundEquivalenceClasses = new ArrayList<>();
+		f2Classes = new ArrayList<>();
+		f2ClassesByPrefix = new HashMap<>();
+	}
 
-		return new ArrayList<>(foundFrequentTrees);
+	private void expandEquivalenceClasses(List<EquivalenceClass> equivalenceClasses, TreeDatabase trees,
+			ForkJoinPool pool) {
+		if (pool != null) {
+			foundEquivalenceClasses.addAll(pool.invoke(new ExpandEquivalenceClassesTask(equivalenceClasses, trees)));
+		} else {
+			equivalenceClasses.forEach(elem -> findFrequentSubtrees(elem, trees));
+		}
+	}
+
+	/**
+	 * Spills the scope lists of the classes of F2 that are waiting to be expanded
+	 * if the heap memory used after the last garbage collection exceeds the
+	 * budget, starting with the class that is expanded last, until the spilled
+	 * bytes make up for the excess. Classes that are being expanded are not
+	 * spilled, and neither are classes whose elements have been joined as the
+	 * children of x in the search for induced subtrees. Only one of the threads
+	 * that check the budget after a collection spills classes, the others continue
+	 * right away.
+	 */
+	private void spillWaitingClassesIfOverBudget() {
+		HeapMemoryMonitor monitor = heapMemoryMonitor;
+		if (monitor == null) {
+			return;
+		}
+		long excess = monitor.takeExcess();
+		for (int waiting = f2Classes.size() - 1; waiting >= 0 && excess > 0; waiting--) {
+			long spilledBytes = f2Classes.get(waiting).spillScopeLists(getSpillFile(), minSpilledScopeListSize);
+			statistics.scopeListsSpilled(spilledBytes);
+			excess -= spilledBytes;
+		}
+	}
+
+	private synchronized ScopeListSpillFile getSpillFile() {
+		if (spillFile == null) {
+			spillFile = new ScopeListSpillFile();
+		}
+		return spillFile;
+	}
+
+	private synchronized void closeSpillFile() {
+		if (spillFile != null) {
+			spillFile.close();
+			spillFile = null;
+		}
 	}
 
-	private void findFrequentSubtrees(EquivalenceClass equivalenceClass, List<String> trees) {
+	private void findFrequentSubtrees(EquivalenceClass equivalenceClass, TreeDatabase trees) {
 		// For (x, i) element P
-		for (Pair<String, Integer> XIelement : equivalenceClass.getElementList()) {
-			String newPrefix = TreeRepresentationUtils.addNodeToTree(equivalenceClass.getPrefix(), XIelement);
-			if (!ScopeListRepresentationUtils.prefixOccursDirectly(equivalenceClass, trees, newPrefix)) {
-				continue;
+		for (int xIElement = 0; xIElement < equivalenceClass.getNumberOfElements(); xIElement++) {
+			if (shouldStopSearch()) {
+				return;
+			}
+			EquivalenceClass pXi = expandElement(equivalenceClass, xIElement, trees);
+			if (pXi != null) {
+				if (patternConsumer == null || keepExploredClasses) {
+					foundEquivalenceClasses.add(pXi);
+				}
+				findFrequentSubtrees(pXi, trees);
+				if (patternConsumer != null) {
+					finishExploredClass(pXi, trees);
+				}
 			}
+			if (isInitialClass(equivalenceClass)) {
+				initialElementExplored();
+			}
+		}
+	}
 
-			EquivalenceClass pXi = new EquivalenceClass(newPrefix);
-			findMembersOfEquivalenceClass(equivalenceClass, XIelement, pXi);
+	private static boolean isInitialClass(EquivalenceClass equivalenceClass) {
+		// The prefixes of the equivalence classes of F2 are single nodes
+		return equivalenceClass.getPrefixPattern().size() == 1;
+	}
 
-			if (!pXi.getElementList().isEmpty()) {
-				System.out.println("Find Members of Class");
-				System.out.println(pXi);
-				foundEquivalenceClasses.add(pXi);
-				findFrequentSubtrees(pXi, trees);
+	private void initialElementExplored() {
+		// The part of the search below the element is not complete if the search has
+		// been stopped
+		if (stopReason.get() != null) {
+			return;
+		}
+		statistics.initialElementExplored();
+		if (progressListener != null) {
+			synchronized (progressListener) {
+				progressListener.progress(statistics);
+			}
+		}
+	}
+
+	private boolean isNumberOfPatternsLimited() {
+		return budget != null && budget.getMaxPatterns() != Long.MAX_VALUE;
+	}
+
+	/**
+	 * Counts the given frequent pattern against the maximal number of patterns if
+	 * it is returned by the search, i.e. if it occurs directly in enough trees, and
+	 * stops the search if it exceeds the budget. Patterns that only occur embedded
+	 * are not counted.
+	 * 
+	 * @return whether the pattern is kept, which it is not if it exceeds the budget
+	 */
+	private boolean acceptPattern(AScopeListRepresentation<? extends SimpleScopeListElement> scopeList) {
+		if (!onlySearchForInducedSubtrees && scopeList.getNumberOfInducedTrees() < minSupport) {
+			return true;
+		}
+		if (numberOfAcceptedPatterns.incrementAndGet() <= budget.getMaxPatterns()) {
+			return true;
+		}
+		stopReason.compareAndSet(null, StopReason.MAX_PATTERNS);
+		return false;
+	}
+
+	/**
+	 * Checks whether the search shall be stopped because its budget is exceeded or
+	 * it has been cancelled, and remembers the reason of the first check that
+	 * stops it.
+	 */
+	private boolean shouldStopSearch() {
+		if (stopReason.get() != null) {
+			return true;
+		}
+		if (budget == null) {
+			return false;
+		}
+
+		StopReason reason = getCancellationOrDeadline(budget, cancellationToken);
+		if (reason == null && statistics.getTotalScopeListSize() > budget.getMaxJoinedScopeListElements()) {
+			reason = StopReason.MAX_JOINED_SCOPE_LIST_ELEMENTS;
+		}
+		if (reason == null) {
+			return false;
+		}
+		stopReason.compareAndSet(null, reason);
+		return true;
+	}
+
+	/**
+	 * Checks whether the given token has been cancelled or the deadline of the
+	 * given budget has passed.
+	 * 
+	 * @return the reason to stop, or null if there is none
+	 */
+	private static StopReason getCancellationOrDeadline(MiningBudget budget, CancellationToken cancellationToken) {
+		if (cancellationToken != null && cancellationToken.isCancelled()) {
+			return StopReason.CANCELLED;
+		} else if (budget != null && budget.getDeadline() != null && !Instant.now().isBefore(budget.getDeadline())) {
+			return StopReason.DEADLINE;
+		}
+		return null;
+	}
+
+	/**
+	 * Passes the patterns of the given explored class to the pattern consumer, and
+	 * releases its scope lists if the class is kept, since no class below it needs
+	 * them anymore.
+	 */
+	private void finishExploredClass(EquivalenceClass pXi, TreeDatabase trees) {
+		extractNonEmbeddedFrequentTrees(pXi, trees, patternConsumer);
+		if (keepExploredClasses) {
+			pXi.releaseScopeLists();
+		}
+	}
+
+	/**
+	 * Creates the equivalence class that has the prefix of the given class extended
+	 * by the given element as its prefix.
+	 * 
+	 * @return the new equivalence class, or null if it has no elements
+	 */
+	private EquivalenceClass expandElement(EquivalenceClass equivalenceClass, int xIElement, TreeDatabase trees) {
+		if (isInitialClass(equivalenceClass)) {
+			// Only the initial classes are spilled, and they stay in memory once they are expanded
+			equivalenceClass.loadSpilledScopeLists();
+		}
+		spillWaitingClassesIfOverBudget();
+		EquivalenceClassExpandedEvent event = MiningEvents.beginExpansion();
+		SubtreePattern newPrefix = equivalenceClass.getPrefixPattern().extend(
+				equivalenceClass.getElementLabelId(xIElement), equivalenceClass.getElementPosition(xIElement));
+		// All occurrences are induced if only induced subtrees are searched for
+		if (!onlySearchForInducedSubtrees
+				&& !ScopeListRepresentationUtils.prefixOccursDirectly(equivalenceClass, xIElement)) {
+			return null;
+		}
+
+		EquivalenceClass pXi = new EquivalenceClass(newPrefix);
+		if (onlySearchForInducedSubtrees) {
+			findInducedMembersOfEquivalenceClass(equivalenceClass, xIElement, pXi, trees);
+		} else {
+			findMembersOfEquivalenceClass(equivalenceClass, xIElement, pXi, trees);
+		}
+		MiningEvents.commitExpansion(event, newPrefix, pXi.getNumberOfElements());
+
+		if (pXi.getNumberOfElements() == 0) {
+			return null;
+		}
+		statistics.classExplored();
+		return pXi;
+	}
+
+	/**
+	 * Expands the elements of the given equivalence classes in parallel. The found
+	 * equivalence classes are returned in the same order in which the serial search
+	 * finds them.
+	 */
+	private class ExpandEquivalenceClassesTask extends RecursiveTask<List<EquivalenceClass>> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final transient List<EquivalenceClass> equivalenceClasses;
+		private final transient TreeDatabase trees;
+
+		private ExpandEquivalenceClassesTask(List<EquivalenceClass> equivalenceClasses, TreeDatabase trees) {
+			this.equivalenceClasses = equivalenceClasses;
+			this.trees = trees;
+		}
+
+		@Override
+		protected List<EquivalenceClass> compute() {
+			List<ExpandElementTask> tasks = new ArrayList<>();
+			equivalenceClasses.forEach(equivalenceClass -> {
+				for (int element = 0; element < equivalenceClass.getNumberOfElements(); element++) {
+					tasks.add(new ExpandElementTask(equivalenceClass, element, trees));
+				}
+			});
+			return invokeAndCollect(tasks);
+		}
+	}
+
+	/**
+	 * Expands one element of an equivalence class, and then the elements of the
+	 * resulting class in parallel. Returns the resulting class followed by the
+	 * classes found below it, unless the classes are passed to a pattern consumer
+	 * and not kept.
+	 */
+	private class ExpandElementTask extends RecursiveTask<List<EquivalenceClass>> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final transient EquivalenceClass equivalenceClass;
+		private final int xIElement;
+		private final transient TreeDatabase trees;
+
+		private ExpandElementTask(EquivalenceClass equivalenceClass, int xIElement, TreeDatabase trees) {
+			this.equivalenceClass = equivalenceClass;
+			this.xIElement = xIElement;
+			this.trees = trees;
+		}
+
+		@Override
+		protected List<EquivalenceClass> compute() {
+			List<EquivalenceClass> found = expand();
+			if (isInitialClass(equivalenceClass)) {
+				initialElementExplored();
+			}
+			return found;
+		}
+
+		private List<EquivalenceClass> expand() {
+			if (shouldStopSearch()) {
+				return new ArrayList<>();
+			}
+			EquivalenceClass pXi = expandElement(equivalenceClass, xIElement, trees);
+			if (pXi == null) {
+				return new ArrayList<>();
 			}
+
+			List<ExpandElementTask> tasks = new ArrayList<>();
+			for (int element = 0; element < pXi.getNumberOfElements(); element++) {
+				tasks.add(new ExpandElementTask(pXi, element, trees));
+			}
+			List<EquivalenceClass> found = new ArrayList<>();
+			if (patternConsumer == null || keepExploredClasses) {
+				found.add(pXi);
+			}
+			found.addAll(invokeAndCollect(tasks));
+			if (patternConsumer != null) {
+				finishExploredClass(pXi, trees);
+			}
+			return found;
 		}
 	}
 
-	private void findMembersOfEquivalenceClass(EquivalenceClass equivalenceClass, Pair<String, Integer> xIElement,
-			EquivalenceClass pXi) {
+	private static List<EquivalenceClass> invokeAndCollect(
+			List<? extends RecursiveTask<List<EquivalenceClass>>> tasks) {
+		ForkJoinTask.invokeAll(tasks);
+		List<EquivalenceClass> found = new ArrayList<>();
+		tasks.forEach(task -> found.addAll(task.join()));
+		return found;
+	}
+
+	private void findMembersOfEquivalenceClass(EquivalenceClass equivalenceClass, int xIElement,
+			EquivalenceClass pXi, TreeDatabase trees) {
+		AScopeListRepresentation<? extends SimpleScopeListElement> xScopeList = equivalenceClass
+				.getScopeList(xIElement);
+		if (xScopeList == null) {
+			return;
+		}
+
+		int i = equivalenceClass.getElementPosition(xIElement);
+		int xDepth = equivalenceClass.getPrefixPattern().getDepth(i) + 1;
 		// For (y, j) element P
-		for (Pair<String, Integer> YJElement : equivalenceClass.getElementList()) {
+		for (int yJElement = 0; yJElement < equivalenceClass.getNumberOfElements(); yJElement++) {
+			int j = equivalenceClass.getElementPosition(yJElement);
+			// Skip the joins if x and y are not found in enough common trees
+			if (!xScopeList.sharesTreesWith(equivalenceClass.getScopeList(yJElement), minSupport)) {
+				statistics.joinsPruned(i == j ? 2 : i > j ? 1 : 0);
+				continue;
+			}
 			// i = j case, both elements are attached to the same node
-			if (xIElement.getRight() == YJElement.getRight()) {
-				checkCase1(equivalenceClass, xIElement, pXi, YJElement);
+			if (i == j) {
+				checkCase1(equivalenceClass, xScopeList, pXi, yJElement, xDepth, trees);
 				// i > j case, j is attached to a higher node
-			} else if (xIElement.getRight() > YJElement.getRight()) {
-				checkCase2(equivalenceClass, xIElement, pXi, YJElement);
+			} else if (i > j) {
+				checkCase2(equivalenceClass, xScopeList, pXi, yJElement, xDepth, trees);
 				// i < j case - nothing more can be added so we skip it
 			}
 		}
 	}
 
-	private void checkCase1(EquivalenceClass equivalenceClass, Pair<String, Integer> xIElement, EquivalenceClass pXi,
-			Pair<String, Integer> yJElement) {
+	private void checkCase1(EquivalenceClass equivalenceClass,
+			AScopeListRepresentation<? extends SimpleScopeListElement> xScopeList, EquivalenceClass pXi,
+			int yJElement, int xDepth, TreeDatabase trees) {
 		// Test (y, n_i)
-		AScopeListRepresentation<? extends SimpleScopeListElement> xScopeList = equivalenceClass
-				.getScopeListFor(TreeRepresentationUtils.addNodeToTree(equivalenceClass.getPrefix(), xIElement));
 		AScopeListRepresentation<? extends SimpleScopeListElement> yScopeList = equivalenceClass
-				.getScopeListFor(TreeRepresentationUtils.addNodeToTree(equivalenceClass.getPrefix(), yJElement));
-		if (xScopeList == null) {
-			return;
-		}
+				.getScopeList(yJElement);
 
 		AScopeListRepresentation<? extends SimpleScopeListElement> newScopeList = ScopeListRepresentationUtils
-				.doInScopeJoin(xScopeList, yScopeList, countMultipleOccurrences);
+				.doInScopeJoin(xScopeList, yScopeList, trees, countMultipleOccurrences);
 
-		if (newScopeList.size() >= minSupport) {
-			int numberOfChildrenOfParentNode = TreeRepresentationUtils
-					.findNumberOfChildrenOfNode(equivalenceClass.getPrefix(), xIElement.getRight());
-			int newXPosition = xIElement.getRight() + 1 + numberOfChildrenOfParentNode;
-			Pair<String, Integer> newElement = new ImmutablePair<>(yJElement.getLeft(), newXPosition);
-			pXi.addElement(newElement);
-			pXi.addScopeListFor(TreeRepresentationUtils.addNodeToTree(pXi.getPrefix(), newElement), newScopeList);
+		if (isFrequentCandidate(equivalenceClass, newScopeList)) {
+			// x is the last node of the new prefix
+			int newXPosition = equivalenceClass.getPrefixPattern().size();
+			pXi.addElement(equivalenceClass.getElementLabelId(yJElement), newXPosition, newScopeList);
 		}
 
-		// Test (y, j)
-		newScopeList = ScopeListRepresentationUtils.doOutScopeJoin(yJElement, xScopeList, yScopeList,
-				countMultipleOccurrences);
+		// Test (y, j), x and y are attached to the same node
+		int j = equivalenceClass.getElementPosition(yJElement);
+		newScopeList = ScopeListRepresentationUtils.doOutScopeJoin(xScopeList, yScopeList, j, xDepth - 1, xDepth,
+				trees, countMultipleOccurrences);
 
-		if (newScopeList.size() >= minSupport) {
-			pXi.addElement(yJElement);
-			pXi.addScopeListFor(TreeRepresentationUtils.addNodeToTree(pXi.getPrefix(), yJElement), newScopeList);
+		if (isFrequentCandidate(equivalenceClass, newScopeList)) {
+			pXi.addElement(equivalenceClass.getElementLabelId(yJElement),
+					equivalenceClass.getElementPosition(yJElement), newScopeList);
 		}
 	}
 
-	private void checkCase2(EquivalenceClass equivalenceClass, Pair<String, Integer> xIElement, EquivalenceClass pXi,
-			Pair<String, Integer> yJElement) {
+	private void checkCase2(EquivalenceClass equivalenceClass,
+			AScopeListRepresentation<? extends SimpleScopeListElement> xScopeList, EquivalenceClass pXi,
+			int yJElement, int xDepth, TreeDatabase trees) {
 		// Test (y, j)
-		AScopeListRepresentation<? extends SimpleScopeListElement> xScopeList = equivalenceClass
-				.getScopeListFor(TreeRepresentationUtils.addNodeToTree(equivalenceClass.getPrefix(), xIElement));
 		AScopeListRepresentation<? extends SimpleScopeListElement> yScopeList = equivalenceClass
-				.getScopeListFor(TreeRepresentationUtils.addNodeToTree(equivalenceClass.getPrefix(), yJElement));
+				.getScopeList(yJElement);
+		int j = equivalenceClass.getElementPosition(yJElement);
+		int attachedToDepth = equivalenceClass.getPrefixPattern().getDepth(j);
+
+		AScopeListRepresentation<? extends SimpleScopeListElement> newScopeList = ScopeListRepresentationUtils
+				.doOutScopeJoin(xScopeList, yScopeList, j, attachedToDepth, xDepth, trees, countMultipleOccurrences);
+
+		if (isFrequentCandidate(equivalenceClass, newScopeList)) {
+			pXi.addElement(equivalenceClass.getElementLabelId(yJElement),
+					equivalenceClass.getElementPosition(yJElement), newScopeList);
+		}
+	}
+
+	/**
+	 * Finds the members of the new equivalence class so that only induced subtrees
+	 * are found. A node added below x has to be a child of x in the tree, so the
+	 * candidates for it are the children of the label of x in F2 rather than the
+	 * elements of the equivalence class, which are only attached to the prefix. A
+	 * node (y, j) added after x has to be a child of the node at position j.
+	 */
+	private void findInducedMembersOfEquivalenceClass(EquivalenceClass equivalenceClass, int xIElement,
+			EquivalenceClass pXi, TreeDatabase trees) {
+		AScopeListRepresentation<? extends SimpleScopeListElement> xScopeList = equivalenceClass
+				.getScopeList(xIElement);
 		if (xScopeList == null) {
 			return;
 		}
+		int i = equivalenceClass.getElementPosition(xIElement);
+		int xDepth = equivalenceClass.getPrefixPattern().getDepth(i) + 1;
 
-		AScopeListRepresentation<? extends SimpleScopeListElement> newScopeList = ScopeListRepresentationUtils
-				.doOutScopeJoin(yJElement, xScopeList, yScopeList, countMultipleOccurrences);
+		// Test (y, n_i) for the children y of x
+		EquivalenceClass childrenOfX = f2ClassesByPrefix.get(equivalenceClass.getElementLabel(xIElement));
+		if (childrenOfX != null) {
+			// The scope lists of the children are joined by every class with x in it, so
+			// they are kept in memory rather than read from the spill file for each join
+			childrenOfX.loadSpilledScopeLists();
+			// x is the last node of the new prefix
+			int newXPosition = equivalenceClass.getPrefixPattern().size();
+			for (int childElement = 0; childElement < childrenOfX.getNumberOfElements(); childElement++) {
+				AScopeListRepresentation<? extends SimpleScopeListElement> childScopeList = childrenOfX
+						.getScopeList(childElement);
+				if (!xScopeList.sharesTreesWith(childScopeList, minSupport)) {
+					statistics.joinsPruned(1);
+					continue;
+				}
+				AScopeListRepresentation<? extends SimpleScopeListElement> newScopeList = ScopeListRepresentationUtils
+						.doInducedInScopeJoin(xScopeList, childScopeList, countMultipleOccurrences);
 
-		if (newScopeList.size() >= minSupport) {
-			pXi.addElement(yJElement);
-			pXi.addScopeListFor(TreeRepresentationUtils.addNodeToTree(pXi.getPrefix(), yJElement), newScopeList);
+				if (isFrequentCandidate(equivalenceClass, newScopeList)) {
+					pXi.addElement(childrenOfX.getElementLabelId(childElement), newXPosition, newScopeList);
+				}
+			}
+		}
+
+		// Test (y, j) for j <= i
+		for (int yJElement = 0; yJElement < equivalenceClass.getNumberOfElements(); yJElement++) {
+			int j = equivalenceClass.getElementPosition(yJElement);
+			if (j > i) {
+				continue;
+			}
+			AScopeListRepresentation<? extends SimpleScopeListElement> yScopeList = equivalenceClass
+					.getScopeList(yJElement);
+			if (!xScopeList.sharesTreesWith(yScopeList, minSupport)) {
+				statistics.joinsPruned(1);
+			} else {
+				int attachedToDepth = equivalenceClass.getPrefixPattern().getDepth(j);
+				AScopeListRepresentation<? extends SimpleScopeListElement> newScopeList = ScopeListRepresentationUtils
+						.doInducedOutScopeJoin(xScopeList, yScopeList, attachedToDepth, xDepth, trees,
+								countMultipleOccurrences);
+
+				if (isFrequentCandidate(equivalenceClass, newScopeList)) {
+					pXi.addElement(equivalenceClass.getElementLabelId(yJElement), j, newScopeList);
+				}
+			}
 		}
 	}
 
+	/**
+	 * Records a join of two elements of the given equivalence class in the
+	 * statistics, and checks whether the candidate that results from it occurs in
+	 * enough trees to be added to the new equivalence class without exceeding the
+	 * maximal number of patterns.
+	 */
+	private boolean isFrequentCandidate(EquivalenceClass equivalenceClass,
+			AScopeListRepresentation<? extends SimpleScopeListElement> newScopeList) {
+		boolean frequent = newScopeList.getNumberOfTrees() >= minSupport;
+		// The candidate extends the prefix of the class by x and y
+		statistics.joinAttempted(equivalenceClass.getPrefixPattern().size() + 2, newScopeList.size(), frequent);
+		return frequent && (!isNumberOfPatternsLimited() || acceptPattern(newScopeList));
+	}
+
 	/**
 	 * Extracts all the non-embedded frequent subtrees from the given equivalence
 	 * class and. Also removes the non-frequent elements from the equivalence
@@ -187,39 +881,65 @@ public class TreeMiner implements FrequentSubtreeFinder {
 	 * @param equivalenceClass
 	 *            The equivalence class containing the found frequent (embedded)
 	 *            subtrees
+	 * @param trees
+	 *            The database of trees the subtrees were found in
 	 * @return The found non-embedded frequent subtrees
 	 */
-	protected TreeSet<String> extractNonEmbeddedFrequentTrees(EquivalenceClass equivalenceClass, List<String> trees) {
+	protected TreeSet<String> extractNonEmbeddedFrequentTrees(EquivalenceClass equivalenceClass,
+			TreeDatabase trees) {
 		TreeSet<String> foundTrees = new TreeSet<>();
-		SortedMap<String, AScopeListRepresentation<? extends SimpleScopeListElement>> newScopeLists = new TreeMap<>();
-		List<Pair<String, Integer>> newElementList = new ArrayList<>();
-
-		for (int i = 0; i < equivalenceClass.getElementList().size(); i++) {
-			String subTree = TreeRepresentationUtils.addNodeToTree(equivalenceClass.getPrefix(),
-					equivalenceClass.getElementList().get(i));
-			AScopeListRepresentation<? extends SimpleScopeListElement> scopeList = equivalenceClass
-					.getScopeListFor(subTree);
-
-			// for each scope list element of a subtree, check if it actually appears in
-			// that tree or is just embedded
-			int support = 0;
-			for (SimpleScopeListElement scopeListElem : scopeList) {
-				if (TreeRepresentationUtils.containsSubtree(trees.get(scopeListElem.getTreeIndex()), subTree)) {
-					support++;
-				}
-			}
+		extractNonEmbeddedFrequentTrees(equivalenceClass, trees, (subTree, support) -> foundTrees.add(subTree));
+		return foundTrees;
+	}
+
+	/**
+	 * Passes all the non-embedded frequent subtrees from the given equivalence
+	 * class together with their support to the given consumer. Also removes the
+	 * non-frequent elements from the equivalence classes.
+	 * 
+	 * @param equivalenceClass
+	 *            The equivalence class containing the found frequent (embedded)
+	 *            subtrees
+	 * @param trees
+	 *            The database of trees the subtrees were found in
+	 * @param consumer
+	 *            The consumer of the found non-embedded frequent subtrees
+	 */
+	protected void extractNonEmbeddedFrequentTrees(EquivalenceClass equivalenceClass, TreeDatabase trees,
+			FrequentSubtreeConsumer consumer) {
+		long start = System.nanoTime();
+		FrequentTreesExtractedEvent event = MiningEvents.beginExtraction();
+		int numberOfElements = equivalenceClass.getNumberOfElements();
+		int numberOfPatterns = 0;
+		boolean[] frequent = new boolean[numberOfElements];
+
+		for (int i = 0; i < equivalenceClass.getNumberOfElements(); i++) {
+			String subTree = equivalenceClass.getSubtreeFor(i);
+			AScopeListRepresentation<? extends SimpleScopeListElement> scopeList = equivalenceClass.getScopeList(i);
 
-			if (support >= minSupport) {
-				foundTrees.add(subTree);
-				newScopeLists.put(subTree, scopeList);
-				newElementList.add(equivalenceClass.getElementList().get(i));
+			// only count the trees in which the subtree actually appears rather than just
+			// being embedded, and the scope list elements of these trees as its support
+			int numberOfTrees;
+			int support;
+			if (onlySearchForInducedSubtrees) {
+				numberOfTrees = scopeList.getNumberOfTrees();
+				support = scopeList.size();
+			} else {
+				numberOfTrees = scopeList.getNumberOfInducedTrees();
+				support = scopeList.getInducedSupport();
+			}
 
+			if (numberOfTrees >= minSupport) {
+				consumer.accept(subTree, support);
+				frequent[i] = true;
+				numberOfPatterns++;
+				statistics.patternFound();
 			}
 		}
 
-		equivalenceClass.setScopeLists(newScopeLists);
-		equivalenceClass.setElementList(newElementList);
-		return foundTrees;
+		equivalenceClass.retainElements(element -> frequent[element]);
+		statistics.addTimeSince(Phase.INDUCED_FILTERING, start);
+		MiningEvents.commitExtraction(event, equivalenceClass, numberOfElements, numberOfPatterns);
 	}
 
 	@Override
@@ -229,19 +949,95 @@ public class TreeMiner implements FrequentSubtreeFinder {
 
 	@Override
 	public double[][] getCharacterizationsOfTrainingExamples() {
-		double[][] treesWithPatternOccurrences = new double[numTrees][numFoundPatterns];
+		return getSparseCharacterizationsOfTrainingExamples().toDenseMatrix();
+	}
+
+	@Override
+	public SparseCharacterization getSparseCharacterizationsOfTrainingExamples() {
+		return getSparseCharacterizationsOfTrainingExamples(null, null);
+	}
+
+	/**
+	 * Computes the characterizations of the trees of the last search like
+	 * {@link #getSparseCharacterizationsOfTrainingExamples()}, but stops once the
+	 * deadline of the given budget has passed or the given token is cancelled. The
+	 * other limits of the budget do not apply.
+	 * 
+	 * @param budget
+	 *            The budget whose deadline applies, or null if there is none
+	 * @param cancellationToken
+	 *            The token the computation can be cancelled with, or null if it
+	 *            cannot be cancelled
+	 * @return The characterizations of the trees
+	 * @throws CancellationException
+	 *             if the computation has been stopped before it was complete
+	 */
+	public SparseCharacterization getSparseCharacterizationsOfTrainingExamples(MiningBudget budget,
+			CancellationToken cancellationToken) {
+		statistics.setCurrentPhase(Phase.CHARACTERIZATION);
+		long start = System.nanoTime();
+		MiningPhaseEvent phaseEvent = MiningEvents.beginPhase();
+
+		try {
+			// Count the patterns that appear in each tree
+			int[] rowOffsets = new int[numTrees + 1];
+			forEachPatternOccurrence((tree, pattern) -> rowOffsets[tree + 1]++, budget, cancellationToken);
+			for (int tree = 0; tree < numTrees; tree++) {
+				rowOffsets[tree + 1] += rowOffsets[tree];
+			}
+
+			// Fill the rows in the order of the patterns, so that each row is sorted
+			int[] patternIndices = new int[rowOffsets[numTrees]];
+			int[] nextInRow = Arrays.copyOf(rowOffsets, numTrees);
+			forEachPatternOccurrence((tree, pattern) -> patternIndices[nextInRow[tree]++] = pattern, budget,
+					cancellationToken);
+			return new SparseCharacterization(numFoundPatterns, rowOffsets, patternIndices);
+		} finally {
+			statistics.addTimeSince(Phase.CHARACTERIZATION, start);
+			MiningEvents.commitPhase(phaseEvent, Phase.CHARACTERIZATION);
+			statistics.setCurrentPhase(null);
+		}
+	}
 
+	/**
+	 * Calls the given consumer with the tree and the index of the pattern for each
+	 * tree a found pattern appears in. The occurrences of a pattern are sorted by
+	 * tree, so each tree is only passed once per pattern. Before each equivalence
+	 * class, checks whether the token has been cancelled or the deadline has
+	 * passed.
+	 */
+	private void forEachPatternOccurrence(IntBinaryConsumer consumer, MiningBudget budget,
+			CancellationToken cancellationToken) {
 		int currentPattern = 0;
 		for (EquivalenceClass equivalenceClass : foundEquivalenceClasses) {
-			for (String pattern : equivalenceClass.getScopeLists().keySet()) {
-				for (SimpleScopeListElement patternOccurence : equivalenceClass.getScopeListFor(pattern)) {
-					treesWithPatternOccurrences[patternOccurence.getTreeIndex()][currentPattern] = 1;
+			StopReason reason = getCancellationOrDeadline(budget, cancellationToken);
+			if (reason != null) {
+				throw new CancellationException("The characterization has been stopped: " + reason);
+			}
+			// The tree indices are also kept if the scope lists have been released
+			for (int element : equivalenceClass.getElementsInSubtreeOrder()) {
+				for (int tree : equivalenceClass.getTreeIndices(element)) {
+					consumer.accept(tree, currentPattern);
 				}
 				currentPattern++;
 			}
 		}
+	}
+
+	@FunctionalInterface
+	private interface IntBinaryConsumer {
+		void accept(int first, int second);
+	}
 
-		return treesWithPatternOccurrences;
+	/**
+	 * Get the statistics of the current or last search. They are updated while a
+	 * search is running, so they can be used to observe its progress, e.g. by
+	 * registering them as an MBean.
+	 * 
+	 * @return the statistics of this miner
+	 */
+	public MiningStatistics getStatistics() {
+		return statistics;
 	}
 
 	/**
@@ -256,6 +1052,118 @@ public class TreeMiner implements FrequentSubtreeFinder {
 		this.countMultipleOccurrences = countMultipleOccurrences;
 	}
 
+	/**
+	 * Set whether the scope lists of an equivalence class shall be released as soon
+	 * as all classes below it have been explored, when the found subtrees are
+	 * returned as a list. The found equivalence classes then only keep the indices
+	 * of the trees their subtrees occur in, which suffices for the
+	 * characterizations, so that the occurrences of only the classes on the current
+	 * search paths and of the initial classes are kept in memory.
+	 * 
+	 * @param releaseScopeListsOfFinishedClasses
+	 *            whether the scope lists of finished classes shall be released
+	 */
+	public void setReleaseScopeListsOfFinishedClasses(boolean releaseScopeListsOfFinishedClasses) {
+		this.releaseScopeListsOfFinishedClasses = releaseScopeListsOfFinishedClasses;
+	}
+
+	/**
+	 * Get whether the scope lists of finished equivalence classes are released.
+	 * 
+	 * @return whether the scope lists of finished classes are released
+	 */
+	public boolean getReleaseScopeListsOfFinishedClasses() {
+		return releaseScopeListsOfFinishedClasses;
+	}
+
+	/**
+	 * Set the number of threads that find the initial equivalence classes and
+	 * explore the equivalence classes. With a parallelism greater than 1, the trees
+	 * are processed in shards during initialization, and the classes are explored
+	 * as tasks of a {@link ForkJoinPool} with the given parallelism. The result is
+	 * the same as with serial processing.
+	 * 
+	 * @param parallelism
+	 *            the number of threads, at least 1
+	 */
+	public void setParallelism(int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("Parallelism must be at least 1, but is " + parallelism);
+		}
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Set the used heap memory in bytes above which the scope lists of the initial
+	 * equivalence classes that are waiting to be expanded are spilled to a
+	 * temporary file. The heap memory that is still used after garbage collections
+	 * of the tenured heap pool is polled before each element is expanded, so that
+	 * garbage does not count, and the settings of the pool are not changed. After
+	 * a collection has exceeded the budget, the next element that is expanded
+	 * spills the scope lists of waiting classes until the excess is made up for,
+	 * while the other elements are expanded in parallel as usual.
+	 * 
+	 * <p>
+	 * Spilled scope lists are read from the file when they are looked up, and a
+	 * spilled class is loaded back into memory when it is expanded. If the search
+	 * is stopped before a spilled class is expanded, its scope lists stay in the
+	 * file until the next search starts. By default, no scope lists are spilled.
+	 * </p>
+	 * 
+	 * @param heapMemoryBudget
+	 *            the heap memory budget in bytes, at least 0
+	 */
+	public void setHeapMemoryBudget(long heapMemoryBudget) {
+		if (heapMemoryBudget < 0) {
+			throw new IllegalArgumentException("Heap memory budget must be at least 0, but is " + heapMemoryBudget);
+		}
+		this.heapMemoryBudget = heapMemoryBudget;
+	}
+
+	/**
+	 * Get the used heap memory in bytes above which scope lists are spilled.
+	 * 
+	 * @return the heap memory budget
+	 */
+	public long getHeapMemoryBudget() {
+		return heapMemoryBudget;
+	}
+
+	/**
+	 * Set the minimal number of occurrences of a scope list that is spilled when
+	 * the heap memory budget is exceeded. Smaller scope lists stay in memory, since
+	 * reading them back costs more than the memory they take up. The default is
+	 * 1024.
+	 * 
+	 * @param minSpilledScopeListSize
+	 *            the minimal number of occurrences, at least 1
+	 */
+	public void setMinSpilledScopeListSize(int minSpilledScopeListSize) {
+		if (minSpilledScopeListSize < 1) {
+			throw new IllegalArgumentException(
+					"Minimal spilled scope list size must be at least 1, but is " + minSpilledScopeListSize);
+		}
+		this.minSpilledScopeListSize = minSpilledScopeListSize;
+	}
+
+	/**
+	 * Get the minimal number of occurrences of a scope list that is spilled.
+	 * 
+	 * @return the minimal spilled scope list size
+	 */
+	public int getMinSpilledScopeListSize() {
+		return minSpilledScopeListSize;
+	}
+
+	/**
+	 * Get the number of threads that find and explore the equivalence classes.
+	 * 
+	 * @return the parallelism
+	 */
+	public int getParallelism() {
+		return parallelism;
+	}
+
 	public boolean getOnlySearchForPatternsThatStartWithTheRoot() {
 		return onlySearchForPatternsThatStartWithTheRoot;
 	}
@@ -263,4 +1171,22 @@ public class TreeMiner implements FrequentSubtreeFinder {
 	public void setOnlySearchForPatternsThatStartWithTheRoot(boolean onlySearchForPatternsThatStartWithTheRoot) {
 		this.onlySearchForPatternsThatStartWithTheRoot = onlySearchForPatternsThatStartWithTheRoot;
 	}
+
+	public boolean getOnlySearchForInducedSubtrees() {
+		return onlySearchForInducedSubtrees;
+	}
+
+	/**
+	 * Set whether only induced subtrees shall be searched for, i.e. subtrees whose
+	 * nodes are parent and child in a tree if they are parent and child in the
+	 * subtree. In this mode, the scope list joins only produce induced occurrences,
+	 * so that patterns that only occur embedded are never expanded, and the found
+	 * patterns do not have to be checked for whether they occur directly.
+	 * 
+	 * @param onlySearchForInducedSubtrees
+	 *            whether only induced subtrees shall be searched for
+	 */
+	public void setOnlySearchForInducedSubtrees(boolean onlySearchForInducedSubtrees) {
+		this.onlySearchForInducedSubtrees = onlySearchForInducedSubtrees;
+	}
 }
@@ -0,0 +1,206 @@
+package treeminer.initialization;
+
+import java.util.Arrays;
+
+/**
+ * A hash table for pairs of label ids that are observed in the trees, such as
+ * the labels of the two nodes of an F2 pattern. A pair is packed into a single
+ * long, so that neither a String representation of the pattern nor a boxed key
+ * has to be created to look it up. Each pair has a support and optionally a
+ * value, e.g. its scope list.
+ *
+ * @author Helena Graf
+ *
+ * @param <V>
+ *            the type of the values of the pairs
+ */
+class LabelPairTable<V> {
+
+	private static final int DEFAULT_CAPACITY = 16;
+	private static final long NO_PAIR = -1;
+
+	private long[] pairs;
+	private int[] supports;
+	private Object[] values;
+	private int size;
+
+	/**
+	 * Creates an empty table.
+	 */
+	LabelPairTable() {
+		pairs = new long[DEFAULT_CAPACITY];
+		Arrays.fill(pairs, NO_PAIR);
+		supports = new int[DEFAULT_CAPACITY];
+		values = new Object[DEFAULT_CAPACITY];
+	}
+
+	/**
+	 * Packs the given label ids into a pair.
+	 *
+	 * @param first
+	 *            the label id of the first node
+	 * @param second
+	 *            the label id of the second node
+	 * @return the pair of the label ids
+	 */
+	static long pair(int first, int second) {
+		return ((long) first << 32) | second;
+	}
+
+	/**
+	 * Get the label id of the first node of the given pair.
+	 *
+	 * @param pair
+	 *            the pair of label ids
+	 * @return the label id of the first node
+	 */
+	static int first(long pair) {
+		return (int) (pair >>> 32);
+	}
+
+	/**
+	 * Get the label id of the second node of the given pair.
+	 *
+	 * @param pair
+	 *            the pair of label ids
+	 * @return the label id of the second node
+	 */
+	static int second(long pair) {
+		return (int) pair;
+	}
+
+	/**
+	 * Adds the given support to the support of the given pair, adding the pair to
+	 * the table if it is not contained yet.
+	 *
+	 * @param pair
+	 *            the pair of label ids
+	 * @param support
+	 *            the support to add
+	 */
+	void addSupport(long pair, int support) {
+		int slot = findOrInsert(pair);
+		supports[slot] += support;
+	}
+
+	/**
+	 * Get the value of the given pair.
+	 *
+	 * @param pair
+	 *            the pair of label ids
+	 * @return the value of the pair, or null if it is not contained or has no
+	 *         value
+	 */
+	@SuppressWarnings("unchecked")
+	V get(long pair) {
+		return (V) values[find(pair)];
+	}
+
+	/**
+	 * Sets the value of the given pair, adding the pair to the table if it is not
+	 * contained yet. Setting the value of a contained pair does not change the
+	 * structure of the table, so it may be done while iterating the table.
+	 *
+	 * @param pair
+	 *            the pair of label ids
+	 * @param value
+	 *            the value of the pair
+	 */
+	void put(long pair, V value) {
+		int slot = findOrInsert(pair);
+		values[slot] = value;
+	}
+
+	/**
+	 * Get the number of pairs in this table.
+	 *
+	 * @return the number of pairs
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Passes each pair in this table with its support and value to the given
+	 * consumer, in no particular order.
+	 *
+	 * @param consumer
+	 *            the consumer of the pairs
+	 */
+	@SuppressWarnings("unchecked")
+	void forEach(PairConsumer<V> consumer) {
+		for (int slot = 0; slot < pairs.length; slot++) {
+			if (pairs[slot] != NO_PAIR) {
+				consumer.accept(pairs[slot], supports[slot], (V) values[slot]);
+			}
+		}
+	}
+
+	private int find(long pair) {
+		// Linear probing, the capacity is a power of two
+		int mask = pairs.length - 1;
+		int slot = hash(pair) & mask;
+		while (pairs[slot] != NO_PAIR && pairs[slot] != pair) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private int findOrInsert(long pair) {
+		int slot = find(pair);
+		if (pairs[slot] == NO_PAIR) {
+			if (2 * (size + 1) > pairs.length) {
+				grow();
+				slot = find(pair);
+			}
+			pairs[slot] = pair;
+			size++;
+		}
+		return slot;
+	}
+
+	private void grow() {
+		long[] oldPairs = pairs;
+		int[] oldSupports = supports;
+		Object[] oldValues = values;
+		pairs = new long[2 * oldPairs.length];
+		Arrays.fill(pairs, NO_PAIR);
+		supports = new int[pairs.length];
+		values = new Object[pairs.length];
+		for (int oldSlot = 0; oldSlot < oldPairs.length; oldSlot++) {
+			if (oldPairs[oldSlot] != NO_PAIR) {
+				int slot = find(oldPairs[oldSlot]);
+				pairs[slot] = oldPairs[oldSlot];
+				supports[slot] = oldSupports[oldSlot];
+				values[slot] = oldValues[oldSlot];
+			}
+		}
+	}
+
+	private static int hash(long pair) {
+		long hash = pair * 0x9E3779B97F4A7C15L;
+		return (int) (hash ^ (hash >>> 32));
+	}
+
+	/**
+	 * Consumes a pair of a label pair table with its support and value.
+	 *
+	 * @param <V>
+	 *            the type of the value
+	 */
+	@FunctionalInterface
+	interface PairConsumer<V> {
+
+		/**
+		 * Accepts a pair of the table.
+		 *
+		 * @param pair
+		 *            the pair of label ids
+		 * @param support
+		 *            the support of the pair
+		 * @param value
+		 *            the value of the pair, or null if it has none
+		 */
+		void accept(long pair, int support, V value);
+	}
+}
@@ -2,16 +2,16 @@ package treeminer.initialization;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.SortedMap;
-import java.util.TreeMap;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntFunction;
+import java.util.function.LongFunction;
 
 import treeminer.EquivalenceClass;
 import treeminer.Scope;
+import treeminer.TreeDatabase;
 import treeminer.scopelists.elements.ScopeVectorListElement;
-import treeminer.scopelists.elements.SimpleScopeListElement;
 import treeminer.scopelists.representation.AScopeListRepresentation;
 import treeminer.scopelists.representation.ScopeVectorListRepresentation;
-import treeminer.util.TreeRepresentationUtils;
 
 /**
  * Initialized the TreeMiner for the case that only distinct occurrences of
@@ -40,175 +40,126 @@ public class TreeMinerDistinctInitializer {
 	 *            frequent in the database
 	 * @return all valid equivalence classes with a one-node prefix
 	 */
-	public static List<EquivalenceClass> initialize(EquivalenceClass f1, List<String> trees, int minSupport) {
-		// Generate candidate scope lists for the candidate equivalence classes
-		TreeMap<String, AScopeListRepresentation<ScopeVectorListElement>> mapF2PatternToOccurence = new TreeMap<>();
-		TreeMap<String, AScopeListRepresentation<ScopeVectorListElement>> mapF1PatternToOccurence = new TreeMap<>();
+	public static List<EquivalenceClass> initialize(EquivalenceClass f1, TreeDatabase trees, int minSupport) {
+		return initialize(f1, trees, minSupport, 1, false, () -> false);
+	}
 
-		generateCandidateScopeListsF1F2NoMatchLabel(f1, mapF2PatternToOccurence, mapF1PatternToOccurence);
-		mapF1PatternToOccurence.forEach(f1::addScopeListFor);
+	/**
+	 * Finds the scopes for the elements in the equivalence class F1 and generates
+	 * all valid classes for F2 on the premise that only one occurrence of a pattern
+	 * within a tree is counted. The trees are processed in shards by the given
+	 * number of threads, which skip the remaining trees once the search has been
+	 * stopped. If only induced subtrees are searched for, only occurrences of F2
+	 * patterns in which the second node is a child of the first node are recorded.
+	 * 
+	 * @param f1
+	 *            the equivalence class with the empty prefix
+	 * @param trees
+	 *            the trees in the given database
+	 * @param minSupport
+	 *            the minimum (absolute) support for a patternt to be considered
+	 *            frequent in the database
+	 * @param parallelism
+	 *            the number of threads that process the trees
+	 * @param onlyInducedSubtrees
+	 *            whether only induced subtrees are searched for
+	 * @param stopped
+	 *            tells whether the search has been stopped, in which case the
+	 *            scope lists of F1 and F2 are incomplete
+	 * @return all valid equivalence classes with a one-node prefix
+	 */
+	public static List<EquivalenceClass> initialize(EquivalenceClass f1, TreeDatabase trees, int minSupport,
+			int parallelism, boolean onlyInducedSubtrees, BooleanSupplier stopped) {
+		// Count the support of the observed F2 patterns before recording any
+		// occurrences, and only create scope lists for the frequent ones
+		LabelPairTable<AScopeListRepresentation<ScopeVectorListElement>> f2ScopeLists = TreeMinerGeneralInitializer
+				.countF2PatternSupport(f1, trees, parallelism, onlyInducedSubtrees, stopped);
+		TreeMinerGeneralInitializer.createF2ScopeLists(f2ScopeLists, minSupport, ScopeVectorListRepresentation::new);
+		List<AScopeListRepresentation<ScopeVectorListElement>> f1ScopeLists = TreeMinerGeneralInitializer
+				.createF1ScopeLists(f1, trees, ScopeVectorListRepresentation::new);
 
 		// Find candidate scope list frequencies
-		for (int i = 0; i < trees.size(); i++) {
-			findPatternsInTreeNoMatchLabel(trees.get(i), mapF2PatternToOccurence, mapF1PatternToOccurence, i);
-		}
+		TreeMinerGeneralInitializer.findCandidateScopeLists(trees, parallelism, f1ScopeLists, f2ScopeLists,
+				ScopeVectorListRepresentation::new, (treeDatabase, i, f2ScopeListsOfShard,
+						f1ScopeListsOfShard) -> findPatternsInTreeNoMatchLabel(treeDatabase, i, f2ScopeListsOfShard,
+								f1ScopeListsOfShard, onlyInducedSubtrees), stopped);
 
 		// Assemble scope lists for f2
-		List<EquivalenceClass> candidateEquivalenceClasses = TreeMinerGeneralInitializer
-				.generateCandidateEquivalenceClassesF2(f1);
-		return TreeMinerDistinctInitializer.filterF2CandidateClassesByPatternOccurrencesNoMatchLabel(
-				candidateEquivalenceClasses, mapF2PatternToOccurence, minSupport);
+		return TreeMinerGeneralInitializer.createF2EquivalenceClasses(f1, f2ScopeLists, minSupport);
 	}
 
-	private static void generateCandidateScopeListsF1F2NoMatchLabel(EquivalenceClass f1,
-			TreeMap<String, AScopeListRepresentation<ScopeVectorListElement>> f2ScopeLists,
-			TreeMap<String, AScopeListRepresentation<ScopeVectorListElement>> f1ScopeLists) {
-		// Fill the scope lists with candidates
-		f1.getElementList().forEach(pairX -> {
-
-			f1ScopeLists.put(pairX.getLeft(), new ScopeVectorListRepresentation());
-
-			f1.getElementList().forEach(pairY -> {
-				String pattern = String.format("%s%s%s%s%s", pairX.getLeft(),
-						TreeRepresentationUtils.TREE_NODE_SEPARATOR, pairY.getLeft(),
-						TreeRepresentationUtils.TREE_NODE_SEPARATOR, TreeRepresentationUtils.MOVE_UP_TOKEN);
-				ScopeVectorListRepresentation occurrences = new ScopeVectorListRepresentation();
-				f2ScopeLists.put(pattern, occurrences);
-			});
-		});
-	}
-
-	private static void findPatternsInTreeNoMatchLabel(String tree,
-			TreeMap<String, AScopeListRepresentation<ScopeVectorListElement>> mapF2PatternToOccurence,
-			TreeMap<String, AScopeListRepresentation<ScopeVectorListElement>> mapF1PatternToOccurence, int i) {
-		String[] treeRepresentation = tree.split(TreeRepresentationUtils.TREE_NODE_SEPARATOR);
-
+	private static void findPatternsInTreeNoMatchLabel(TreeDatabase trees, int i,
+			LongFunction<AScopeListRepresentation<ScopeVectorListElement>> mapF2PatternToOccurence,
+			IntFunction<AScopeListRepresentation<ScopeVectorListElement>> mapF1PatternToOccurence,
+			boolean onlyInducedSubtrees) {
 		// Find the scope of each node in the tree
-		Scope[] nodeScopes = new Scope[(int) Math.ceil(treeRepresentation.length / 2.0)];
+		Scope[] nodeScopes = new Scope[trees.getNumberOfNodes(i)];
 
-		findNodeScopesNoMatchLabel(treeRepresentation, nodeScopes);
-		findCandidateFrequenciesNoMatchLabel(mapF2PatternToOccurence, mapF1PatternToOccurence, i, treeRepresentation,
-				nodeScopes);
+		findNodeScopesNoMatchLabel(trees, i, nodeScopes);
+		findCandidateFrequenciesNoMatchLabel(mapF2PatternToOccurence, mapF1PatternToOccurence, trees, i, nodeScopes,
+				onlyInducedSubtrees);
 
 	}
 
-	private static void findNodeScopesNoMatchLabel(String[] treeRepresentation, Scope[] nodeScopes) {
+	private static void findNodeScopesNoMatchLabel(TreeDatabase trees, int i, Scope[] nodeScopes) {
+		int[] upperBounds = trees.getScopeUpperBounds(i);
 		for (int j = 0; j < nodeScopes.length; j++) {
-			nodeScopes[j] = new Scope();
+			nodeScopes[j] = new Scope(j, upperBounds[j]);
 		}
-		int atNode = -1;
-		List<Integer> openScopes = new ArrayList<>();
-		for (String treeElement : treeRepresentation) {
-			if (!treeElement.equals(TreeRepresentationUtils.MOVE_UP_TOKEN)) {
-				// Start the scope of the current node
-				atNode++;
-				nodeScopes[atNode].setLowerBound(atNode);
-				openScopes.add(atNode);
-			} else {
-				// End the scope of the most recently not closed scopes
-				int closeScopeIndex = openScopes.get(openScopes.size() - 1);
-				nodeScopes[closeScopeIndex].setUpperBound(atNode);
-				openScopes.remove(openScopes.get(openScopes.size() - 1));
-			}
-		}
-		// First node has to be closed separately because it doesn't have a moveUpToken
-		nodeScopes[0].setUpperBound(nodeScopes.length - 1);
 	}
 
 	private static void findCandidateFrequenciesNoMatchLabel(
-			TreeMap<String, AScopeListRepresentation<ScopeVectorListElement>> mapF2PatternToOccurence,
-			TreeMap<String, AScopeListRepresentation<ScopeVectorListElement>> mapF1PatternToOccurence, int i,
-			String[] treeRepresentation, Scope[] nodeScopes) {
-		int atNode = -1;
-		for (int j = 0; j < treeRepresentation.length; j++) {
-			String treeElement = treeRepresentation[j];
-			if (!treeElement.equals(TreeRepresentationUtils.MOVE_UP_TOKEN)) {
-				atNode++;
-				addNewPatternNoMatchLabel(mapF1PatternToOccurence, i, nodeScopes, atNode, treeElement);
-
-				checkForDoublePatternNoMatchLabel(mapF2PatternToOccurence, i, treeRepresentation, nodeScopes, atNode, j,
-						treeElement);
-			}
+			LongFunction<AScopeListRepresentation<ScopeVectorListElement>> mapF2PatternToOccurence,
+			IntFunction<AScopeListRepresentation<ScopeVectorListElement>> mapF1PatternToOccurence,
+			TreeDatabase trees, int i, Scope[] nodeScopes, boolean onlyInducedSubtrees) {
+		int[] nodeLabels = trees.getNodeLabels(i);
+		for (int atNode = 0; atNode < nodeLabels.length; atNode++) {
+			int labelId = nodeLabels[atNode];
+			addNewPatternNoMatchLabel(mapF1PatternToOccurence, i, nodeScopes, atNode, labelId);
+
+			checkForDoublePatternNoMatchLabel(mapF2PatternToOccurence, trees, i, nodeScopes, atNode, labelId,
+					onlyInducedSubtrees);
 		}
 	}
 
 	private static void addNewPatternNoMatchLabel(
-			TreeMap<String, AScopeListRepresentation<ScopeVectorListElement>> mapF1PatternToOccurence, int i,
-			Scope[] nodeScopes, int atNode, String treeElement) {
+			IntFunction<AScopeListRepresentation<ScopeVectorListElement>> mapF1PatternToOccurence, int i,
+			Scope[] nodeScopes, int atNode, int labelId) {
 		// Add the found single pattern
 		ArrayList<Scope> scopes = new ArrayList<>();
 		scopes.add(nodeScopes[atNode]);
-		ScopeVectorListElement entry = new ScopeVectorListElement(i, scopes);
-		if (mapF1PatternToOccurence.get(treeElement) != null) {
-			mapF1PatternToOccurence.get(treeElement).add(entry);
+		ScopeVectorListElement entry = new ScopeVectorListElement(i, scopes, true);
+		AScopeListRepresentation<ScopeVectorListElement> list = mapF1PatternToOccurence.apply(labelId);
+		if (list != null) {
+			list.add(entry);
 		}
 	}
 
 	private static void checkForDoublePatternNoMatchLabel(
-			TreeMap<String, AScopeListRepresentation<ScopeVectorListElement>> mapF2PatternToOccurence, int i,
-			String[] treeRepresentation, Scope[] nodeScopes, int atNode, int j, String treeElement) {
-		// Check for double pattern (find direct and indirect children of a node)
-		int childLevel = 0;
-		int childNumber = 0;
-		for (int k = j + 1; k < treeRepresentation.length; k++) {
-			String potentialChild = treeRepresentation[k];
-			if (!potentialChild.equals(TreeRepresentationUtils.MOVE_UP_TOKEN)) {
-				childLevel++;
-				childNumber++;
-				List<Scope> scopes = new ArrayList<>();
-				// parent scope
-				scopes.add(nodeScopes[atNode]);
-				// this node scope
-				scopes.add(nodeScopes[atNode + childNumber]);
-				// Scope = scope of parent (treeElement) + Scope of treeRepresentation[k]
-				ScopeVectorListElement f2entry = new ScopeVectorListElement(i, scopes);
-				AScopeListRepresentation<ScopeVectorListElement> list = mapF2PatternToOccurence.get(String.format(
-						"%s%s%s%s%s", treeElement, TreeRepresentationUtils.TREE_NODE_SEPARATOR, treeRepresentation[k],
-						TreeRepresentationUtils.TREE_NODE_SEPARATOR, TreeRepresentationUtils.MOVE_UP_TOKEN));
-				if (list != null) {
-					list.add(f2entry);
-				}
-
-			} else {
-				childLevel--;
-				if (childLevel == -1) {
-					break;
-				}
+			LongFunction<AScopeListRepresentation<ScopeVectorListElement>> mapF2PatternToOccurence,
+			TreeDatabase trees, int i, Scope[] nodeScopes, int atNode, int labelId,
+			boolean onlyInducedSubtrees) {
+		// Check for double pattern (the direct and indirect children of a node are
+		// exactly the nodes in its scope)
+		int[] nodeLabels = trees.getNodeLabels(i);
+		int[] parents = trees.getParents(i);
+		int child = atNode + 1;
+		while (child <= nodeScopes[atNode].getUpperBound()) {
+			List<Scope> scopes = new ArrayList<>();
+			// parent scope
+			scopes.add(nodeScopes[atNode]);
+			// this node scope
+			scopes.add(nodeScopes[child]);
+			ScopeVectorListElement f2entry = new ScopeVectorListElement(i, scopes, parents[child] == atNode);
+			AScopeListRepresentation<ScopeVectorListElement> list = mapF2PatternToOccurence
+					.apply(LabelPairTable.pair(labelId, nodeLabels[child]));
+			if (list != null) {
+				list.add(f2entry);
 			}
-		}
-	}
 
-	/**
-	 * Filter the given candidate equivalence classes F2 so that only valid classes
-	 * remain.
-	 * 
-	 * @param candidateEquivalenceClasses
-	 *            the candidate equivalence classes with a one-node prefix
-	 * @param mapF2PatternToOccurence
-	 *            pattern occurrences in F2
-	 * @param minSupport
-	 *            the minimum support of a pattern to be considered frequent
-	 * @return the actual equivalence classes F2
-	 */
-	public static List<EquivalenceClass> filterF2CandidateClassesByPatternOccurrencesNoMatchLabel(
-			List<EquivalenceClass> candidateEquivalenceClasses,
-			SortedMap<String, AScopeListRepresentation<ScopeVectorListElement>> mapF2PatternToOccurence,
-			int minSupport) {
-		List<EquivalenceClass> newEquivalenceClasses = new ArrayList<>();
-		candidateEquivalenceClasses.forEach(equivalenceClass -> {
-			SortedMap<String, AScopeListRepresentation<? extends SimpleScopeListElement>> scopeLists = new TreeMap<>();
-			equivalenceClass.getElementList().forEach(element -> {
-				String label = TreeRepresentationUtils.addNodeToTree(equivalenceClass.getPrefix(), element);
-				AScopeListRepresentation<? extends SimpleScopeListElement> scopeList = mapF2PatternToOccurence
-						.get(label);
-				scopeLists.put(label, scopeList);
-			});
-			equivalenceClass.setScopeLists(scopeLists);
-			equivalenceClass.discardNonFrequentElements(minSupport);
-			if (!equivalenceClass.getElementList().isEmpty()) {
-				newEquivalenceClasses.add(equivalenceClass);
-			}
-		});
-		return newEquivalenceClasses;
+			// For induced subtrees, skip to the next direct child after the scope of this
+			// child
+			child = onlyInducedSubtrees ? nodeScopes[child].getUpperBound() + 1 : child + 1;
+		}
 	}
 }
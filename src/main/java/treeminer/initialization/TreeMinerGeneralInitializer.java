@@ -1,15 +1,26 @@
 package treeminer.initialization;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.BiFunction;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntFunction;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
 
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
 
 import treeminer.EquivalenceClass;
-import treeminer.util.TreeRepresentationUtils;
+import treeminer.SubtreePattern;
+import treeminer.TreeDatabase;
+import treeminer.scopelists.elements.SimpleScopeListElement;
+import treeminer.scopelists.representation.AScopeListRepresentation;
 
 /**
  * Provides general initialization functionality for the TreeMiner, depending on
@@ -20,6 +31,9 @@ import treeminer.util.TreeRepresentationUtils;
  */
 public class TreeMinerGeneralInitializer {
 
+	private static final int SHARDS_PER_THREAD = 4;
+	private static final int DEFAULT_CAPACITY = 16;
+
 	private TreeMinerGeneralInitializer() {
 	}
 
@@ -34,36 +48,59 @@ public class TreeMinerGeneralInitializer {
 	 *            the absolute minimum support for a tree to be considered frequent
 	 * @return the generated EuivalenceClass, minus the node scopes
 	 */
-	public static EquivalenceClass findFrequentF1Subtrees(List<String> trees, int minSupport) {
-		HashMap<String, Integer> labelFrequencies = new HashMap<>();
-
-		// For each tree
-		for (String tree : trees) {
-			// Break up tree in its labels
-			String[] labels = tree.split(TreeRepresentationUtils.TREE_NODE_SEPARATOR);
-
-			// For each label, increase the frequency if found
-			for (String label : labels) {
-				if (!label.equals(TreeRepresentationUtils.MOVE_UP_TOKEN)) {
-					if (labelFrequencies.containsKey(label)) {
-						labelFrequencies.put(label, labelFrequencies.get(label) + 1);
-					} else {
-						labelFrequencies.put(label, 1);
-					}
+	public static EquivalenceClass findFrequentF1Subtrees(TreeDatabase trees, int minSupport) {
+		return findFrequentF1Subtrees(trees, minSupport, 1, () -> false);
+	}
+
+	/**
+	 * Finds the initial equivalence class f1 that has an empty prefix and contains
+	 * all single nodes with a frequency of at least the minimum support. The trees
+	 * are processed in shards by the given number of threads, which skip the
+	 * remaining trees once the search has been stopped.
+	 * 
+	 * @param trees
+	 *            the trees in the database for which to find the frequent subtrees
+	 * @param minSupport
+	 *            the absolute minimum support for a tree to be considered frequent
+	 * @param parallelism
+	 *            the number of threads that process the trees
+	 * @param stopped
+	 *            tells whether the search has been stopped, in which case the
+	 *            returned class is incomplete
+	 * @return the generated EuivalenceClass, minus the node scopes
+	 */
+	public static EquivalenceClass findFrequentF1Subtrees(TreeDatabase trees, int minSupport, int parallelism,
+			BooleanSupplier stopped) {
+		// For each node of each tree in a shard, increase the frequency of its label
+		List<int[]> shardLabelFrequencies = processTreesInShards(trees.size(), parallelism, (from, to) -> {
+			int[] frequencies = new int[trees.getNumberOfLabels()];
+			for (int i = from; i < to && !stopped.getAsBoolean(); i++) {
+				for (int label : trees.getNodeLabels(i)) {
+					frequencies[label]++;
 				}
 			}
-		}
+			return frequencies;
+		});
 
-		// Check which elements have at least the minimal support
-		TreeSet<Pair<String, Integer>> elementList = new TreeSet<>();
-		labelFrequencies.forEach((label, frequency) -> {
-			if (frequency >= minSupport) {
-				elementList.add(new ImmutablePair<String, Integer>(label, -1));
+		int[] labelFrequencies = new int[trees.getNumberOfLabels()];
+		shardLabelFrequencies.forEach(frequencies -> {
+			for (int label = 0; label < labelFrequencies.length; label++) {
+				labelFrequencies[label] += frequencies[label];
 			}
 		});
 
+		// Check which elements have at least the minimal support
+		TreeSet<String> frequentLabels = new TreeSet<>();
+		for (int label = 0; label < labelFrequencies.length; label++) {
+			if (labelFrequencies[label] >= minSupport) {
+				frequentLabels.add(trees.getLabel(label));
+			}
+		}
+
 		// Create equivalence class with empty prefix
-		return new EquivalenceClass("", new ArrayList<Pair<String, Integer>>(elementList));
+		EquivalenceClass f1 = new EquivalenceClass(SubtreePattern.empty(trees));
+		frequentLabels.forEach(label -> f1.addElement(trees.getLabelId(label), -1));
+		return f1;
 	}
 
 	/**
@@ -81,35 +118,332 @@ public class TreeMinerGeneralInitializer {
 	 *            the minimum support for a pattern to be considered frequent
 	 * @return the list of equivalence classes derived from F1 (F2)
 	 */
-	public static List<EquivalenceClass> findFrequentF2Subtrees(EquivalenceClass f1, List<String> trees,
+	public static List<EquivalenceClass> findFrequentF2Subtrees(EquivalenceClass f1, TreeDatabase trees,
 			boolean countMultipleOccurrences, int minSupport) {
+		return findFrequentF2Subtrees(f1, trees, countMultipleOccurrences, minSupport, 1, false, () -> false);
+	}
+
+	/**
+	 * Finds the equivalence classes in F2 derived from the initial equivalence
+	 * class F1. Also finds the scopes of the elements in F1. The trees are
+	 * processed in shards by the given number of threads, which skip the remaining
+	 * trees once the search has been stopped. If only induced subtrees are searched
+	 * for, the second node of the F2 patterns has to be a child of the first node.
+	 * 
+	 * @param f1
+	 *            the initial equivalence class f1
+	 * @param trees
+	 *            the trees in the database for which to find the frequent subtrees
+	 * @param countMultipleOccurrences
+	 *            whether multiple occurrences of a pattern within a tree shall be
+	 *            counted
+	 * @param minSupport
+	 *            the minimum support for a pattern to be considered frequent
+	 * @param parallelism
+	 *            the number of threads that process the trees
+	 * @param onlyInducedSubtrees
+	 *            whether only induced subtrees are searched for
+	 * @param stopped
+	 *            tells whether the search has been stopped, in which case the
+	 *            scope lists of F1 and F2 are incomplete
+	 * @return the list of equivalence classes derived from F1 (F2)
+	 */
+	public static List<EquivalenceClass> findFrequentF2Subtrees(EquivalenceClass f1, TreeDatabase trees,
+			boolean countMultipleOccurrences, int minSupport, int parallelism, boolean onlyInducedSubtrees,
+			BooleanSupplier stopped) {
 
 		if (countMultipleOccurrences) {
-			return TreeMinerNonDistinctInitializer.initialize(f1, trees, minSupport);
+			return TreeMinerNonDistinctInitializer.initialize(f1, trees, minSupport, parallelism,
+					onlyInducedSubtrees, stopped);
 		} else {
-			return TreeMinerDistinctInitializer.initialize(f1, trees, minSupport);
+			return TreeMinerDistinctInitializer.initialize(f1, trees, minSupport, parallelism, onlyInducedSubtrees,
+					stopped);
+		}
+	}
+
+	/**
+	 * Counts the number of distinct trees each F2 pattern made of two labels of F1
+	 * occurs in, without recording its occurrences. Only the pairs of labels that
+	 * are observed in the trees are counted. The trees are processed in shards by
+	 * the given number of threads. If only induced subtrees are searched for, only
+	 * occurrences in which the second node is a child of the first node are
+	 * counted.
+	 * 
+	 * @param f1
+	 *            the initial equivalence class f1
+	 * @param trees
+	 *            the trees in the database for which to find the frequent subtrees
+	 * @param parallelism
+	 *            the number of threads that process the trees
+	 * @param onlyInducedSubtrees
+	 *            whether only induced subtrees are searched for
+	 * @param stopped
+	 *            tells whether the search has been stopped, after which the
+	 *            remaining trees are not counted
+	 * @return the observed label pairs of F2 patterns with their support and
+	 *         without values
+	 */
+	static <V> LabelPairTable<V> countF2PatternSupport(EquivalenceClass f1, TreeDatabase trees, int parallelism,
+			boolean onlyInducedSubtrees, BooleanSupplier stopped) {
+		boolean[] isF1Label = new boolean[trees.getNumberOfLabels()];
+		for (int element = 0; element < f1.getNumberOfElements(); element++) {
+			isF1Label[f1.getElementLabelId(element)] = true;
+		}
+
+		List<LabelPairTable<V>> shardSupports = processTreesInShards(trees.size(), parallelism, (from, to) -> {
+			LabelPairTable<V> support = new LabelPairTable<>();
+			long[] pairs = new long[DEFAULT_CAPACITY];
+			for (int i = from; i < to && !stopped.getAsBoolean(); i++) {
+				int[] nodeLabels = trees.getNodeLabels(i);
+				int[] upperBounds = trees.getScopeUpperBounds(i);
+
+				// Collect the pairs that occur in the tree
+				int numberOfPairs = 0;
+				for (int atNode = 0; atNode < nodeLabels.length; atNode++) {
+					int child = atNode + 1;
+					while (isF1Label[nodeLabels[atNode]] && child <= upperBounds[atNode]) {
+						if (isF1Label[nodeLabels[child]]) {
+							if (numberOfPairs == pairs.length) {
+								pairs = Arrays.copyOf(pairs, 2 * pairs.length);
+							}
+							pairs[numberOfPairs++] = LabelPairTable.pair(nodeLabels[atNode], nodeLabels[child]);
+						}
+						child = onlyInducedSubtrees ? upperBounds[child] + 1 : child + 1;
+					}
+				}
+
+				// Count each pair once per tree
+				Arrays.sort(pairs, 0, numberOfPairs);
+				for (int pair = 0; pair < numberOfPairs; pair++) {
+					if (pair == 0 || pairs[pair] != pairs[pair - 1]) {
+						support.addSupport(pairs[pair], 1);
+					}
+				}
+			}
+			return support;
+		});
+
+		if (shardSupports.size() == 1) {
+			return shardSupports.get(0);
+		}
+		LabelPairTable<V> support = new LabelPairTable<>();
+		shardSupports.forEach(shardSupport -> shardSupport
+				.forEach((pair, shardPairSupport, value) -> support.addSupport(pair, shardPairSupport)));
+		return support;
+	}
+
+	/**
+	 * Finds the patterns of the trees in a tree database.
+	 *
+	 * @param <T>
+	 *            the type of scope list element the patterns are recorded with
+	 */
+	@FunctionalInterface
+	interface PatternsInTreeFinder<T extends SimpleScopeListElement> {
+
+		/**
+		 * Records the occurrences of F1 and F2 patterns in the given tree.
+		 * 
+		 * @param trees
+		 *            the tree database
+		 * @param i
+		 *            the index of the tree
+		 * @param f2ScopeLists
+		 *            gives the scope list of an F2 pattern by the pair of its label
+		 *            ids, or null if it is no candidate
+		 * @param f1ScopeLists
+		 *            gives the scope list of an F1 pattern by its label id, or null if
+		 *            it is no candidate
+		 */
+		void findPatternsInTree(TreeDatabase trees, int i, LongFunction<AScopeListRepresentation<T>> f2ScopeLists,
+				IntFunction<AScopeListRepresentation<T>> f1ScopeLists);
+	}
+
+	/**
+	 * Fills the given candidate scope lists for F1 and F2 with the occurrences of
+	 * their patterns in the trees. With a parallelism greater than 1, each shard of
+	 * trees is recorded into its own scope lists, which are then appended to the
+	 * candidate scope lists in tree index order. The remaining trees are skipped
+	 * once the search has been stopped.
+	 */
+	static <T extends SimpleScopeListElement> void findCandidateScopeLists(TreeDatabase trees, int parallelism,
+			List<AScopeListRepresentation<T>> f1ScopeLists, LabelPairTable<AScopeListRepresentation<T>> f2ScopeLists,
+			Supplier<AScopeListRepresentation<T>> newScopeList, PatternsInTreeFinder<T> finder,
+			BooleanSupplier stopped) {
+		if (parallelism <= 1) {
+			for (int i = 0; i < trees.size() && !stopped.getAsBoolean(); i++) {
+				finder.findPatternsInTree(trees, i, f2ScopeLists::get, f1ScopeLists::get);
+			}
+			return;
+		}
+
+		List<Pair<List<AScopeListRepresentation<T>>, LabelPairTable<AScopeListRepresentation<T>>>> shards = processTreesInShards(
+				trees.size(), parallelism, (from, to) -> {
+					List<AScopeListRepresentation<T>> shardF1ScopeLists = new ArrayList<>(
+							Collections.nCopies(f1ScopeLists.size(), null));
+					LabelPairTable<AScopeListRepresentation<T>> shardF2ScopeLists = new LabelPairTable<>();
+					for (int i = from; i < to && !stopped.getAsBoolean(); i++) {
+						finder.findPatternsInTree(trees, i, pair -> {
+							AScopeListRepresentation<T> scopeList = shardF2ScopeLists.get(pair);
+							if (scopeList == null && f2ScopeLists.get(pair) != null) {
+								scopeList = newScopeList.get();
+								shardF2ScopeLists.put(pair, scopeList);
+							}
+							return scopeList;
+						}, labelId -> {
+							AScopeListRepresentation<T> scopeList = shardF1ScopeLists.get(labelId);
+							if (scopeList == null && f1ScopeLists.get(labelId) != null) {
+								scopeList = newScopeList.get();
+								shardF1ScopeLists.set(labelId, scopeList);
+							}
+							return scopeList;
+						});
+					}
+					return new ImmutablePair<>(shardF1ScopeLists, shardF2ScopeLists);
+				});
+
+		// Shards are returned in tree index order, so appending keeps the lists sorted
+		shards.forEach(shard -> {
+			for (int labelId = 0; labelId < f1ScopeLists.size(); labelId++) {
+				if (shard.getLeft().get(labelId) != null) {
+					f1ScopeLists.get(labelId).addAll(shard.getLeft().get(labelId));
+				}
+			}
+			shard.getRight().forEach((pair, support, scopeList) -> f2ScopeLists.get(pair).addAll(scopeList));
+		});
+	}
+
+	/**
+	 * Creates the scope lists of the elements of F1, which are returned by the
+	 * label ids of the elements.
+	 * 
+	 * @param f1
+	 *            the initial equivalence class f1
+	 * @param trees
+	 *            the trees in the database for which to find the frequent subtrees
+	 * @param newScopeList
+	 *            creates an empty scope list
+	 * @return the scope lists by label id, or null for labels that are not in F1
+	 */
+	static <T extends SimpleScopeListElement> List<AScopeListRepresentation<T>> createF1ScopeLists(
+			EquivalenceClass f1, TreeDatabase trees, Supplier<AScopeListRepresentation<T>> newScopeList) {
+		List<AScopeListRepresentation<T>> f1ScopeLists = new ArrayList<>(
+				Collections.nCopies(trees.getNumberOfLabels(), null));
+		for (int element = 0; element < f1.getNumberOfElements(); element++) {
+			AScopeListRepresentation<T> scopeList = newScopeList.get();
+			f1ScopeLists.set(f1.getElementLabelId(element), scopeList);
+			f1.setScopeList(element, scopeList);
 		}
+		return f1ScopeLists;
 	}
 
 	/**
-	 * Generate all possible equivalence classes with a one-node prefix from the
-	 * equivalence class F1 that has an empty prefix.
+	 * Creates an empty scope list for each observed F2 pattern that is frequent
+	 * according to its counted support.
+	 * 
+	 * @param f2ScopeLists
+	 *            the observed label pairs of F2 patterns with their support
+	 * @param minSupport
+	 *            the minimum support for a pattern to be considered frequent
+	 * @param newScopeList
+	 *            creates an empty scope list
+	 */
+	static <T extends SimpleScopeListElement> void createF2ScopeLists(
+			LabelPairTable<AScopeListRepresentation<T>> f2ScopeLists, int minSupport,
+			Supplier<AScopeListRepresentation<T>> newScopeList) {
+		f2ScopeLists.forEach((pair, support, scopeList) -> {
+			if (support >= minSupport) {
+				f2ScopeLists.put(pair, newScopeList.get());
+			}
+		});
+	}
+
+	/**
+	 * Creates the equivalence classes F2 from the F2 patterns that have a scope
+	 * list. Both the classes and their elements are ordered like the elements of
+	 * F1. Elements whose scope list is not frequent are discarded.
 	 * 
 	 * @param f1
-	 *            the initial equivalence class with an empty prefix
-	 * @return candidate equivalence classes F2
+	 *            the initial equivalence class f1
+	 * @param f2ScopeLists
+	 *            the label pairs of the F2 patterns with their scope lists
+	 * @param minSupport
+	 *            the minimum support for a pattern to be considered frequent
+	 * @return the equivalence classes F2
+	 */
+	static <T extends SimpleScopeListElement> List<EquivalenceClass> createF2EquivalenceClasses(EquivalenceClass f1,
+			LabelPairTable<AScopeListRepresentation<T>> f2ScopeLists, int minSupport) {
+		int[] elementOfLabel = new int[f1.getPrefixPattern().getTreeDatabase().getNumberOfLabels()];
+		for (int element = 0; element < f1.getNumberOfElements(); element++) {
+			elementOfLabel[f1.getElementLabelId(element)] = element;
+		}
+
+		// Order the patterns by the positions of their labels in F1
+		long[] elementPairs = new long[f2ScopeLists.size()];
+		int[] numberOfPairs = new int[1];
+		f2ScopeLists.forEach((pair, support, scopeList) -> {
+			if (scopeList != null) {
+				elementPairs[numberOfPairs[0]++] = LabelPairTable.pair(elementOfLabel[LabelPairTable.first(pair)],
+						elementOfLabel[LabelPairTable.second(pair)]);
+			}
+		});
+		Arrays.sort(elementPairs, 0, numberOfPairs[0]);
+
+		List<EquivalenceClass> equivalenceClasses = new ArrayList<>();
+		EquivalenceClass equivalenceClass = null;
+		for (int pair = 0; pair < numberOfPairs[0]; pair++) {
+			int x = LabelPairTable.first(elementPairs[pair]);
+			int y = LabelPairTable.second(elementPairs[pair]);
+			if (pair == 0 || x != LabelPairTable.first(elementPairs[pair - 1])) {
+				equivalenceClass = new EquivalenceClass(
+						f1.getPrefixPattern().extend(f1.getElementLabelId(x), f1.getElementPosition(x)));
+				equivalenceClasses.add(equivalenceClass);
+			}
+			equivalenceClass.addElement(f1.getElementLabelId(y), 0, f2ScopeLists
+					.get(LabelPairTable.pair(f1.getElementLabelId(x), f1.getElementLabelId(y))));
+		}
+
+		equivalenceClasses.forEach(candidate -> candidate.discardNonFrequentElements(minSupport));
+		equivalenceClasses.removeIf(candidate -> candidate.getNumberOfElements() == 0);
+		return equivalenceClasses;
+	}
+
+	/**
+	 * Splits the trees into contiguous shards and processes them with the given
+	 * number of threads.
+	 * 
+	 * @param numTrees
+	 *            the number of trees
+	 * @param parallelism
+	 *            the number of threads
+	 * @param processShard
+	 *            processes the trees from the first (inclusive) to the second
+	 *            (exclusive) given index
+	 * @return the results for the shards in tree index order
 	 */
-	public static List<EquivalenceClass> generateCandidateEquivalenceClassesF2(EquivalenceClass f1) {
-		List<EquivalenceClass> candidateEquivalenceClasses = new ArrayList<>();
-		List<Pair<String, Integer>> f1Elements = f1.getElementList();
-		for (int i = 0; i < f1Elements.size(); i++) {
-			List<Pair<String, Integer>> elementList = new ArrayList<>();
-			for (int j = 0; j < f1Elements.size(); j++) {
-				elementList.add(new ImmutablePair<String, Integer>(f1Elements.get(j).getLeft(), 0));
+	static <T> List<T> processTreesInShards(int numTrees, int parallelism,
+			BiFunction<Integer, Integer, T> processShard) {
+		if (parallelism <= 1 || numTrees <= 1) {
+			return Collections.singletonList(processShard.apply(0, numTrees));
+		}
+
+		// Use more shards than threads so that threads that finish early can help out
+		int numShards = Math.min(numTrees, parallelism * SHARDS_PER_THREAD);
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			List<ForkJoinTask<T>> tasks = new ArrayList<>();
+			for (int shard = 0; shard < numShards; shard++) {
+				int from = (int) ((long) numTrees * shard / numShards);
+				int to = (int) ((long) numTrees * (shard + 1) / numShards);
+				tasks.add(pool.submit(() -> processShard.apply(from, to)));
 			}
-			candidateEquivalenceClasses.add(new EquivalenceClass(f1Elements.get(i).getLeft(), elementList));
+
+			List<T> results = new ArrayList<>();
+			tasks.forEach(task -> results.add(task.join()));
+			return results;
+		} finally {
+			pool.shutdown();
 		}
-		return candidateEquivalenceClasses;
 	}
 
 }
@@ -0,0 +1,35 @@
+package treeminer.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * The creation of an equivalence class by expanding an element of another
+ * class, i.e. finding the elements of the new class by joining the scope lists
+ * of the other class, if it takes longer than the threshold, which can be
+ * changed in the settings of a recording.
+ *
+ * @author Helena Graf
+ *
+ */
+@Name("treeminer.EquivalenceClassExpanded")
+@Label("Equivalence Class Expanded")
+@Category("TreeMiner")
+@Description("The creation of an equivalence class by expanding an element")
+@Threshold("1 ms")
+@StackTrace(false)
+public class EquivalenceClassExpandedEvent extends Event {
+
+	@Label("Prefix")
+	@Description("The prefix of the new equivalence class")
+	String prefix;
+
+	@Label("Elements")
+	@Description("The number of elements of the new equivalence class")
+	int elements;
+}
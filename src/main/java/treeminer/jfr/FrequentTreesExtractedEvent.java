@@ -0,0 +1,38 @@
+package treeminer.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * The extraction of the frequent subtrees that occur directly from an
+ * equivalence class, if it takes longer than the threshold, which can be
+ * changed in the settings of a recording.
+ *
+ * @author Helena Graf
+ *
+ */
+@Name("treeminer.FrequentTreesExtracted")
+@Label("Frequent Trees Extracted")
+@Category("TreeMiner")
+@Description("The extraction of the frequent subtrees from an equivalence class")
+@Threshold("1 ms")
+@StackTrace(false)
+public class FrequentTreesExtractedEvent extends Event {
+
+	@Label("Prefix")
+	@Description("The prefix of the equivalence class")
+	String prefix;
+
+	@Label("Elements")
+	@Description("The number of elements of the equivalence class")
+	int elements;
+
+	@Label("Patterns")
+	@Description("The number of extracted frequent subtrees")
+	int patterns;
+}
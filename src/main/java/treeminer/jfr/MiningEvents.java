@@ -0,0 +1,220 @@
+package treeminer.jfr;
+
+import treeminer.EquivalenceClass;
+import treeminer.MiningStatistics.Phase;
+import treeminer.SubtreePattern;
+import treeminer.scopelists.elements.SimpleScopeListElement;
+import treeminer.scopelists.representation.AScopeListRepresentation;
+
+/**
+ * Emits the Java Flight Recorder events of the tree mining algorithm. An event
+ * is begun before the step it records and committed after it, and is only
+ * written if it is enabled in a running recording and exceeds its threshold, in
+ * which case its fields are set. Otherwise, the event costs next to nothing,
+ * since the JIT compiler removes events that are never committed.
+ *
+ * <p>
+ * The JFR API is available from JDK 8u262 and JDK 11 on. On older JVMs, no
+ * events are created, and the event classes are never loaded.
+ * </p>
+ *
+ * @author Helena Graf
+ *
+ */
+public final class MiningEvents {
+
+	/**
+	 * The kinds of scope list joins.
+	 */
+	public enum JoinKind {
+		/** a y node attached below the rightmost node of x */
+		IN_SCOPE,
+		/** a y node attached after the rightmost node of x */
+		OUT_SCOPE,
+		/** a y node that is a child of the rightmost node of x */
+		INDUCED_IN_SCOPE,
+		/** a y node that is a child of a node on the rightmost path of x */
+		INDUCED_OUT_SCOPE
+	}
+
+	private static final boolean AVAILABLE = isJfrAvailable();
+
+	private MiningEvents() {
+	}
+
+	private static boolean isJfrAvailable() {
+		try {
+			Class.forName("jdk.jfr.Event");
+			return true;
+		} catch (ClassNotFoundException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Get whether the JFR API is available, so that events are emitted.
+	 *
+	 * @return whether the JFR API is available
+	 */
+	public static boolean isAvailable() {
+		return AVAILABLE;
+	}
+
+	/**
+	 * Begins an event for a phase of a search.
+	 *
+	 * @return the begun event, or null if the JFR API is not available
+	 */
+	public static MiningPhaseEvent beginPhase() {
+		if (!AVAILABLE) {
+			return null;
+		}
+		MiningPhaseEvent event = new MiningPhaseEvent();
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * Ends the given event for a phase and commits it if it shall be recorded.
+	 *
+	 * @param event
+	 *            the event returned by {@link #beginPhase()}
+	 * @param phase
+	 *            the phase that has ended
+	 */
+	public static void commitPhase(MiningPhaseEvent event, Phase phase) {
+		if (event == null) {
+			return;
+		}
+		event.end();
+		if (event.shouldCommit()) {
+			event.phase = phase.name();
+			event.commit();
+		}
+	}
+
+	/**
+	 * Begins an event for the expansion of an element of an equivalence class.
+	 *
+	 * @return the begun event, or null if the JFR API is not available
+	 */
+	public static EquivalenceClassExpandedEvent beginExpansion() {
+		if (!AVAILABLE) {
+			return null;
+		}
+		EquivalenceClassExpandedEvent event = new EquivalenceClassExpandedEvent();
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * Ends the given event for an expansion and commits it if it shall be
+	 * recorded.
+	 *
+	 * @param event
+	 *            the event returned by {@link #beginExpansion()}
+	 * @param prefix
+	 *            the prefix of the new equivalence class
+	 * @param numberOfElements
+	 *            the number of elements of the new equivalence class
+	 */
+	public static void commitExpansion(EquivalenceClassExpandedEvent event, SubtreePattern prefix,
+			int numberOfElements) {
+		if (event == null) {
+			return;
+		}
+		event.end();
+		if (event.shouldCommit()) {
+			event.prefix = prefix.toString();
+			event.elements = numberOfElements;
+			event.commit();
+		}
+	}
+
+	/**
+	 * Begins an event for a join of two scope lists.
+	 *
+	 * @return the begun event, or null if the JFR API is not available
+	 */
+	public static ScopeListJoinEvent beginJoin() {
+		if (!AVAILABLE) {
+			return null;
+		}
+		ScopeListJoinEvent event = new ScopeListJoinEvent();
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * Ends the given event for a join and commits it if it shall be recorded.
+	 *
+	 * @param event
+	 *            the event returned by {@link #beginJoin()}
+	 * @param kind
+	 *            the kind of the join
+	 * @param xScopeList
+	 *            the scope list of the x element
+	 * @param yScopeList
+	 *            the scope list of the y element
+	 * @param newScopeList
+	 *            the scope list resulting from the join
+	 */
+	public static void commitJoin(ScopeListJoinEvent event, JoinKind kind,
+			AScopeListRepresentation<? extends SimpleScopeListElement> xScopeList,
+			AScopeListRepresentation<? extends SimpleScopeListElement> yScopeList,
+			AScopeListRepresentation<? extends SimpleScopeListElement> newScopeList) {
+		if (event == null) {
+			return;
+		}
+		event.end();
+		if (event.shouldCommit()) {
+			event.kind = kind.name();
+			event.xSize = xScopeList.size();
+			event.ySize = yScopeList.size();
+			event.outputSize = newScopeList.size();
+			event.commit();
+		}
+	}
+
+	/**
+	 * Begins an event for the extraction of the frequent subtrees from an
+	 * equivalence class.
+	 *
+	 * @return the begun event, or null if the JFR API is not available
+	 */
+	public static FrequentTreesExtractedEvent beginExtraction() {
+		if (!AVAILABLE) {
+			return null;
+		}
+		FrequentTreesExtractedEvent event = new FrequentTreesExtractedEvent();
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * Ends the given event for an extraction and commits it if it shall be
+	 * recorded.
+	 *
+	 * @param event
+	 *            the event returned by {@link #beginExtraction()}
+	 * @param equivalenceClass
+	 *            the equivalence class the subtrees have been extracted from
+	 * @param numberOfElements
+	 *            the number of elements of the class before the extraction
+	 * @param numberOfPatterns
+	 *            the number of extracted subtrees
+	 */
+	public static void commitExtraction(FrequentTreesExtractedEvent event, EquivalenceClass equivalenceClass,
+			int numberOfElements, int numberOfPatterns) {
+		if (event == null) {
+			return;
+		}
+		event.end();
+		if (event.shouldCommit()) {
+			event.prefix = equivalenceClass.getPrefix();
+			event.elements = numberOfElements;
+			event.patterns = numberOfPatterns;
+			event.commit();
+		}
+	}
+}
@@ -0,0 +1,25 @@
+package treeminer.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A phase of a search, such as finding the frequent subtrees of one or two
+ * nodes during the initialization.
+ *
+ * @author Helena Graf
+ *
+ */
+@Name("treeminer.MiningPhase")
+@Label("Mining Phase")
+@Category("TreeMiner")
+@Description("A phase of a search for frequent subtrees")
+public class MiningPhaseEvent extends Event {
+
+	@Label("Phase")
+	@Description("The name of the phase")
+	String phase;
+}
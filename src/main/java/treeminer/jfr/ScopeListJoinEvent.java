@@ -0,0 +1,41 @@
+package treeminer.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * A join of two scope lists that takes longer than the threshold, which can be
+ * changed in the settings of a recording.
+ *
+ * @author Helena Graf
+ *
+ */
+@Name("treeminer.ScopeListJoin")
+@Label("Scope List Join")
+@Category("TreeMiner")
+@Description("A join of two scope lists")
+@Threshold("1 ms")
+@StackTrace(false)
+public class ScopeListJoinEvent extends Event {
+
+	@Label("Kind")
+	@Description("The kind of the join")
+	String kind;
+
+	@Label("X Size")
+	@Description("The number of occurrences of the x scope list")
+	int xSize;
+
+	@Label("Y Size")
+	@Description("The number of occurrences of the y scope list")
+	int ySize;
+
+	@Label("Output Size")
+	@Description("The number of occurrences of the resulting scope list")
+	int outputSize;
+}
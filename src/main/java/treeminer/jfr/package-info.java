@@ -0,0 +1,8 @@
+/**
+ * Contains the Java Flight Recorder events that are emitted by the tree mining
+ * algorithm, and the class that emits them if the JFR API is available.
+ *
+ * @author Helena Graf
+ *
+ */
+package treeminer.jfr;
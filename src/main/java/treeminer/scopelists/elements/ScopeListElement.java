@@ -7,12 +7,19 @@ import treeminer.Scope;
  * also keeps track of the match label and the scope of the last node of the
  * pattern.
  * 
+ * <p>
+ * The match label identifies the occurrence of the prefix of the pattern that
+ * this occurrence extends. It is represented by the pre-order number of the
+ * node in the tree that the root of the prefix is matched to, so that match
+ * labels can be compared by integer equality.
+ * </p>
+ * 
  * @author Helena Graf
  *
  */
 public class ScopeListElement extends SimpleScopeListElement {
 
-	private String matchLabel;
+	private int matchLabel;
 	private Scope scope;
 
 	/**
@@ -22,23 +29,40 @@ public class ScopeListElement extends SimpleScopeListElement {
 	 *            the tree the pattern that this scope list element refers to occurs
 	 *            in
 	 * @param matchLabel
-	 *            the match label for this pattern occurrence in the tree
+	 *            the id of the match label for this pattern occurrence in the tree
+	 * @param scope
+	 *            the scope of the rightmost node of this pattern occurrence
+	 */
+	public ScopeListElement(int tree, int matchLabel, Scope scope) {
+		this(tree, matchLabel, scope, false);
+	}
+
+	/**
+	 * Construct a new scope list element with the given parameters.
+	 * 
+	 * @param tree
+	 *            the tree the pattern that this scope list element refers to occurs
+	 *            in
+	 * @param matchLabel
+	 *            the id of the match label for this pattern occurrence in the tree
 	 * @param scope
 	 *            the scope of the rightmost node of this pattern occurrence
+	 * @param induced
+	 *            whether the pattern occurrence is induced
 	 */
-	public ScopeListElement(int tree, String matchLabel, Scope scope) {
-		super(tree);
+	public ScopeListElement(int tree, int matchLabel, Scope scope, boolean induced) {
+		super(tree, induced);
 
 		this.matchLabel = matchLabel;
 		this.scope = scope;
 	}
 
 	/**
-	 * Get the match label for this scope list element.
+	 * Get the id of the match label for this scope list element.
 	 * 
-	 * @return the match label
+	 * @return the match label id
 	 */
-	public String getMatchLabel() {
+	public int getMatchLabel() {
 		return matchLabel;
 	}
 
@@ -24,7 +24,21 @@ public class ScopeVectorListElement extends SimpleScopeListElement {
 	 *            the node scopes of the rightmost path of the pattern
 	 */
 	public ScopeVectorListElement(int tree, List<Scope> scopes) {
-		super(tree);
+		this(tree, scopes, false);
+	}
+
+	/**
+	 * Construct a new scope vector list element with the given parameters.
+	 * 
+	 * @param tree
+	 *            the tree that the pattern occurs in
+	 * @param scopes
+	 *            the node scopes of the rightmost path of the pattern
+	 * @param induced
+	 *            whether the pattern occurrence is induced
+	 */
+	public ScopeVectorListElement(int tree, List<Scope> scopes, boolean induced) {
+		super(tree, induced);
 		this.scopes = scopes;
 	}
 
@@ -2,7 +2,9 @@ package treeminer.scopelists.elements;
 
 /**
  * Represents a simple scope list element that only keeps track of the tree a
- * pattern occurs in.
+ * pattern occurs in, and whether the occurrence is induced, that is, whether
+ * each edge of the pattern is matched to an edge of the tree rather than to a
+ * path. Whether an occurrence is induced does not take part in comparisons.
  * 
  * @author Helena Graf
  *
@@ -10,16 +12,33 @@ package treeminer.scopelists.elements;
 public abstract class SimpleScopeListElement implements Comparable<SimpleScopeListElement> {
 
 	private int tree;
+	private boolean induced;
 
 	/**
 	 * Constructs a new simple scope list element that keeps track of the tree the
-	 * patter this element references occurs in.
+	 * patter this element references occurs in. The occurrence is not marked as
+	 * induced.
 	 * 
 	 * @param tree
 	 *            the tree this pattern occurs in
 	 */
 	public SimpleScopeListElement(int tree) {
+		this(tree, false);
+	}
+
+	/**
+	 * Constructs a new simple scope list element that keeps track of the tree the
+	 * patter this element references occurs in and whether the occurrence is
+	 * induced.
+	 * 
+	 * @param tree
+	 *            the tree this pattern occurs in
+	 * @param induced
+	 *            whether the occurrence is induced
+	 */
+	public SimpleScopeListElement(int tree, boolean induced) {
 		this.tree = tree;
+		this.induced = induced;
 	}
 
 	/**
@@ -31,6 +50,15 @@ public abstract class SimpleScopeListElement implements Comparable<SimpleScopeLi
 		return tree;
 	}
 
+	/**
+	 * Get whether this occurrence of the pattern is induced.
+	 * 
+	 * @return whether the occurrence is induced
+	 */
+	public boolean isInduced() {
+		return induced;
+	}
+
 	@Override
 	public int compareTo(SimpleScopeListElement o) {
 		return this.tree - o.tree;
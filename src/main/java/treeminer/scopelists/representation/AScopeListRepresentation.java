@@ -1,13 +1,17 @@
 package treeminer.scopelists.representation;
 
+import java.util.Arrays;
 import java.util.Iterator;
-import java.util.TreeSet;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
 
+import treeminer.TreeDatabase;
 import treeminer.scopelists.elements.SimpleScopeListElement;
 
 /**
  * An abstract representation of a scope list that keeps track of pattern
- * occurrences.
+ * occurrences. How the occurrences are stored is up to the implementation, but
+ * they are always kept sorted and free of duplicates.
  * 
  * @author Helena Graf
  *
@@ -16,25 +20,105 @@ import treeminer.scopelists.elements.SimpleScopeListElement;
  */
 public abstract class AScopeListRepresentation<T extends SimpleScopeListElement> implements Iterable<T> {
 
-	private TreeSet<T> elements = new TreeSet<>();
+	/** The trees the occurrences are found in as a bitset, built on demand */
+	private volatile TreeBits treeBits;
+	/** The number of times the trees of this list have been compared with another list, counted loosely */
+	private int numberOfTreeComparisons;
 
 	/**
-	 * Perform an in scope join with the other scope list.
+	 * Perform an in scope join with the other scope list. No occurrence of the
+	 * result is marked as induced.
 	 * 
 	 * @param other
 	 *            the other scope list representation
 	 * @return a new scope list that is the result of the join
 	 */
-	public abstract AScopeListRepresentation<T> inScopeJoin(AScopeListRepresentation<T> other);
+	public AScopeListRepresentation<T> inScopeJoin(AScopeListRepresentation<T> other) {
+		return inScopeJoin(other, null);
+	}
+
+	/**
+	 * Perform an in scope join with the other scope list. An occurrence of the
+	 * result is marked as induced if it extends an induced occurrence of this list
+	 * by a child of its rightmost node.
+	 * 
+	 * @param other
+	 *            the other scope list representation
+	 * @param trees
+	 *            the database of trees the occurrences are found in, or null if
+	 *            induced occurrences are not tracked
+	 * @return a new scope list that is the result of the join
+	 */
+	public abstract AScopeListRepresentation<T> inScopeJoin(AScopeListRepresentation<T> other, TreeDatabase trees);
+
+	/**
+	 * Perform an out scope join with the other scope list. No occurrence of the
+	 * result is marked as induced.
+	 * 
+	 * @param other
+	 *            the other scope list representation
+	 * @param attachedTo
+	 *            the node that the new node is attached to
+	 * @return a new scope list that is the result of the join
+	 */
+	public AScopeListRepresentation<T> outScopeJoin(AScopeListRepresentation<T> other, int attachedTo) {
+		return outScopeJoin(other, attachedTo, 0, 0, null);
+	}
 
 	/**
-	 * Perform an out scope join with the other scope list.
+	 * Perform an out scope join with the other scope list. An occurrence of the
+	 * result is marked as induced if it extends an induced occurrence of this list
+	 * by a child of the node the new node is attached to.
 	 * 
 	 * @param other
 	 *            the other scope list representation
+	 * @param attachedTo
+	 *            the node that the new node is attached to
+	 * @param attachedToDepth
+	 *            the depth of the node the new node is attached to in the pattern
+	 * @param rightmostNodeDepth
+	 *            the depth of the rightmost node of the occurrences in this list in
+	 *            the pattern
+	 * @param trees
+	 *            the database of trees the occurrences are found in, or null if
+	 *            induced occurrences are not tracked (then the depths are ignored)
 	 * @return a new scope list that is the result of the join
 	 */
-	public abstract AScopeListRepresentation<T> outScopeJoin(AScopeListRepresentation<T> other, int attachedTo);
+	public abstract AScopeListRepresentation<T> outScopeJoin(AScopeListRepresentation<T> other, int attachedTo,
+			int attachedToDepth, int rightmostNodeDepth, TreeDatabase trees);
+
+	/**
+	 * Perform an in scope join with the occurrences of a pattern of two nodes, so
+	 * that only occurrences in which the node added by the join is a child of the
+	 * rightmost node of an occurrence in this list are produced (induced
+	 * occurrences).
+	 * 
+	 * @param childOccurrences
+	 *            the occurrences of the pattern that consists of the label of the
+	 *            rightmost node of the occurrences in this list with the label of
+	 *            the added node as its child
+	 * @return a new scope list that is the result of the join
+	 */
+	public abstract AScopeListRepresentation<T> inducedInScopeJoin(AScopeListRepresentation<T> childOccurrences);
+
+	/**
+	 * Perform an out scope join with the other scope list, so that only
+	 * occurrences in which the node added by the join is a child of the node it is
+	 * attached to are produced (induced occurrences).
+	 * 
+	 * @param other
+	 *            the other scope list representation
+	 * @param attachedToDepth
+	 *            the depth of the node the added node is attached to in the pattern
+	 * @param rightmostNodeDepth
+	 *            the depth of the rightmost node of the occurrences in this list in
+	 *            the pattern
+	 * @param trees
+	 *            the database of trees the occurrences are found in
+	 * @return a new scope list that is the result of the join
+	 */
+	public abstract AScopeListRepresentation<T> inducedOutScopeJoin(AScopeListRepresentation<T> other,
+			int attachedToDepth, int rightmostNodeDepth, TreeDatabase trees);
 
 	/**
 	 * Add the given element to this scope list representation.
@@ -42,8 +126,16 @@ public abstract class AScopeListRepresentation<T extends SimpleScopeListElement>
 	 * @param element
 	 *            the element to add
 	 */
-	public void add(T element) {
-		elements.add(element);
+	public abstract void add(T element);
+
+	/**
+	 * Add all elements of the given scope list to this scope list representation.
+	 * 
+	 * @param other
+	 *            the scope list whose elements to add
+	 */
+	public void addAll(AScopeListRepresentation<T> other) {
+		other.forEach(this::add);
 	}
 
 	/**
@@ -51,8 +143,253 @@ public abstract class AScopeListRepresentation<T extends SimpleScopeListElement>
 	 * 
 	 * @return the size
 	 */
-	public int size() {
-		return elements.size();
+	public abstract int size();
+
+	/**
+	 * Get the number of distinct trees the occurrences in this scope list are
+	 * found in, which is the support of the pattern. The number is kept up to date
+	 * while elements are added, so it is available without iterating the list.
+	 * 
+	 * @return the number of distinct trees
+	 */
+	public abstract int getNumberOfTrees();
+
+	/**
+	 * Get whether this scope list contains an induced occurrence.
+	 * 
+	 * @return whether an occurrence is induced
+	 */
+	public boolean containsInducedOccurrence() {
+		for (T element : this) {
+			if (element.isInduced()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Get the number of occurrences in this scope list that are in a tree that
+	 * contains an induced occurrence.
+	 * 
+	 * @return the number of occurrences in trees with an induced occurrence
+	 */
+	public int getInducedSupport() {
+		// Elements are sorted by tree, so the elements of a tree are counted together
+		int support = 0;
+		int tree = -1;
+		int elementsOfTree = 0;
+		boolean inducedInTree = false;
+		for (T element : this) {
+			if (element.getTreeIndex() != tree) {
+				support += inducedInTree ? elementsOfTree : 0;
+				tree = element.getTreeIndex();
+				elementsOfTree = 0;
+				inducedInTree = false;
+			}
+			elementsOfTree++;
+			inducedInTree |= element.isInduced();
+		}
+		return support + (inducedInTree ? elementsOfTree : 0);
+	}
+
+	/**
+	 * Get the indices of the distinct trees the occurrences in this scope list are
+	 * found in, in ascending order.
+	 * 
+	 * @return an iterator over the tree indices
+	 */
+	protected PrimitiveIterator.OfInt treeIndexIterator() {
+		Iterator<T> elements = iterator();
+		return new PrimitiveIterator.OfInt() {
+
+			private int nextTree = elements.hasNext() ? elements.next().getTreeIndex() : -1;
+
+			@Override
+			public boolean hasNext() {
+				return nextTree >= 0;
+			}
+
+			@Override
+			public int nextInt() {
+				if (nextTree < 0) {
+					throw new NoSuchElementException();
+				}
+				int tree = nextTree;
+				nextTree = -1;
+				while (nextTree < 0 && elements.hasNext()) {
+					int elementTree = elements.next().getTreeIndex();
+					nextTree = elementTree != tree ? elementTree : -1;
+				}
+				return tree;
+			}
+		};
+	}
+
+	/**
+	 * Get whether the occurrences in this scope list and in the other scope list
+	 * are found in at least the given number of common trees. Since a join only
+	 * produces occurrences in trees that both lists have occurrences in, a join
+	 * whose result has to be found in the given number of trees can be skipped
+	 * otherwise.
+	 * 
+	 * <p>
+	 * The trees of a list are kept as a bitset from the second comparison on, so
+	 * that lists which are only joined once do not keep one. The bitset only covers
+	 * the range between the first and the last tree of the list, and lists with
+	 * fewer trees than words in that range do not keep one either, since merging
+	 * their tree indices is cheaper than intersecting the bitsets.
+	 * </p>
+	 * 
+	 * @param other
+	 *            the other scope list
+	 * @param numberOfTrees
+	 *            the number of common trees
+	 * @return whether the lists have at least the given number of common trees
+	 */
+	public boolean sharesTreesWith(AScopeListRepresentation<?> other, int numberOfTrees) {
+		if (numberOfTrees <= 0) {
+			return true;
+		} else if (getNumberOfTrees() < numberOfTrees || other.getNumberOfTrees() < numberOfTrees) {
+			return false;
+		}
+
+		TreeBits bits = getTreeBitsIfWorthwhile();
+		TreeBits otherBits = other.getTreeBitsIfWorthwhile();
+		if (bits != null && otherBits != null) {
+			return bits.countCommonTrees(otherBits, numberOfTrees) >= numberOfTrees;
+		} else if (bits != null) {
+			return bits.countTrees(other.treeIndexIterator(), numberOfTrees) >= numberOfTrees;
+		} else if (otherBits != null) {
+			return otherBits.countTrees(treeIndexIterator(), numberOfTrees) >= numberOfTrees;
+		}
+
+		PrimitiveIterator.OfInt trees = treeIndexIterator();
+		PrimitiveIterator.OfInt otherTrees = other.treeIndexIterator();
+		int commonTrees = 0;
+		int tree = trees.nextInt();
+		int otherTree = otherTrees.nextInt();
+		while (true) {
+			if (tree == otherTree && ++commonTrees >= numberOfTrees) {
+				return true;
+			}
+			if (tree <= otherTree) {
+				if (!trees.hasNext()) {
+					return false;
+				}
+				tree = trees.nextInt();
+			} else {
+				if (!otherTrees.hasNext()) {
+					return false;
+				}
+				otherTree = otherTrees.nextInt();
+			}
+		}
+	}
+
+	/**
+	 * Get the bitset of the trees of this list if it is compared for the second
+	 * time or more and is dense enough for a bitset.
+	 * 
+	 * @return the bitset, or null if the trees shall be merged instead
+	 */
+	private TreeBits getTreeBitsIfWorthwhile() {
+		// An element of a new tree always increases the size of the list
+		int currentSize = size();
+		TreeBits bits = treeBits;
+		if (bits == null || bits.size != currentSize) {
+			if (++numberOfTreeComparisons < 2) {
+				return null;
+			}
+			bits = TreeBits.of(currentSize, getNumberOfTrees(), treeIndexIterator());
+			treeBits = bits;
+		}
+		return bits.words != null ? bits : null;
+	}
+
+	/**
+	 * The trees of a scope list as a bitset that starts at the word of the first
+	 * tree, in which bit t of word t / 64 - firstWord is set if tree t contains an
+	 * occurrence.
+	 */
+	private static final class TreeBits {
+
+		/** The size of the list when the bitset was built */
+		private final int size;
+		private final int firstWord;
+		/** The words of the bitset, or null if the list has too few trees for a bitset */
+		private final long[] words;
+
+		private TreeBits(int size, int firstWord, long[] words) {
+			this.size = size;
+			this.firstWord = firstWord;
+			this.words = words;
+		}
+
+		private static TreeBits of(int size, int numberOfTrees, PrimitiveIterator.OfInt trees) {
+			if (!trees.hasNext()) {
+				return new TreeBits(size, 0, null);
+			}
+			int firstTree = trees.nextInt();
+			int firstWord = firstTree >>> 6;
+			long[] words = new long[Math.min(numberOfTrees, 16)];
+			words[0] = 1L << firstTree;
+			int length = 1;
+			while (trees.hasNext()) {
+				int tree = trees.nextInt();
+				int word = (tree >>> 6) - firstWord;
+				if (word >= numberOfTrees) {
+					// More words than trees, so merging the tree indices is cheaper
+					return new TreeBits(size, 0, null);
+				} else if (word >= words.length) {
+					words = Arrays.copyOf(words, Math.min(numberOfTrees, Math.max(word + 1, 2 * words.length)));
+				}
+				words[word] |= 1L << tree;
+				length = word + 1;
+			}
+			return new TreeBits(size, firstWord, Arrays.copyOf(words, length));
+		}
+
+		private int countCommonTrees(TreeBits other, int numberOfTrees) {
+			int commonTrees = 0;
+			int from = Math.max(firstWord, other.firstWord);
+			int to = Math.min(firstWord + words.length, other.firstWord + other.words.length);
+			for (int word = from; word < to && commonTrees < numberOfTrees; word++) {
+				commonTrees += Long.bitCount(words[word - firstWord] & other.words[word - other.firstWord]);
+			}
+			return commonTrees;
+		}
+
+		private int countTrees(PrimitiveIterator.OfInt trees, int numberOfTrees) {
+			int commonTrees = 0;
+			while (trees.hasNext() && commonTrees < numberOfTrees) {
+				int tree = trees.nextInt();
+				int word = (tree >>> 6) - firstWord;
+				if (word >= words.length) {
+					break;
+				}
+				commonTrees += word >= 0 ? (int) (words[word] >>> (tree & 63) & 1) : 0;
+			}
+			return commonTrees;
+		}
+	}
+
+	/**
+	 * Get the number of distinct trees that contain an induced occurrence in this
+	 * scope list.
+	 * 
+	 * @return the number of trees with an induced occurrence
+	 */
+	public int getNumberOfInducedTrees() {
+		int numberOfTrees = 0;
+		int lastInducedTree = -1;
+		for (T element : this) {
+			if (element.isInduced() && element.getTreeIndex() != lastInducedTree) {
+				lastInducedTree = element.getTreeIndex();
+				numberOfTrees++;
+			}
+		}
+		return numberOfTrees;
 	}
 
 	/**
@@ -61,16 +398,20 @@ public abstract class AScopeListRepresentation<T extends SimpleScopeListElement>
 	 * @return if this scope list is empty
 	 */
 	public boolean isEmpty() {
-		return elements.isEmpty();
-	}
-
-	@Override
-	public Iterator<T> iterator() {
-		return elements.iterator();
+		return size() == 0;
 	}
 
 	@Override
 	public String toString() {
-		return elements.toString();
+		StringBuilder builder = new StringBuilder();
+		builder.append("[");
+		for (T element : this) {
+			if (builder.length() > 1) {
+				builder.append(", ");
+			}
+			builder.append(element);
+		}
+		builder.append("]");
+		return builder.toString();
 	}
 }
@@ -1,6 +1,12 @@
 package treeminer.scopelists.representation;
 
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
 import treeminer.Scope;
+import treeminer.TreeDatabase;
 import treeminer.scopelists.elements.ScopeListElement;
 
 /**
@@ -12,62 +18,717 @@ import treeminer.scopelists.elements.ScopeListElement;
  * Scopemost node of this pattern occurrence in the tree.
  * </p>
  * 
+ * <p>
+ * The elements are stored column-wise in parallel arrays for the tree index,
+ * the bounds of the scope, the match label id and whether the occurrence is
+ * induced, sorted by tree index and scope. Elements are only materialized as
+ * {@link ScopeListElement} objects when the list is iterated.
+ * </p>
+ * 
+ * <p>
+ * Since elements with the same scope are only kept once, an element is marked
+ * as induced if any of the occurrences it stands for is induced.
+ * </p>
+ * 
  * @author Helena Graf
  *
  */
 public class ScopeListRepresentation extends AScopeListRepresentation<ScopeListElement> {
 
+	private static final int DEFAULT_CAPACITY = 8;
+
+	private int[] treeIndices;
+	private int[] lowerBounds;
+	private int[] upperBounds;
+	private int[] matchLabels;
+	private boolean[] induced;
+	private int size;
+	private int numberOfTrees;
+
+	/**
+	 * Creates a new, empty scope list.
+	 */
+	public ScopeListRepresentation() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a new, empty scope list that can hold the given number of elements
+	 * without growing.
+	 * 
+	 * @param capacity
+	 *            the initial capacity of the list
+	 */
+	public ScopeListRepresentation(int capacity) {
+		treeIndices = new int[capacity];
+		lowerBounds = new int[capacity];
+		upperBounds = new int[capacity];
+		matchLabels = new int[capacity];
+		induced = new boolean[capacity];
+	}
+
 	/**
 	 * Performs an out scope join of this scope list with another scope list.
 	 * 
+	 * <p>
+	 * Both lists are walked tree by tree, and only occurrences within the same tree
+	 * are compared. For each match label, only the x occurrence whose scope ends
+	 * first has to be considered. A joined occurrence is induced if the y node is a
+	 * child of the ancestor of the rightmost node of an induced x occurrence that
+	 * the y node is attached to, and starts after that x occurrence.
+	 * </p>
+	 * 
 	 * @param other
 	 *            the scope list this list should be joined with
 	 * @param attachedTo
 	 *            the node that the new node for which this join is done is attached
 	 *            to
+	 * @param attachedToDepth
+	 *            the depth of the node the new node is attached to in the pattern
+	 * @param rightmostNodeDepth
+	 *            the depth of the rightmost x node in the pattern
+	 * @param trees
+	 *            the database of trees the occurrences are found in, or null if
+	 *            induced occurrences are not tracked
 	 * @return the scope list that results from this join
 	 */
 	@Override
 	public AScopeListRepresentation<ScopeListElement> outScopeJoin(AScopeListRepresentation<ScopeListElement> other,
-			int attachedTo) {
+			int attachedTo, int attachedToDepth, int rightmostNodeDepth, TreeDatabase trees) {
+		ScopeListRepresentation y = (ScopeListRepresentation) other;
 		ScopeListRepresentation newScopeList = new ScopeListRepresentation();
+		NodeTable minUpperBounds = new NodeTable();
+		NodeTable inducedMinLowerBounds = new NodeTable();
+		int distanceToAttachedTo = rightmostNodeDepth - attachedToDepth;
+
+		int i = 0;
+		int j = 0;
+		while (i < this.size && j < y.size) {
+			if (treeIndices[i] < y.treeIndices[j]) {
+				i = this.findFirstIndexOfTree(i, y.treeIndices[j]);
+			} else if (treeIndices[i] > y.treeIndices[j]) {
+				j = y.findFirstIndexOfTree(j, treeIndices[i]);
+			} else {
+				int xEnd = this.findFirstIndexOfTree(i, treeIndices[i] + 1);
+				int yEnd = y.findFirstIndexOfTree(j, treeIndices[i] + 1);
+				int[] parents = trees == null ? null : trees.getParents(treeIndices[i]);
+
+				// Find the smallest upper bound of the x scopes for each match label, and the
+				// first induced x scope for each ancestor the y node can be attached to
+				minUpperBounds.clear();
+				inducedMinLowerBounds.clear();
+				for (; i < xEnd; i++) {
+					if (!minUpperBounds.contains(matchLabels[i])
+							|| upperBounds[i] < minUpperBounds.get(matchLabels[i])) {
+						minUpperBounds.put(matchLabels[i], upperBounds[i]);
+					}
+					if (parents != null && induced[i]) {
+						int ancestor = findAncestor(parents, lowerBounds[i], distanceToAttachedTo);
+						if (ancestor != TreeDatabase.NO_PARENT && !inducedMinLowerBounds.contains(ancestor)) {
+							inducedMinLowerBounds.put(ancestor, lowerBounds[i]);
+						}
+					}
+				}
 
-		this.forEach(scopeListElementX -> other.forEach(scopeListElementY -> {
-			if (scopeListElementX.getTreeIndex() == scopeListElementY.getTreeIndex()
-					&& scopeListElementX.getMatchLabel().equals(scopeListElementY.getMatchLabel())
-					&& scopeListElementX.getScope().isStrictlyLessThan(scopeListElementY.getScope())) {
-				int treeId = scopeListElementY.getTreeIndex();
-				String joinedMatchLabel = scopeListElementY.getMatchLabel();
-				Scope scope = scopeListElementY.getScope();
-				newScopeList.add(new ScopeListElement(treeId, joinedMatchLabel, scope));
+				// The joined element is the y element, so iterating over y keeps the result
+				// sorted
+				for (; j < yEnd; j++) {
+					if (minUpperBounds.contains(y.matchLabels[j])
+							&& minUpperBounds.get(y.matchLabels[j]) < y.lowerBounds[j]) {
+						int parent = parents == null ? TreeDatabase.NO_PARENT : parents[y.lowerBounds[j]];
+						boolean isInduced = parent != TreeDatabase.NO_PARENT && inducedMinLowerBounds.contains(parent)
+								&& inducedMinLowerBounds.get(parent) < y.lowerBounds[j];
+						newScopeList.add(y.treeIndices[j], y.matchLabels[j], y.lowerBounds[j], y.upperBounds[j],
+								isInduced);
+					}
+				}
 			}
-		}));
+		}
 
+		newScopeList.trimToSize();
 		return newScopeList;
 	}
 
 	/**
 	 * Performs an in scope join of this scope list with another scope list.
 	 * 
+	 * <p>
+	 * Both lists are walked tree by tree, and only occurrences within the same tree
+	 * are compared. Within a tree, the x and y occurrences are merged by the lower
+	 * bounds of their scopes, keeping track of the largest upper bound of the x
+	 * scopes seen so far for each match label. A joined occurrence is induced if
+	 * the parent of the y node is the rightmost node of an induced x occurrence.
+	 * </p>
+	 * 
 	 * @param other
 	 *            the scope list this list should be joined with
+	 * @param trees
+	 *            the database of trees the occurrences are found in, or null if
+	 *            induced occurrences are not tracked
 	 * @return the scope list that results from this join
 	 */
 	@Override
-	public AScopeListRepresentation<ScopeListElement> inScopeJoin(AScopeListRepresentation<ScopeListElement> other) {
+	public AScopeListRepresentation<ScopeListElement> inScopeJoin(AScopeListRepresentation<ScopeListElement> other,
+			TreeDatabase trees) {
+		ScopeListRepresentation y = (ScopeListRepresentation) other;
 		ScopeListRepresentation newScopeList = new ScopeListRepresentation();
+		NodeTable maxUpperBounds = new NodeTable();
+		NodeTable inducedRightmostNodes = new NodeTable();
+
+		int i = 0;
+		int j = 0;
+		while (i < this.size && j < y.size) {
+			if (treeIndices[i] < y.treeIndices[j]) {
+				i = this.findFirstIndexOfTree(i, y.treeIndices[j]);
+			} else if (treeIndices[i] > y.treeIndices[j]) {
+				j = y.findFirstIndexOfTree(j, treeIndices[i]);
+			} else {
+				int xEnd = this.findFirstIndexOfTree(i, treeIndices[i] + 1);
+				int yEnd = y.findFirstIndexOfTree(j, treeIndices[i] + 1);
+
+				int[] parents = trees == null ? null : trees.getParents(treeIndices[i]);
 
-		this.forEach(scopeListElementX -> other.forEach(scopeListElementY -> {
-			if (scopeListElementX.getTreeIndex() == scopeListElementY.getTreeIndex()
-					&& scopeListElementX.getMatchLabel().equals(scopeListElementY.getMatchLabel())
-					&& scopeListElementX.getScope().contains(scopeListElementY.getScope())) {
-				int treeId = scopeListElementY.getTreeIndex();
-				String joinedMatchLabel = scopeListElementY.getMatchLabel();
-				Scope scope = scopeListElementY.getScope();
-				newScopeList.add(new ScopeListElement(treeId, joinedMatchLabel, scope));
+				maxUpperBounds.clear();
+				inducedRightmostNodes.clear();
+				for (; j < yEnd; j++) {
+					// Record the x scopes that start before the y scope
+					for (; i < xEnd && lowerBounds[i] < y.lowerBounds[j]; i++) {
+						if (!maxUpperBounds.contains(matchLabels[i])
+								|| upperBounds[i] > maxUpperBounds.get(matchLabels[i])) {
+							maxUpperBounds.put(matchLabels[i], upperBounds[i]);
+						}
+						if (induced[i]) {
+							inducedRightmostNodes.put(lowerBounds[i], matchLabels[i]);
+						}
+					}
+
+					// An x scope that starts before the y scope contains it if it does not end
+					// before it, an x scope that starts with it if it ends after it
+					boolean contained = maxUpperBounds.contains(y.matchLabels[j])
+							&& maxUpperBounds.get(y.matchLabels[j]) >= y.upperBounds[j];
+					for (int k = i; !contained && k < xEnd && lowerBounds[k] == y.lowerBounds[j]; k++) {
+						contained = matchLabels[k] == y.matchLabels[j] && upperBounds[k] > y.upperBounds[j];
+					}
+
+					// The joined element is the y element, so iterating over y keeps the result
+					// sorted
+					if (contained) {
+						boolean isInduced = parents != null && parents[y.lowerBounds[j]] != TreeDatabase.NO_PARENT
+								&& inducedRightmostNodes.contains(parents[y.lowerBounds[j]]);
+						newScopeList.add(y.treeIndices[j], y.matchLabels[j], y.lowerBounds[j], y.upperBounds[j],
+								isInduced);
+					}
+				}
+				i = xEnd;
 			}
-		}));
+		}
 
+		newScopeList.trimToSize();
 		return newScopeList;
 	}
+
+	/**
+	 * Performs an in scope join of this scope list with the occurrences of a
+	 * pattern of two nodes, producing only induced occurrences.
+	 * 
+	 * <p>
+	 * The match label of an occurrence of a pattern of two nodes is its parent
+	 * node, so a child occurrence extends an x occurrence exactly if its match
+	 * label is the rightmost node of the x occurrence.
+	 * </p>
+	 * 
+	 * @param childOccurrences
+	 *            the occurrences of the pattern of two nodes
+	 * @return the scope list that results from this join
+	 */
+	@Override
+	public AScopeListRepresentation<ScopeListElement> inducedInScopeJoin(
+			AScopeListRepresentation<ScopeListElement> childOccurrences) {
+		ScopeListRepresentation y = (ScopeListRepresentation) childOccurrences;
+		ScopeListRepresentation newScopeList = new ScopeListRepresentation();
+		NodeTable matchLabelsOfRightmostNodes = new NodeTable();
+
+		int i = 0;
+		int j = 0;
+		while (i < this.size && j < y.size) {
+			if (treeIndices[i] < y.treeIndices[j]) {
+				i = this.findFirstIndexOfTree(i, y.treeIndices[j]);
+			} else if (treeIndices[i] > y.treeIndices[j]) {
+				j = y.findFirstIndexOfTree(j, treeIndices[i]);
+			} else {
+				int xEnd = this.findFirstIndexOfTree(i, treeIndices[i] + 1);
+				int yEnd = y.findFirstIndexOfTree(j, treeIndices[i] + 1);
+
+				matchLabelsOfRightmostNodes.clear();
+				for (; i < xEnd; i++) {
+					matchLabelsOfRightmostNodes.put(lowerBounds[i], matchLabels[i]);
+				}
+
+				// Iterating over the child occurrences keeps the result sorted
+				for (; j < yEnd; j++) {
+					if (matchLabelsOfRightmostNodes.contains(y.matchLabels[j])) {
+						newScopeList.add(y.treeIndices[j], matchLabelsOfRightmostNodes.get(y.matchLabels[j]),
+								y.lowerBounds[j], y.upperBounds[j], true);
+					}
+				}
+			}
+		}
+
+		newScopeList.trimToSize();
+		return newScopeList;
+	}
+
+	/**
+	 * Performs an out scope join of this scope list with another scope list,
+	 * producing only induced occurrences.
+	 * 
+	 * <p>
+	 * In an induced occurrence, the y node is a child of the ancestor of the
+	 * rightmost x node at the distance given by the depths in the pattern. For each
+	 * such ancestor, only the x occurrence that starts first has to be considered.
+	 * A y occurrence is joined if its parent is such an ancestor and it starts
+	 * after that x occurrence.
+	 * </p>
+	 * 
+	 * @param other
+	 *            the scope list this list should be joined with
+	 * @param attachedToDepth
+	 *            the depth of the node the y node is attached to in the pattern
+	 * @param rightmostNodeDepth
+	 *            the depth of the rightmost x node in the pattern
+	 * @param trees
+	 *            the database of trees the occurrences are found in
+	 * @return the scope list that results from this join
+	 */
+	@Override
+	public AScopeListRepresentation<ScopeListElement> inducedOutScopeJoin(
+			AScopeListRepresentation<ScopeListElement> other, int attachedToDepth, int rightmostNodeDepth,
+			TreeDatabase trees) {
+		ScopeListRepresentation y = (ScopeListRepresentation) other;
+		ScopeListRepresentation newScopeList = new ScopeListRepresentation();
+		NodeTable minLowerBounds = new NodeTable();
+		int distanceToAttachedTo = rightmostNodeDepth - attachedToDepth;
+
+		int i = 0;
+		int j = 0;
+		while (i < this.size && j < y.size) {
+			if (treeIndices[i] < y.treeIndices[j]) {
+				i = this.findFirstIndexOfTree(i, y.treeIndices[j]);
+			} else if (treeIndices[i] > y.treeIndices[j]) {
+				j = y.findFirstIndexOfTree(j, treeIndices[i]);
+			} else {
+				int xEnd = this.findFirstIndexOfTree(i, treeIndices[i] + 1);
+				int yEnd = y.findFirstIndexOfTree(j, treeIndices[i] + 1);
+				int[] parents = trees.getParents(treeIndices[i]);
+
+				// Find the first x scope for each ancestor the y node can be attached to
+				minLowerBounds.clear();
+				for (; i < xEnd; i++) {
+					int ancestor = findAncestor(parents, lowerBounds[i], distanceToAttachedTo);
+					if (ancestor != TreeDatabase.NO_PARENT && !minLowerBounds.contains(ancestor)) {
+						minLowerBounds.put(ancestor, lowerBounds[i]);
+					}
+				}
+
+				// The joined element is the y element, so iterating over y keeps the result
+				// sorted
+				for (; j < yEnd; j++) {
+					int parent = parents[y.lowerBounds[j]];
+					if (parent != TreeDatabase.NO_PARENT && minLowerBounds.contains(parent)
+							&& minLowerBounds.get(parent) < y.lowerBounds[j]) {
+						newScopeList.add(y.treeIndices[j], y.matchLabels[j], y.lowerBounds[j], y.upperBounds[j],
+								true);
+					}
+				}
+			}
+		}
+
+		newScopeList.trimToSize();
+		return newScopeList;
+	}
+
+	private static int findAncestor(int[] parents, int node, int distance) {
+		int ancestor = node;
+		for (int k = 0; k < distance && ancestor != TreeDatabase.NO_PARENT; k++) {
+			ancestor = parents[ancestor];
+		}
+		return ancestor;
+	}
+
+	private int findFirstIndexOfTree(int from, int treeIndex) {
+		// Gallop ahead to find a range that contains the first element of the tree
+		int low = from;
+		int step = 1;
+		int high = from;
+		while (high < size && treeIndices[high] < treeIndex) {
+			low = high + 1;
+			high += step;
+			step *= 2;
+		}
+		high = Math.min(high, size);
+
+		// Binary search for the first element of the tree in that range
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (treeIndices[middle] < treeIndex) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	@Override
+	public void add(ScopeListElement element) {
+		add(element.getTreeIndex(), element.getMatchLabel(), element.getScope().getLowerBound(),
+				element.getScope().getUpperBound(), element.isInduced());
+	}
+
+	/**
+	 * Add an element with the given values to this scope list. If the list already
+	 * contains an element with the same tree index and scope, the list is not
+	 * changed.
+	 * 
+	 * @param treeIndex
+	 *            the tree the pattern occurs in
+	 * @param matchLabel
+	 *            the id of the match label of the occurrence
+	 * @param lowerBound
+	 *            the lower bound of the scope of the rightmost node of the
+	 *            occurrence
+	 * @param upperBound
+	 *            the upper bound of the scope of the rightmost node of the
+	 *            occurrence
+	 */
+	public void add(int treeIndex, int matchLabel, int lowerBound, int upperBound) {
+		add(treeIndex, matchLabel, lowerBound, upperBound, false);
+	}
+
+	/**
+	 * Add an element with the given values to this scope list. If the list already
+	 * contains an element with the same tree index and scope, that element is
+	 * marked as induced if the given one is.
+	 * 
+	 * @param treeIndex
+	 *            the tree the pattern occurs in
+	 * @param matchLabel
+	 *            the id of the match label of the occurrence
+	 * @param lowerBound
+	 *            the lower bound of the scope of the rightmost node of the
+	 *            occurrence
+	 * @param upperBound
+	 *            the upper bound of the scope of the rightmost node of the
+	 *            occurrence
+	 * @param isInduced
+	 *            whether the occurrence is induced
+	 */
+	public void add(int treeIndex, int matchLabel, int lowerBound, int upperBound, boolean isInduced) {
+		// Elements are usually added in order, so check the end of the list first
+		int position = size;
+		if (size > 0 && compareTo(size - 1, treeIndex, lowerBound, upperBound) >= 0) {
+			position = findPosition(treeIndex, lowerBound, upperBound);
+			if (position < size && compareTo(position, treeIndex, lowerBound, upperBound) == 0) {
+				induced[position] |= isInduced;
+				return;
+			}
+		}
+
+		if ((position == 0 || treeIndices[position - 1] != treeIndex)
+				&& (position == size || treeIndices[position] != treeIndex)) {
+			numberOfTrees++;
+		}
+		if (size == treeIndices.length) {
+			grow();
+		}
+		if (position < size) {
+			System.arraycopy(treeIndices, position, treeIndices, position + 1, size - position);
+			System.arraycopy(lowerBounds, position, lowerBounds, position + 1, size - position);
+			System.arraycopy(upperBounds, position, upperBounds, position + 1, size - position);
+			System.arraycopy(matchLabels, position, matchLabels, position + 1, size - position);
+			System.arraycopy(induced, position, induced, position + 1, size - position);
+		}
+		treeIndices[position] = treeIndex;
+		lowerBounds[position] = lowerBound;
+		upperBounds[position] = upperBound;
+		matchLabels[position] = matchLabel;
+		induced[position] = isInduced;
+		size++;
+	}
+
+	@Override
+	public void addAll(AScopeListRepresentation<ScopeListElement> other) {
+		ScopeListRepresentation otherList = (ScopeListRepresentation) other;
+		if (otherList.size == 0) {
+			return;
+		}
+
+		// If all elements of the other list come after the elements of this list, the
+		// columns can simply be appended
+		if (size == 0 || compareTo(size - 1, otherList.treeIndices[0], otherList.lowerBounds[0],
+				otherList.upperBounds[0]) < 0) {
+			if (size + otherList.size > treeIndices.length) {
+				int newCapacity = size + otherList.size;
+				treeIndices = Arrays.copyOf(treeIndices, newCapacity);
+				lowerBounds = Arrays.copyOf(lowerBounds, newCapacity);
+				upperBounds = Arrays.copyOf(upperBounds, newCapacity);
+				matchLabels = Arrays.copyOf(matchLabels, newCapacity);
+				induced = Arrays.copyOf(induced, newCapacity);
+			}
+			System.arraycopy(otherList.treeIndices, 0, treeIndices, size, otherList.size);
+			System.arraycopy(otherList.lowerBounds, 0, lowerBounds, size, otherList.size);
+			System.arraycopy(otherList.upperBounds, 0, upperBounds, size, otherList.size);
+			System.arraycopy(otherList.matchLabels, 0, matchLabels, size, otherList.size);
+			System.arraycopy(otherList.induced, 0, induced, size, otherList.size);
+			// The last tree of this list may continue in the other list
+			numberOfTrees += otherList.numberOfTrees;
+			if (size > 0 && treeIndices[size - 1] == otherList.treeIndices[0]) {
+				numberOfTrees--;
+			}
+			size += otherList.size;
+		} else {
+			for (int i = 0; i < otherList.size; i++) {
+				add(otherList.treeIndices[i], otherList.matchLabels[i], otherList.lowerBounds[i],
+						otherList.upperBounds[i], otherList.induced[i]);
+			}
+		}
+	}
+
+	private int compareTo(int index, int treeIndex, int lowerBound, int upperBound) {
+		if (treeIndices[index] != treeIndex) {
+			return Integer.compare(treeIndices[index], treeIndex);
+		} else if (lowerBounds[index] != lowerBound) {
+			return Integer.compare(lowerBounds[index], lowerBound);
+		} else {
+			return Integer.compare(upperBounds[index], upperBound);
+		}
+	}
+
+	private int findPosition(int treeIndex, int lowerBound, int upperBound) {
+		// Binary search for the first element that is not smaller than the given one
+		int low = 0;
+		int high = size;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (compareTo(middle, treeIndex, lowerBound, upperBound) < 0) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	private void grow() {
+		int newCapacity = Math.max(DEFAULT_CAPACITY, treeIndices.length * 2);
+		treeIndices = Arrays.copyOf(treeIndices, newCapacity);
+		lowerBounds = Arrays.copyOf(lowerBounds, newCapacity);
+		upperBounds = Arrays.copyOf(upperBounds, newCapacity);
+		matchLabels = Arrays.copyOf(matchLabels, newCapacity);
+		induced = Arrays.copyOf(induced, newCapacity);
+	}
+
+	/**
+	 * Trims the capacity of this scope list to its size.
+	 */
+	public void trimToSize() {
+		if (size < treeIndices.length) {
+			treeIndices = Arrays.copyOf(treeIndices, size);
+			lowerBounds = Arrays.copyOf(lowerBounds, size);
+			upperBounds = Arrays.copyOf(upperBounds, size);
+			matchLabels = Arrays.copyOf(matchLabels, size);
+			induced = Arrays.copyOf(induced, size);
+		}
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public int getNumberOfTrees() {
+		return numberOfTrees;
+	}
+
+	@Override
+	protected PrimitiveIterator.OfInt treeIndexIterator() {
+		return new PrimitiveIterator.OfInt() {
+
+			private int next = 0;
+
+			@Override
+			public boolean hasNext() {
+				return next < size;
+			}
+
+			@Override
+			public int nextInt() {
+				if (next >= size) {
+					throw new NoSuchElementException();
+				}
+				int tree = treeIndices[next];
+				// The tree indices are sorted, so the elements of a tree are adjacent
+				while (next < size && treeIndices[next] == tree) {
+					next++;
+				}
+				return tree;
+			}
+		};
+	}
+
+	@Override
+	public boolean containsInducedOccurrence() {
+		for (int i = 0; i < size; i++) {
+			if (induced[i]) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public int getInducedSupport() {
+		int support = 0;
+		for (int i = 0; i < size;) {
+			int treeEnd = findFirstIndexOfTree(i, treeIndices[i] + 1);
+			boolean inducedInTree = false;
+			for (int k = i; k < treeEnd && !inducedInTree; k++) {
+				inducedInTree = induced[k];
+			}
+			support += inducedInTree ? treeEnd - i : 0;
+			i = treeEnd;
+		}
+		return support;
+	}
+
+	@Override
+	public int getNumberOfInducedTrees() {
+		int numberOfInducedTrees = 0;
+		for (int i = 0; i < size;) {
+			int treeEnd = findFirstIndexOfTree(i, treeIndices[i] + 1);
+			for (int k = i; k < treeEnd; k++) {
+				if (induced[k]) {
+					numberOfInducedTrees++;
+					break;
+				}
+			}
+			i = treeEnd;
+		}
+		return numberOfInducedTrees;
+	}
+
+	/**
+	 * Get the tree index of the element at the given position.
+	 * 
+	 * @param index
+	 *            the position of the element in this list
+	 * @return the tree index
+	 */
+	public int getTreeIndex(int index) {
+		return treeIndices[index];
+	}
+
+	/**
+	 * Get the match label id of the element at the given position.
+	 * 
+	 * @param index
+	 *            the position of the element in this list
+	 * @return the match label id
+	 */
+	public int getMatchLabel(int index) {
+		return matchLabels[index];
+	}
+
+	/**
+	 * Get the lower bound of the scope of the element at the given position.
+	 * 
+	 * @param index
+	 *            the position of the element in this list
+	 * @return the lower bound of the scope
+	 */
+	public int getLowerBound(int index) {
+		return lowerBounds[index];
+	}
+
+	/**
+	 * Get the upper bound of the scope of the element at the given position.
+	 * 
+	 * @param index
+	 *            the position of the element in this list
+	 * @return the upper bound of the scope
+	 */
+	public int getUpperBound(int index) {
+		return upperBounds[index];
+	}
+
+	/**
+	 * Get whether the element at the given position is an induced occurrence.
+	 * 
+	 * @param index
+	 *            the position of the element in this list
+	 * @return whether the occurrence is induced
+	 */
+	public boolean isInduced(int index) {
+		return induced[index];
+	}
+
+	@Override
+	public Iterator<ScopeListElement> iterator() {
+		return new Iterator<ScopeListElement>() {
+
+			private int next = 0;
+
+			@Override
+			public boolean hasNext() {
+				return next < size;
+			}
+
+			@Override
+			public ScopeListElement next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				ScopeListElement element = new ScopeListElement(treeIndices[next], matchLabels[next],
+						new Scope(lowerBounds[next], upperBounds[next]), induced[next]);
+				next++;
+				return element;
+			}
+		};
+	}
+
+	/**
+	 * A table that maps the nodes of one tree, such as the match labels of its
+	 * occurrences, to a value. Node ids are small within a tree, so the table is an
+	 * array indexed by node id. It is cleared in constant time by invalidating all
+	 * entries, so that it can be reused for all trees of a join.
+	 */
+	private static class NodeTable {
+
+		private int[] values = new int[DEFAULT_CAPACITY];
+		private int[] validFor = new int[DEFAULT_CAPACITY];
+		private int generation = 1;
+
+		private void clear() {
+			generation++;
+		}
+
+		private boolean contains(int node) {
+			return node < validFor.length && validFor[node] == generation;
+		}
+
+		private int get(int node) {
+			return values[node];
+		}
+
+		private void put(int node, int value) {
+			if (node >= validFor.length) {
+				int newCapacity = Math.max(node + 1, validFor.length * 2);
+				values = Arrays.copyOf(values, newCapacity);
+				validFor = Arrays.copyOf(validFor, newCapacity);
+			}
+			values[node] = value;
+			validFor[node] = generation;
+		}
+	}
 }
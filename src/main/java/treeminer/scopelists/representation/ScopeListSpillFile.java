@@ -0,0 +1,339 @@
+package treeminer.scopelists.representation;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import treeminer.Scope;
+import treeminer.scopelists.elements.ScopeVectorListElement;
+import treeminer.scopelists.elements.SimpleScopeListElement;
+
+/**
+ * A temporary file that scope lists can be spilled to in order to free heap
+ * memory. Each scope list is written to its own region at the end of the file,
+ * and is read back from that region with buffered reads, which decode the
+ * elements one by one rather than copying the region as a whole. Once the
+ * regions of all
+ * spilled scope lists have been released, the file is truncated, so that it
+ * does not keep copies of scope lists that are back in memory. The file is
+ * deleted when it is closed.
+ * 
+ * <p>
+ * The region of a scope list starts with the type of the list and the number of
+ * its elements. For a {@link ScopeListRepresentation}, the columns of each
+ * element follow. For a {@link ScopeVectorListRepresentation}, each element is
+ * followed by the bounds of its scopes.
+ * </p>
+ * 
+ * @author Helena Graf
+ * 
+ */
+public class ScopeListSpillFile implements Closeable {
+
+	private static final byte SCOPE_LIST = 0;
+	private static final byte SCOPE_VECTOR_LIST = 1;
+
+	/** Type and number of elements */
+	private static final int HEADER_SIZE = Byte.BYTES + Integer.BYTES;
+	/** Tree index, match label, lower bound, upper bound and induced flag */
+	private static final int SCOPE_LIST_ELEMENT_SIZE = 4 * Integer.BYTES + Byte.BYTES;
+	/** Tree index, induced flag and number of scopes */
+	private static final int SCOPE_VECTOR_LIST_ELEMENT_SIZE = 2 * Integer.BYTES + Byte.BYTES;
+	/** Lower and upper bound */
+	private static final int SCOPE_SIZE = 2 * Integer.BYTES;
+	/** The number of bytes that are read or written at once */
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final Path file;
+	private final FileChannel channel;
+	private long length;
+	private int numberOfSpilledScopeLists;
+
+	/**
+	 * Creates a new spill file in the default temporary-file directory.
+	 * 
+	 * @throws UncheckedIOException
+	 *             if the file cannot be created
+	 */
+	public ScopeListSpillFile() {
+		try {
+			file = Files.createTempFile("treeminer", ".scopelists");
+			channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+					StandardOpenOption.DELETE_ON_CLOSE);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Could not create a file to spill scope lists to", e);
+		}
+	}
+
+	/**
+	 * Writes the given scope list to the end of this file.
+	 * 
+	 * @param scopeList
+	 *            The scope list to be spilled
+	 * @return The region of the file the scope list has been written to
+	 * @throws UncheckedIOException
+	 *             if the scope list cannot be written
+	 */
+	public synchronized SpilledScopeList write(AScopeListRepresentation<? extends SimpleScopeListElement> scopeList) {
+		long offset = length;
+		int size = getSpilledSize(scopeList);
+		try (DataOutputStream output = new DataOutputStream(
+				new BufferedOutputStream(new RegionOutputStream(offset), Math.min(size, BUFFER_SIZE)))) {
+			if (scopeList instanceof ScopeListRepresentation) {
+				write(output, (ScopeListRepresentation) scopeList);
+			} else {
+				write(output, (ScopeVectorListRepresentation) scopeList);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Could not spill a scope list to " + file, e);
+		}
+		length += size;
+		numberOfSpilledScopeLists++;
+		return new SpilledScopeList(offset, size);
+	}
+
+	/**
+	 * Releases the region of a scope list that is no longer needed, e.g. because
+	 * it has been read back into memory for good. The file is truncated as soon as
+	 * no spilled scope list is left, and the region must not be read afterwards.
+	 * 
+	 * @param spilledScopeList
+	 *            The region of the file the scope list has been written to
+	 * @throws UncheckedIOException
+	 *             if the file cannot be truncated
+	 */
+	public synchronized void release(SpilledScopeList spilledScopeList) {
+		if (numberOfSpilledScopeLists == 0) {
+			throw new IllegalStateException("No spilled scope list is left to be released");
+		}
+		numberOfSpilledScopeLists--;
+		if (numberOfSpilledScopeLists == 0) {
+			try {
+				channel.truncate(0);
+			} catch (IOException e) {
+				throw new UncheckedIOException("Could not truncate " + file, e);
+			}
+			length = 0;
+		}
+	}
+
+	/**
+	 * Get whether scope lists that have not been released are spilled to this
+	 * file.
+	 * 
+	 * @return whether scope lists are spilled
+	 */
+	public synchronized boolean hasSpilledScopeLists() {
+		return numberOfSpilledScopeLists > 0;
+	}
+
+	private static void write(DataOutputStream output, ScopeListRepresentation scopeList) throws IOException {
+		output.writeByte(SCOPE_LIST);
+		output.writeInt(scopeList.size());
+		for (int index = 0; index < scopeList.size(); index++) {
+			output.writeInt(scopeList.getTreeIndex(index));
+			output.writeInt(scopeList.getMatchLabel(index));
+			output.writeInt(scopeList.getLowerBound(index));
+			output.writeInt(scopeList.getUpperBound(index));
+			output.writeBoolean(scopeList.isInduced(index));
+		}
+	}
+
+	private static void write(DataOutputStream output, ScopeVectorListRepresentation scopeList) throws IOException {
+		output.writeByte(SCOPE_VECTOR_LIST);
+		output.writeInt(scopeList.size());
+		for (ScopeVectorListElement element : scopeList) {
+			output.writeInt(element.getTreeIndex());
+			output.writeBoolean(element.isInduced());
+			output.writeInt(element.getScopes().size());
+			for (Scope scope : element.getScopes()) {
+				output.writeInt(scope.getLowerBound());
+				output.writeInt(scope.getUpperBound());
+			}
+		}
+	}
+
+	/**
+	 * Reads a scope list that has been spilled to this file back into memory. The
+	 * region is read in chunks, so only the decoded scope list is kept.
+	 * 
+	 * @param spilledScopeList
+	 *            The region of the file the scope list has been written to
+	 * @return The scope list
+	 * @throws UncheckedIOException
+	 *             if the scope list cannot be read
+	 */
+	public AScopeListRepresentation<? extends SimpleScopeListElement> read(SpilledScopeList spilledScopeList) {
+		try (DataInputStream input = new DataInputStream(new BufferedInputStream(
+				new RegionInputStream(spilledScopeList), Math.min(spilledScopeList.length, BUFFER_SIZE)))) {
+			byte type = input.readByte();
+			int size = input.readInt();
+			if (type == SCOPE_LIST) {
+				// The elements are written in order, so each one is appended
+				ScopeListRepresentation scopeList = new ScopeListRepresentation(size);
+				for (int index = 0; index < size; index++) {
+					scopeList.add(input.readInt(), input.readInt(), input.readInt(), input.readInt(),
+							input.readBoolean());
+				}
+				return scopeList;
+			}
+
+			ScopeVectorListRepresentation scopeList = new ScopeVectorListRepresentation();
+			for (int index = 0; index < size; index++) {
+				int treeIndex = input.readInt();
+				boolean induced = input.readBoolean();
+				int numberOfScopes = input.readInt();
+				List<Scope> scopes = new ArrayList<>(numberOfScopes);
+				for (int scope = 0; scope < numberOfScopes; scope++) {
+					scopes.add(new Scope(input.readInt(), input.readInt()));
+				}
+				scopeList.add(new ScopeVectorListElement(treeIndex, scopes, induced));
+			}
+			return scopeList;
+		} catch (IOException e) {
+			throw new UncheckedIOException("Could not read a spilled scope list from " + file, e);
+		}
+	}
+
+	/**
+	 * Writes to the file from the given position on, without moving the position
+	 * of the channel.
+	 */
+	private class RegionOutputStream extends OutputStream {
+
+		private long position;
+
+		private RegionOutputStream(long position) {
+			this.position = position;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] bytes, int offset, int length) throws IOException {
+			ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, length);
+			while (buffer.hasRemaining()) {
+				position += channel.write(buffer, position);
+			}
+		}
+	}
+
+	/**
+	 * Reads the region of a spilled scope list, without moving the position of the
+	 * channel, so that several regions can be read at once.
+	 */
+	private class RegionInputStream extends InputStream {
+
+		private long position;
+		private final long end;
+
+		private RegionInputStream(SpilledScopeList spilledScopeList) {
+			this.position = spilledScopeList.offset;
+			this.end = spilledScopeList.offset + spilledScopeList.length;
+		}
+
+		@Override
+		public int read() throws IOException {
+			byte[] b = new byte[1];
+			return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] bytes, int offset, int length) throws IOException {
+			if (position == end) {
+				return -1;
+			}
+			int numberOfBytes = channel.read(ByteBuffer.wrap(bytes, offset, (int) Math.min(length, end - position)),
+					position);
+			if (numberOfBytes < 0) {
+				throw new IOException("The spilled scope list ends before its region");
+			}
+			position += numberOfBytes;
+			return numberOfBytes;
+		}
+	}
+
+	/**
+	 * Get the number of bytes the given scope list takes up in a spill file.
+	 * 
+	 * @param scopeList
+	 *            The scope list
+	 * @return The number of bytes of the spilled scope list
+	 */
+	public static int getSpilledSize(AScopeListRepresentation<? extends SimpleScopeListElement> scopeList) {
+		if (scopeList instanceof ScopeListRepresentation) {
+			return HEADER_SIZE + scopeList.size() * SCOPE_LIST_ELEMENT_SIZE;
+		}
+		if (!(scopeList instanceof ScopeVectorListRepresentation)) {
+			throw new IllegalArgumentException("Cannot spill scope lists of type " + scopeList.getClass());
+		}
+
+		int size = HEADER_SIZE + scopeList.size() * SCOPE_VECTOR_LIST_ELEMENT_SIZE;
+		for (ScopeVectorListElement element : (ScopeVectorListRepresentation) scopeList) {
+			size += element.getScopes().size() * SCOPE_SIZE;
+		}
+		return size;
+	}
+
+	/**
+	 * Get the number of bytes that have been written to this file since it has
+	 * last been truncated.
+	 * 
+	 * @return The length of the file
+	 */
+	public synchronized long getLength() {
+		return length;
+	}
+
+	/**
+	 * Closes and deletes this file. Scope lists that have been spilled to it can no
+	 * longer be read.
+	 */
+	@Override
+	public void close() {
+		try {
+			channel.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException("Could not close " + file, e);
+		}
+	}
+
+	/**
+	 * The region of a spill file a scope list has been written to.
+	 */
+	public static class SpilledScopeList {
+
+		private final long offset;
+		private final int length;
+
+		private SpilledScopeList(long offset, int length) {
+			this.offset = offset;
+			this.length = length;
+		}
+
+		/**
+		 * Get the number of bytes of the spilled scope list.
+		 * 
+		 * @return The length of the region
+		 */
+		public int getLength() {
+			return length;
+		}
+	}
+}
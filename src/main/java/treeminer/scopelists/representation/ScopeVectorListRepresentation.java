@@ -1,27 +1,101 @@
 package treeminer.scopelists.representation;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
-
-import org.omg.Messaging.SyncScopeHelper;
+import java.util.Map;
+import java.util.TreeSet;
 
 import treeminer.Scope;
+import treeminer.TreeDatabase;
 import treeminer.scopelists.elements.ScopeVectorListElement;
 
 /**
  * A scope list representation that contains scope vector list elements as
- * elements.
+ * elements. Of two equal elements only one is kept, which is induced if either
+ * of them is.
  * 
  * @author Helena Graf
  *
  */
 public class ScopeVectorListRepresentation extends AScopeListRepresentation<ScopeVectorListElement> {
 
+	/**
+	 * Orders elements by their last scope, so that of two nested scopes the outer
+	 * one comes first.
+	 */
+	private static final Comparator<ScopeVectorListElement> OUTER_LAST_SCOPE_FIRST = (first, second) -> {
+		Scope firstScope = first.getLastElement();
+		Scope secondScope = second.getLastElement();
+		if (firstScope.getLowerBound() != secondScope.getLowerBound()) {
+			return Integer.compare(firstScope.getLowerBound(), secondScope.getLowerBound());
+		}
+		return Integer.compare(secondScope.getUpperBound(), firstScope.getUpperBound());
+	};
+
+	private TreeSet<ScopeVectorListElement> elements = new TreeSet<>();
+	private int numberOfTrees;
+
 	@Override
-	public AScopeListRepresentation<ScopeVectorListElement> outScopeJoin(
-			AScopeListRepresentation<ScopeVectorListElement> other, int attachedTo) {
-		System.out.println("Try outscope join");
+	public void add(ScopeVectorListElement element) {
+		if (elements.add(element)) {
+			// Elements are ordered by tree first, so elements of the same tree are adjacent
+			ScopeVectorListElement lower = elements.lower(element);
+			ScopeVectorListElement higher = elements.higher(element);
+			if ((lower == null || lower.getTreeIndex() != element.getTreeIndex())
+					&& (higher == null || higher.getTreeIndex() != element.getTreeIndex())) {
+				numberOfTrees++;
+			}
+		} else if (element.isInduced()) {
+			elements.remove(element);
+			elements.add(element);
+		}
+	}
+
+	@Override
+	public int size() {
+		return elements.size();
+	}
+
+	@Override
+	public int getNumberOfTrees() {
+		return numberOfTrees;
+	}
 
+	@Override
+	public Iterator<ScopeVectorListElement> iterator() {
+		return elements.iterator();
+	}
+
+	/**
+	 * Performs an out scope join of this scope list with another scope list.
+	 * 
+	 * <p>
+	 * A joined occurrence that keeps the scopes of the x element is induced if the
+	 * x element is induced and the y node is a child of the node the y node is
+	 * attached to, whose scope is found at its depth in the pattern.
+	 * </p>
+	 * 
+	 * @param other
+	 *            the scope list this list should be joined with
+	 * @param attachedTo
+	 *            the node that the new node is attached to
+	 * @param attachedToDepth
+	 *            the depth of the node the new node is attached to in the pattern
+	 * @param rightmostNodeDepth
+	 *            the depth of the rightmost x node in the pattern
+	 * @param trees
+	 *            the database of trees the occurrences are found in, or null if
+	 *            induced occurrences are not tracked
+	 * @return the scope list that results from this join
+	 */
+	@Override
+	public AScopeListRepresentation<ScopeVectorListElement> outScopeJoin(
+			AScopeListRepresentation<ScopeVectorListElement> other, int attachedTo, int attachedToDepth,
+			int rightmostNodeDepth, TreeDatabase trees) {
 		ScopeVectorListRepresentation newScopeVectorList = new ScopeVectorListRepresentation();
 
 		this.forEach(scopeListElementX -> other.forEach(scopeListElementY -> {
@@ -41,23 +115,21 @@ public class ScopeVectorListRepresentation extends AScopeListRepresentation<Scop
 
 				if (scopeListElementX.getScopes().get(jIndex).contains(sYN)
 						&& scopeListElementX.getScopes().get(jIndex + 1).isStrictlyLessThan(sYN)) {
-					System.out.println("Join done case 1: " + scopeListElementX + " + " + scopeListElementY);
 					List<Scope> scopes = new ArrayList<>(scopeListElementX.getScopes());
 					scopes = scopes.subList(0, jIndex + 1);
 					scopes.add(sYN);
-					newScopeVectorList.add(new ScopeVectorListElement(scopeListElementX.getTreeIndex(), scopes));
-				} else if (scopeListElementX.getScopes().get(jIndex).isStrictlyLessThan(sYN) && scopeListElementY
-						.getScopes().get(jIndex).contains(scopeListElementX.getScopes().get(jIndex))) {
-					System.out.println("Join done case 2 " + scopeListElementX + " + " + scopeListElementY);
+					boolean induced = trees != null && scopeListElementX.isInduced() && jIndex == attachedToDepth
+							&& trees.getParents(scopeListElementX.getTreeIndex())[sYN
+									.getLowerBound()] == scopeListElementX.getScopes().get(jIndex).getLowerBound();
+					newScopeVectorList
+							.add(new ScopeVectorListElement(scopeListElementX.getTreeIndex(), scopes, induced));
+				} else if (scopeListElementX.getScopes().get(jIndex).isStrictlyLessThan(sYN)
+						&& jIndex < scopeListElementY.getScopes().size() - 1 && scopeListElementY.getScopes()
+								.get(jIndex).contains(scopeListElementX.getScopes().get(jIndex))) {
 					List<Scope> scopes = new ArrayList<>(scopeListElementY.getScopes());
 					scopes = scopes.subList(0, jIndex + 1);
 					scopes.add(sYN);
 					newScopeVectorList.add(new ScopeVectorListElement(scopeListElementX.getTreeIndex(), scopes));
-				} else {
-					System.out.println("Join not done for other reasons");
-					System.out.println(scopeListElementX);
-					System.out.println(scopeListElementY);
-					System.out.println(jIndex);
 				}
 
 			}
@@ -66,41 +138,221 @@ public class ScopeVectorListRepresentation extends AScopeListRepresentation<Scop
 		return newScopeVectorList;
 	}
 
+	/**
+	 * Performs an in scope join of this scope list with another scope list.
+	 * 
+	 * <p>
+	 * An x element is only joined with a y element if no other x element of the
+	 * same tree has a last scope that lies between their last scopes. Since the
+	 * scopes of the nodes of a tree are either nested or disjoint, this is the case
+	 * exactly if the last scope of the x element is the innermost x scope that
+	 * contains the last scope of the y element. For each tree, these innermost
+	 * scopes are found by sweeping over the last scopes of both lists while
+	 * keeping a stack of the nested x scopes that are still open. A joined
+	 * occurrence is induced if the x element is induced and the y node is a child
+	 * of its rightmost node.
+	 * </p>
+	 * 
+	 * @param other
+	 *            the scope list this list should be joined with
+	 * @param trees
+	 *            the database of trees the occurrences are found in, or null if
+	 *            induced occurrences are not tracked
+	 * @return the scope list that results from this join
+	 */
 	@Override
 	public AScopeListRepresentation<ScopeVectorListElement> inScopeJoin(
-			AScopeListRepresentation<ScopeVectorListElement> other) {
-		System.out.println("Try inscope join");
+			AScopeListRepresentation<ScopeVectorListElement> other, TreeDatabase trees) {
 		ScopeVectorListRepresentation newScopeVectorList = new ScopeVectorListRepresentation();
 
-		this.forEach(scopeListElementX -> other.forEach(scopeListElementY -> {
-			if (scopeListElementX.getTreeIndex() == scopeListElementY.getTreeIndex()) {
-				// Compare last element of lists
-				Scope sXM = scopeListElementX.getLastElement();
-				Scope sYN = scopeListElementY.getLastElement();
-				if (sXM.contains(sYN)) {
-					boolean isMinimal = true;
-					for (ScopeVectorListElement otherX : this) {
-						Scope sXL = otherX.getLastElement();
-
-						if (sXM.contains(sXL) && sXL.contains(sYN)) {
-							isMinimal = false;
-							break;
-						}
+		Iterator<ScopeVectorListElement> xIterator = this.iterator();
+		Iterator<ScopeVectorListElement> yIterator = other.iterator();
+		ScopeVectorListElement x = xIterator.hasNext() ? xIterator.next() : null;
+		ScopeVectorListElement y = yIterator.hasNext() ? yIterator.next() : null;
+		List<ScopeVectorListElement> xElementsOfTree = new ArrayList<>();
+		List<ScopeVectorListElement> yElementsOfTree = new ArrayList<>();
+
+		// Elements are sorted by tree, so the elements of each tree can be joined
+		// separately
+		while (x != null && y != null) {
+			int tree = Math.max(x.getTreeIndex(), y.getTreeIndex());
+			xElementsOfTree.clear();
+			yElementsOfTree.clear();
+			for (; x != null && x.getTreeIndex() <= tree; x = xIterator.hasNext() ? xIterator.next() : null) {
+				if (x.getTreeIndex() == tree) {
+					xElementsOfTree.add(x);
+				}
+			}
+			for (; y != null && y.getTreeIndex() <= tree; y = yIterator.hasNext() ? yIterator.next() : null) {
+				if (y.getTreeIndex() == tree) {
+					yElementsOfTree.add(y);
+				}
+			}
+
+			if (!xElementsOfTree.isEmpty() && !yElementsOfTree.isEmpty()) {
+				inScopeJoinTree(xElementsOfTree, yElementsOfTree, trees == null ? null : trees.getParents(tree),
+						newScopeVectorList);
+			}
+		}
+
+		return newScopeVectorList;
+	}
+
+	private static void inScopeJoinTree(List<ScopeVectorListElement> xElements,
+			List<ScopeVectorListElement> yElements, int[] parents, ScopeVectorListRepresentation newScopeVectorList) {
+		xElements.sort(OUTER_LAST_SCOPE_FIRST);
+		yElements.sort(OUTER_LAST_SCOPE_FIRST);
+
+		// Indices of the first x element of each open x scope, outermost scope first
+		int[] openScopes = new int[xElements.size()];
+		int numOpenScopes = 0;
+		int nextX = 0;
+
+		for (ScopeVectorListElement scopeListElementY : yElements) {
+			Scope sYN = scopeListElementY.getLastElement();
+
+			// Open the x scopes that start before or with the y scope
+			for (; nextX < xElements.size()
+					&& xElements.get(nextX).getLastElement().getLowerBound() <= sYN.getLowerBound(); nextX++) {
+				Scope sXL = xElements.get(nextX).getLastElement();
+				numOpenScopes = closeScopesEndingBefore(xElements, openScopes, numOpenScopes, sXL.getLowerBound());
+				if (numOpenScopes == 0
+						|| !xElements.get(openScopes[numOpenScopes - 1]).getLastElement().equals(sXL)) {
+					openScopes[numOpenScopes++] = nextX;
+				}
+			}
+			numOpenScopes = closeScopesEndingBefore(xElements, openScopes, numOpenScopes, sYN.getLowerBound());
+
+			// The innermost open scope that is not the y scope itself is the only
+			// candidate
+			int innermost = numOpenScopes - 1;
+			if (innermost >= 0 && xElements.get(openScopes[innermost]).getLastElement().equals(sYN)) {
+				innermost--;
+			}
+			if (innermost < 0 || !xElements.get(openScopes[innermost]).getLastElement().contains(sYN)) {
+				continue;
+			}
+
+			// Join all x elements with that last scope
+			Scope sXM = xElements.get(openScopes[innermost]).getLastElement();
+			boolean isChild = parents != null && parents[sYN.getLowerBound()] == sXM.getLowerBound();
+			for (int i = openScopes[innermost]; i < xElements.size()
+					&& xElements.get(i).getLastElement().equals(sXM); i++) {
+				// these scopes should be the rightmost nodes on the path. Since s_y gets added
+				// under s_x, we just add s_y to the x scope list
+				ScopeVectorListElement scopeListElementX = xElements.get(i);
+				List<Scope> scopes = new ArrayList<>(scopeListElementX.getScopes());
+				scopes.add(sYN);
+				newScopeVectorList.add(new ScopeVectorListElement(scopeListElementX.getTreeIndex(), scopes,
+						isChild && scopeListElementX.isInduced()));
+			}
+		}
+	}
+
+	/**
+	 * Performs an in scope join of this scope list with the occurrences of a
+	 * pattern of two nodes, producing only induced occurrences. A child occurrence
+	 * extends an x element if the scope of its parent is the last scope of the x
+	 * element.
+	 * 
+	 * @param childOccurrences
+	 *            the occurrences of the pattern of two nodes
+	 * @return the scope list that results from this join
+	 */
+	@Override
+	public AScopeListRepresentation<ScopeVectorListElement> inducedInScopeJoin(
+			AScopeListRepresentation<ScopeVectorListElement> childOccurrences) {
+		ScopeVectorListRepresentation newScopeVectorList = new ScopeVectorListRepresentation();
+
+		Map<Scope, List<ScopeVectorListElement>> xElementsByLastScope = new HashMap<>();
+		int tree = -1;
+		Iterator<ScopeVectorListElement> xIterator = this.iterator();
+		ScopeVectorListElement x = xIterator.hasNext() ? xIterator.next() : null;
+		for (ScopeVectorListElement child : childOccurrences) {
+			// Elements are sorted by tree, so only the x elements of one tree are kept
+			if (child.getTreeIndex() != tree) {
+				tree = child.getTreeIndex();
+				xElementsByLastScope.clear();
+				for (; x != null && x.getTreeIndex() <= tree; x = xIterator.hasNext() ? xIterator.next() : null) {
+					if (x.getTreeIndex() == tree) {
+						xElementsByLastScope.computeIfAbsent(x.getLastElement(), scope -> new ArrayList<>()).add(x);
 					}
+				}
+			}
+
+			for (ScopeVectorListElement scopeListElementX : xElementsByLastScope
+					.getOrDefault(child.getScopes().get(0), Collections.emptyList())) {
+				List<Scope> scopes = new ArrayList<>(scopeListElementX.getScopes());
+				scopes.add(child.getLastElement());
+				newScopeVectorList.add(new ScopeVectorListElement(tree, scopes, true));
+			}
+		}
+
+		return newScopeVectorList;
+	}
 
-					if (isMinimal) {
-						// these scopes should be the rightmost nodes on the path. Since s_y gets added
-						// under s_x, we just add s_y to the x scope list
-						System.out.println("Do inscope join: " + scopeListElementX + " + " + scopeListElementY);
-						List<Scope> scopes = new ArrayList<>(scopeListElementX.getScopes());
-						scopes.add(sYN);
-						newScopeVectorList.add(new ScopeVectorListElement(scopeListElementX.getTreeIndex(), scopes));
+	/**
+	 * Performs an out scope join of this scope list with another scope list,
+	 * producing only induced occurrences. The scopes of an element are the scopes
+	 * of the nodes on the rightmost path of the pattern, so the scope of the node
+	 * the y node is attached to is found at the depth of that node in the pattern.
+	 * An x element is joined with a y element if the y node is a child of that node
+	 * and comes after the rightmost x node.
+	 * 
+	 * @param other
+	 *            the scope list this list should be joined with
+	 * @param attachedToDepth
+	 *            the depth of the node the y node is attached to in the pattern
+	 * @param rightmostNodeDepth
+	 *            the depth of the rightmost x node in the pattern
+	 * @param trees
+	 *            the database of trees the occurrences are found in
+	 * @return the scope list that results from this join
+	 */
+	@Override
+	public AScopeListRepresentation<ScopeVectorListElement> inducedOutScopeJoin(
+			AScopeListRepresentation<ScopeVectorListElement> other, int attachedToDepth, int rightmostNodeDepth,
+			TreeDatabase trees) {
+		ScopeVectorListRepresentation newScopeVectorList = new ScopeVectorListRepresentation();
+
+		Map<Integer, List<ScopeVectorListElement>> xElementsByAttachedTo = new HashMap<>();
+		int tree = -1;
+		Iterator<ScopeVectorListElement> xIterator = this.iterator();
+		ScopeVectorListElement x = xIterator.hasNext() ? xIterator.next() : null;
+		for (ScopeVectorListElement scopeListElementY : other) {
+			// Elements are sorted by tree, so only the x elements of one tree are kept
+			if (scopeListElementY.getTreeIndex() != tree) {
+				tree = scopeListElementY.getTreeIndex();
+				xElementsByAttachedTo.clear();
+				for (; x != null && x.getTreeIndex() <= tree; x = xIterator.hasNext() ? xIterator.next() : null) {
+					if (x.getTreeIndex() == tree) {
+						xElementsByAttachedTo.computeIfAbsent(x.getScopes().get(attachedToDepth).getLowerBound(),
+								node -> new ArrayList<>()).add(x);
 					}
 				}
 			}
-		}));
+
+			Scope sYN = scopeListElementY.getLastElement();
+			int parent = trees.getParents(tree)[sYN.getLowerBound()];
+			for (ScopeVectorListElement scopeListElementX : xElementsByAttachedTo.getOrDefault(parent,
+					Collections.emptyList())) {
+				if (scopeListElementX.getLastElement().isStrictlyLessThan(sYN)) {
+					List<Scope> scopes = new ArrayList<>(scopeListElementX.getScopes().subList(0, attachedToDepth + 1));
+					scopes.add(sYN);
+					newScopeVectorList.add(new ScopeVectorListElement(tree, scopes, true));
+				}
+			}
+		}
 
 		return newScopeVectorList;
 	}
 
+	private static int closeScopesEndingBefore(List<ScopeVectorListElement> xElements, int[] openScopes,
+			int numOpenScopes, int position) {
+		while (numOpenScopes > 0
+				&& xElements.get(openScopes[numOpenScopes - 1]).getLastElement().getUpperBound() < position) {
+			numOpenScopes--;
+		}
+		return numOpenScopes;
+	}
 }
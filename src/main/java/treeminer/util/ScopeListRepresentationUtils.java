@@ -1,10 +1,12 @@
 package treeminer.util;
 
-import java.util.List;
-
 import org.apache.commons.lang3.tuple.Pair;
 
 import treeminer.EquivalenceClass;
+import treeminer.TreeDatabase;
+import treeminer.jfr.MiningEvents;
+import treeminer.jfr.MiningEvents.JoinKind;
+import treeminer.jfr.ScopeListJoinEvent;
 import treeminer.scopelists.elements.SimpleScopeListElement;
 import treeminer.scopelists.representation.AScopeListRepresentation;
 import treeminer.scopelists.representation.ScopeListRepresentation;
@@ -12,7 +14,8 @@ import treeminer.scopelists.representation.ScopeVectorListRepresentation;
 
 /**
  * Utils for scope lists. Does scope list representation-dependent scope list
- * joins and checks whether prefixes occur directly in a database of trees.
+ * joins, which are recorded as Java Flight Recorder events, and checks whether
+ * prefixes occur directly in a database of trees.
  * 
  * @author Helena Graf
  *
@@ -40,13 +43,47 @@ public class ScopeListRepresentationUtils {
 	public static AScopeListRepresentation<? extends SimpleScopeListElement> doOutScopeJoin(
 			Pair<String, Integer> yJElement, AScopeListRepresentation<? extends SimpleScopeListElement> xScopeList,
 			AScopeListRepresentation<? extends SimpleScopeListElement> yScopeList, boolean countMultipleOccurrences) {
+		return doOutScopeJoin(xScopeList, yScopeList, yJElement.getRight(), 0, 0, null, countMultipleOccurrences);
+	}
+
+	/**
+	 * Do an out-scope join that is dependent on whether distinct occurrences of
+	 * patterns are counted or not and that marks the induced occurrences of the
+	 * result (join an x element that extends the pattern to build a new prefix
+	 * with a y element that also extended the previous element).
+	 * 
+	 * @param xScopeList
+	 *            the scope list of the x element
+	 * @param yScopeList
+	 *            the scope list of the y element
+	 * @param j
+	 *            the position of the node the y element is attached to
+	 * @param attachedToDepth
+	 *            the depth of the node the y element is attached to in the pattern
+	 * @param xDepth
+	 *            the depth of the x node in the pattern
+	 * @param trees
+	 *            the database of trees the occurrences are found in, or null if
+	 *            induced occurrences are not tracked
+	 * @param countMultipleOccurrences
+	 *            whether multiple occurrences of a pattern are counted
+	 * @return the new scope list resulting from the join
+	 */
+	public static AScopeListRepresentation<? extends SimpleScopeListElement> doOutScopeJoin(
+			AScopeListRepresentation<? extends SimpleScopeListElement> xScopeList,
+			AScopeListRepresentation<? extends SimpleScopeListElement> yScopeList, int j, int attachedToDepth,
+			int xDepth, TreeDatabase trees, boolean countMultipleOccurrences) {
+		ScopeListJoinEvent event = MiningEvents.beginJoin();
+		AScopeListRepresentation<? extends SimpleScopeListElement> newScopeList;
 		if (countMultipleOccurrences) {
-			return ((ScopeListRepresentation) xScopeList).outScopeJoin((ScopeListRepresentation) yScopeList,
-					yJElement.getRight());
+			newScopeList = ((ScopeListRepresentation) xScopeList).outScopeJoin((ScopeListRepresentation) yScopeList,
+					j, attachedToDepth, xDepth, trees);
 		} else {
-			return ((ScopeVectorListRepresentation) xScopeList).outScopeJoin((ScopeVectorListRepresentation) yScopeList,
-					yJElement.getRight());
+			newScopeList = ((ScopeVectorListRepresentation) xScopeList)
+					.outScopeJoin((ScopeVectorListRepresentation) yScopeList, j, attachedToDepth, xDepth, trees);
 		}
+		MiningEvents.commitJoin(event, JoinKind.OUT_SCOPE, xScopeList, yScopeList, newScopeList);
+		return newScopeList;
 	}
 
 	/**
@@ -65,17 +102,113 @@ public class ScopeListRepresentationUtils {
 	public static AScopeListRepresentation<? extends SimpleScopeListElement> doInScopeJoin(
 			AScopeListRepresentation<? extends SimpleScopeListElement> xScopeList,
 			AScopeListRepresentation<? extends SimpleScopeListElement> yScopeList, boolean countMultipleOccurrences) {
+		return doInScopeJoin(xScopeList, yScopeList, null, countMultipleOccurrences);
+	}
 
+	/**
+	 * Do an in-scope join that is dependent on whether distinct occurrences of
+	 * patterns are counted or not and that marks the induced occurrences of the
+	 * result (join an x element that extends the pattern to build a new prefix
+	 * with a y element that also extended the previous element).
+	 * 
+	 * @param xScopeList
+	 *            the scope list of the x element
+	 * @param yScopeList
+	 *            the scope list of the y element
+	 * @param trees
+	 *            the database of trees the occurrences are found in, or null if
+	 *            induced occurrences are not tracked
+	 * @param countMultipleOccurrences
+	 *            whether multiple occurrences of a pattern are counted
+	 * @return the new scope list resulting from the join
+	 */
+	public static AScopeListRepresentation<? extends SimpleScopeListElement> doInScopeJoin(
+			AScopeListRepresentation<? extends SimpleScopeListElement> xScopeList,
+			AScopeListRepresentation<? extends SimpleScopeListElement> yScopeList, TreeDatabase trees,
+			boolean countMultipleOccurrences) {
+		ScopeListJoinEvent event = MiningEvents.beginJoin();
+		AScopeListRepresentation<? extends SimpleScopeListElement> newScopeList;
 		if (countMultipleOccurrences) {
-			return ((ScopeListRepresentation) xScopeList).inScopeJoin((ScopeListRepresentation) yScopeList);
+			newScopeList = ((ScopeListRepresentation) xScopeList).inScopeJoin((ScopeListRepresentation) yScopeList,
+					trees);
 		} else {
-			return ((ScopeVectorListRepresentation) xScopeList).inScopeJoin((ScopeVectorListRepresentation) yScopeList);
+			newScopeList = ((ScopeVectorListRepresentation) xScopeList)
+					.inScopeJoin((ScopeVectorListRepresentation) yScopeList, trees);
 		}
+		MiningEvents.commitJoin(event, JoinKind.IN_SCOPE, xScopeList, yScopeList, newScopeList);
+		return newScopeList;
+	}
+
+	/**
+	 * Do an out-scope join that only produces induced occurrences and is dependent
+	 * on whether distinct occurrences of patterns are counted or not.
+	 * 
+	 * @param xScopeList
+	 *            the scope list of the x element
+	 * @param yScopeList
+	 *            the scope list of the y element
+	 * @param attachedToDepth
+	 *            the depth of the node the y element is attached to in the pattern
+	 * @param rightmostNodeDepth
+	 *            the depth of the x element in the pattern
+	 * @param trees
+	 *            the database of trees in which we search for patterns
+	 * @param countMultipleOccurrences
+	 *            whether multiple occurrences of a pattern are counted
+	 * @return the new scope list resulting from the join
+	 */
+	public static AScopeListRepresentation<? extends SimpleScopeListElement> doInducedOutScopeJoin(
+			AScopeListRepresentation<? extends SimpleScopeListElement> xScopeList,
+			AScopeListRepresentation<? extends SimpleScopeListElement> yScopeList, int attachedToDepth,
+			int rightmostNodeDepth, TreeDatabase trees, boolean countMultipleOccurrences) {
+		ScopeListJoinEvent event = MiningEvents.beginJoin();
+		AScopeListRepresentation<? extends SimpleScopeListElement> newScopeList;
+		if (countMultipleOccurrences) {
+			newScopeList = ((ScopeListRepresentation) xScopeList).inducedOutScopeJoin(
+					(ScopeListRepresentation) yScopeList, attachedToDepth, rightmostNodeDepth, trees);
+		} else {
+			newScopeList = ((ScopeVectorListRepresentation) xScopeList).inducedOutScopeJoin(
+					(ScopeVectorListRepresentation) yScopeList, attachedToDepth, rightmostNodeDepth, trees);
+		}
+		MiningEvents.commitJoin(event, JoinKind.INDUCED_OUT_SCOPE, xScopeList, yScopeList, newScopeList);
+		return newScopeList;
+	}
+
+	/**
+	 * Do an in-scope join that only produces induced occurrences and is dependent
+	 * on whether distinct occurrences of patterns are counted or not (join an x
+	 * element with the occurrences of a pattern of two nodes whose root has the
+	 * label of x).
+	 * 
+	 * @param xScopeList
+	 *            the scope list of the x element
+	 * @param childScopeList
+	 *            the scope list of the pattern of two nodes
+	 * @param countMultipleOccurrences
+	 *            whether multiple occurrences of a pattern are counted
+	 * @return the new scope list resulting from the join
+	 */
+	public static AScopeListRepresentation<? extends SimpleScopeListElement> doInducedInScopeJoin(
+			AScopeListRepresentation<? extends SimpleScopeListElement> xScopeList,
+			AScopeListRepresentation<? extends SimpleScopeListElement> childScopeList,
+			boolean countMultipleOccurrences) {
+		ScopeListJoinEvent event = MiningEvents.beginJoin();
+		AScopeListRepresentation<? extends SimpleScopeListElement> newScopeList;
+		if (countMultipleOccurrences) {
+			newScopeList = ((ScopeListRepresentation) xScopeList)
+					.inducedInScopeJoin((ScopeListRepresentation) childScopeList);
+		} else {
+			newScopeList = ((ScopeVectorListRepresentation) xScopeList)
+					.inducedInScopeJoin((ScopeVectorListRepresentation) childScopeList);
+		}
+		MiningEvents.commitJoin(event, JoinKind.INDUCED_IN_SCOPE, xScopeList, childScopeList, newScopeList);
+		return newScopeList;
 	}
 
 	/**
 	 * Check whether this new given prefix occurs directly in the given database of
-	 * trees, based on the occurrences given in the equivalence class.
+	 * trees, based on the occurrences given in the equivalence class, which are
+	 * marked as induced if they occur directly.
 	 * 
 	 * @param equivalenceClass
 	 *            the equivalence class which contains a scope list for the new
@@ -85,16 +218,39 @@ public class ScopeListRepresentationUtils {
 	 * @param newPrefix
 	 *            the new prefix for which to check if it occurs directly anywhere
 	 * @return whether the new prefix occurs directly
+	 * @throws IllegalArgumentException
+	 *             if the new prefix is not the subtree of an element of the
+	 *             equivalence class
+	 * @deprecated The trees are not needed since the occurrences are marked as
+	 *             induced; use
+	 *             {@link #prefixOccursDirectly(EquivalenceClass, int)} with the
+	 *             index of the element instead
 	 */
-	public static boolean prefixOccursDirectly(EquivalenceClass equivalenceClass, List<String> trees,
+	@Deprecated
+	public static boolean prefixOccursDirectly(EquivalenceClass equivalenceClass, TreeDatabase trees,
 			String newPrefix) {
-		boolean occurrsDirectly = false;
-		for (SimpleScopeListElement scopeListElement : equivalenceClass.getScopeListFor(newPrefix)) {
-			if (TreeRepresentationUtils.containsSubtree(trees.get(scopeListElement.getTreeIndex()), newPrefix)) {
-				occurrsDirectly = true;
+		for (int element = 0; element < equivalenceClass.getNumberOfElements(); element++) {
+			if (equivalenceClass.getSubtreeFor(element).equals(newPrefix)) {
+				return prefixOccursDirectly(equivalenceClass, element);
 			}
 		}
-		return occurrsDirectly;
+		throw new IllegalArgumentException("Prefix " + newPrefix + " is not the subtree of an element of the class "
+				+ equivalenceClass.getPrefix());
+	}
+
+	/**
+	 * Check whether the subtree of the given element, which is the prefix of a new
+	 * equivalence class, occurs directly, based on its occurrences in the
+	 * equivalence class, which are marked as induced if they occur directly.
+	 * 
+	 * @param equivalenceClass
+	 *            the equivalence class which contains the element
+	 * @param element
+	 *            the index of the element whose subtree is the new prefix
+	 * @return whether the new prefix occurs directly
+	 */
+	public static boolean prefixOccursDirectly(EquivalenceClass equivalenceClass, int element) {
+		return equivalenceClass.getScopeList(element).containsInducedOccurrence();
 	}
 
 }
@@ -0,0 +1,235 @@
+package treeminer.util;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A generator for synthetic forests modeled on the generator of the T-series
+ * datasets of the TreeMiner paper (Mohammed Javeed Zaki: Efficiently Mining
+ * Frequent Trees in a Forest: Algorithms and Applications. IEEE Trans. Knowl.
+ * Data Eng. 17(8): 1021-1035 (2005)).
+ * 
+ * <p>
+ * First, a master tree is constructed breadth-first: each node below the
+ * maximal depth gets a random number of children between 1 and the maximal
+ * fanout, until the master tree has the given number of nodes, and each node
+ * gets a random label. Then the given number of subtrees is sampled from the
+ * master tree, each of which is a tree of the forest: its root is a random
+ * inner node of the master tree, and each node of the subtree gets a random
+ * subset of the children of its node in the master tree as its children,
+ * keeping their order. The trees therefore share subtrees of the master tree,
+ * like the trees of the T-series datasets.
+ * </p>
+ * 
+ * <p>
+ * All random choices are made by random number generators derived from the
+ * given seed, so the same parameters always give the same forest, no matter
+ * how often it is generated. The trees are generated one after another, so that
+ * a forest of millions of trees can be written to a file without keeping it in
+ * memory.
+ * </p>
+ * 
+ * @author Helena Graf
+ * 
+ */
+public class SyntheticForestGenerator {
+
+	private final int[] masterLabels;
+	/** The children of master node i are the nodes firstChild[i] to firstChild[i + 1] - 1 */
+	private final int[] firstChild;
+	private final int maxDepth;
+	/** The inner nodes of the master tree come before its leaves in breadth-first order */
+	private final int numberOfInnerNodes;
+	private final long numSubtrees;
+	/** The seed of the sampling, so that each generated forest is the same */
+	private final long samplingSeed;
+
+	/**
+	 * Creates a generator with the master tree given by the parameters.
+	 * 
+	 * @param numLabels
+	 *            the number of distinct labels of the master tree
+	 * @param numMasterNodes
+	 *            the number of nodes of the master tree
+	 * @param maxDepth
+	 *            the maximal depth of the master tree and of the sampled trees,
+	 *            where the root has depth 0
+	 * @param maxFanout
+	 *            the maximal number of children of a node of the master tree
+	 * @param numSubtrees
+	 *            the number of subtrees sampled from the master tree, i.e. the
+	 *            number of trees of the forest
+	 * @param seed
+	 *            the seed of all random choices
+	 */
+	public SyntheticForestGenerator(int numLabels, int numMasterNodes, int maxDepth, int maxFanout, long numSubtrees,
+			long seed) {
+		if (numLabels < 1 || numMasterNodes < 1 || maxDepth < 0 || maxFanout < 1) {
+			throw new IllegalArgumentException("Invalid master tree: " + numLabels + " labels, " + numMasterNodes
+					+ " nodes, depth " + maxDepth + ", fanout " + maxFanout);
+		}
+		if (numSubtrees < 0) {
+			throw new IllegalArgumentException("The number of subtrees must not be negative: " + numSubtrees);
+		}
+		this.maxDepth = maxDepth;
+		this.numSubtrees = numSubtrees;
+		Random random = new Random(seed);
+
+		// Nodes are numbered breadth-first, so the children of a node are consecutive
+		int[] labels = new int[numMasterNodes];
+		int[] depths = new int[numMasterNodes];
+		int[] children = new int[numMasterNodes + 1];
+		int numberOfNodes = 1;
+		labels[0] = random.nextInt(numLabels);
+		for (int node = 0; node < numberOfNodes; node++) {
+			children[node] = numberOfNodes;
+			if (depths[node] < maxDepth) {
+				int fanout = Math.min(1 + random.nextInt(maxFanout), numMasterNodes - numberOfNodes);
+				for (int child = 0; child < fanout; child++) {
+					labels[numberOfNodes] = random.nextInt(numLabels);
+					depths[numberOfNodes] = depths[node] + 1;
+					numberOfNodes++;
+				}
+			}
+		}
+		children[numberOfNodes] = numberOfNodes;
+
+		// The master tree is smaller if the maximal depth is reached first
+		masterLabels = Arrays.copyOf(labels, numberOfNodes);
+		firstChild = Arrays.copyOf(children, numberOfNodes + 1);
+		int innerNodes = 0;
+		while (innerNodes < numberOfNodes && firstChild[innerNodes + 1] > firstChild[innerNodes]) {
+			innerNodes++;
+		}
+		numberOfInnerNodes = Math.max(1, innerNodes);
+		samplingSeed = random.nextLong();
+	}
+
+	/**
+	 * Get the number of subtrees sampled from the master tree.
+	 * 
+	 * @return the number of trees of the forest
+	 */
+	public long getNumSubtrees() {
+		return numSubtrees;
+	}
+
+	private String nextTree(Random random) {
+		StringBuilder builder = new StringBuilder();
+		int root = random.nextInt(numberOfInnerNodes);
+		appendSubtree(builder, random, root, 0);
+		return builder.toString();
+	}
+
+	private void appendSubtree(StringBuilder builder, Random random, int node, int depth) {
+		builder.append(masterLabels[node]);
+		if (depth == maxDepth) {
+			return;
+		}
+
+		// Choose a random number of the children, and then which ones
+		int numberOfChildren = firstChild[node + 1] - firstChild[node];
+		int numberOfChosenChildren = random.nextInt(numberOfChildren + 1);
+		boolean[] chosen = new boolean[numberOfChildren];
+		int[] children = new int[numberOfChildren];
+		for (int child = 0; child < numberOfChildren; child++) {
+			children[child] = child;
+		}
+		for (int child = 0; child < numberOfChosenChildren; child++) {
+			int swap = child + random.nextInt(numberOfChildren - child);
+			int chosenChild = children[swap];
+			children[swap] = children[child];
+			children[child] = chosenChild;
+			chosen[chosenChild] = true;
+		}
+
+		for (int child = 0; child < numberOfChildren; child++) {
+			if (chosen[child]) {
+				builder.append(TreeRepresentationUtils.TREE_NODE_SEPARATOR);
+				appendSubtree(builder, random, firstChild[node] + child, depth + 1);
+				builder.append(TreeRepresentationUtils.TREE_NODE_SEPARATOR);
+				builder.append(TreeRepresentationUtils.MOVE_UP_TOKEN);
+			}
+		}
+	}
+
+	/**
+	 * Samples the subtrees from the master tree.
+	 * 
+	 * @return the String representations of the trees of the forest
+	 */
+	public List<String> generateTrees() {
+		if (numSubtrees > Integer.MAX_VALUE) {
+			throw new IllegalStateException(
+					"A forest of " + numSubtrees + " trees does not fit into a list, write it to a file instead");
+		}
+		Random random = new Random(samplingSeed);
+		List<String> trees = new ArrayList<>((int) numSubtrees);
+		for (long tree = 0; tree < numSubtrees; tree++) {
+			trees.add(nextTree(random));
+		}
+		return trees;
+	}
+
+	/**
+	 * Samples the subtrees from the master tree and writes them to the given file,
+	 * one tree per line. The trees are not kept in memory.
+	 * 
+	 * @param file
+	 *            the file to write the trees to
+	 * @throws IOException
+	 *             if the file cannot be written
+	 */
+	public void writeTrees(Path file) throws IOException {
+		Random random = new Random(samplingSeed);
+		try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			for (long tree = 0; tree < numSubtrees; tree++) {
+				writer.write(nextTree(random));
+				writer.newLine();
+			}
+		}
+	}
+
+	/**
+	 * Reads the trees of a forest that has been written to the given file.
+	 * 
+	 * @param file
+	 *            the file with one tree per line
+	 * @return the String representations of the trees
+	 * @throws IOException
+	 *             if the file cannot be read
+	 */
+	public static List<String> readTrees(Path file) throws IOException {
+		return Files.readAllLines(file, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Writes a synthetic forest to a file.
+	 * 
+	 * @param args
+	 *            the number of labels, the number of nodes of the master tree, the
+	 *            maximal depth, the maximal fanout, the number of sampled
+	 *            subtrees, the seed and the file, e.g. 100 10000 10 10 1000000 1
+	 *            T1M.txt
+	 * @throws IOException
+	 *             if the file cannot be written
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 7) {
+			throw new IllegalArgumentException("Expected labels, master nodes, depth, fanout, subtrees, seed and file, "
+					+ "but got " + Arrays.toString(args));
+		}
+		SyntheticForestGenerator generator = new SyntheticForestGenerator(Integer.parseInt(args[0]),
+				Integer.parseInt(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3]),
+				Long.parseLong(args[4]), Long.parseLong(args[5]));
+		generator.writeTrees(Paths.get(args[6]));
+	}
+}
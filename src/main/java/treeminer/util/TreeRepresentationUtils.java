@@ -4,6 +4,8 @@ import java.util.List;
 
 import org.apache.commons.lang3.tuple.Pair;
 
+import treeminer.TreeDatabase;
+
 /**
  * Class that provides methods that help with working with String
  * representations of trees. Here, the
@@ -70,17 +72,6 @@ public class TreeRepresentationUtils {
 			return node.getLeft();
 		}
 
-		// Check if the tree consists of only a root node
-		if (tree.length() == 1) {
-			StringBuilder builder = new StringBuilder();
-			builder.append(tree);
-			builder.append(TreeRepresentationUtils.TREE_NODE_SEPARATOR);
-			builder.append(node.getLeft());
-			builder.append(TreeRepresentationUtils.TREE_NODE_SEPARATOR);
-			builder.append(TreeRepresentationUtils.MOVE_UP_TOKEN);
-			return builder.toString();
-		}
-
 		StringBuilder builder = new StringBuilder();
 		String[] treeElements = tree.split(TreeRepresentationUtils.TREE_NODE_SEPARATOR);
 		boolean foundNode = false;
@@ -294,4 +285,63 @@ public class TreeRepresentationUtils {
 		// We iterated over the whole tree without finding the pattern
 		return false;
 	}
+
+	/**
+	 * Checks whether the given subtree occurs in the given tree, both given by
+	 * their encoding in a {@link TreeDatabase}.
+	 * 
+	 * <p>
+	 * The search does not use this method, since it finds the occurrences of the
+	 * subtrees in their scope lists. It is the encoded counterpart of
+	 * {@link #containsSubtree(String, String)} to check found subtrees against, and
+	 * is only used by tests and benchmarks.
+	 * </p>
+	 * 
+	 * @param tree
+	 *            The encoding of the tree to check for the occurrence of a subtree
+	 * @param subtree
+	 *            The encoding of the subtree which is searched for in the given
+	 *            tree
+	 * @return Whether the given subtree occurs in the given tree at least once
+	 */
+	public static boolean containsSubtree(int[] tree, int[] subtree) {
+		// Represents the next node from the subtree we are trying to match in the tree
+		int nextNode = 0;
+		// Represents the number of children a current parent node has that are not
+		// found in the subtree
+		int childNum = 0;
+
+		for (int i = 0; i < tree.length; i++) {
+			if (tree[i] == subtree[nextNode]) {
+				if (childNum == 0) {
+					// Not in an unrelated branch, search for the next node of the subtree
+					nextNode++;
+					if (nextNode == subtree.length) {
+						return true;
+					}
+				} else if (tree[i] == TreeDatabase.MOVE_UP_ID) {
+					// Matching node in an unrelated branch, moving back to the parent
+					childNum--;
+				} else {
+					// Matching node in an unrelated branch, found another child
+					childNum++;
+				}
+			} else if (nextNode != 0) {
+				// Unrelated node after the start of the pattern has been found
+				if (tree[i] == TreeDatabase.MOVE_UP_ID) {
+					if (childNum > 0) {
+						childNum--;
+					} else {
+						// Followed a branch that does not contain the whole pattern
+						nextNode--;
+					}
+				} else {
+					childNum++;
+				}
+			}
+		}
+
+		// We iterated over the whole tree without finding the pattern
+		return false;
+	}
 }
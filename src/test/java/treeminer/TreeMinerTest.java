@@ -3,12 +3,42 @@ package treeminer;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 
 import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.junit.Assume;
 import org.junit.Test;
 
+import treeminer.jfr.EquivalenceClassExpandedEvent;
+import treeminer.jfr.MiningEvents;
+import treeminer.jfr.MiningPhaseEvent;
+import treeminer.jfr.ScopeListJoinEvent;
+import treeminer.scopelists.elements.ScopeVectorListElement;
+import treeminer.scopelists.representation.ScopeListRepresentation;
+import treeminer.scopelists.representation.ScopeListSpillFile;
+import treeminer.scopelists.representation.ScopeVectorListRepresentation;
+import treeminer.util.SyntheticForestGenerator;
+import treeminer.util.TreeDatabaseSupplier;
 import treeminer.util.TreeRepresentationUtils;
 
 /**
@@ -19,6 +49,9 @@ import treeminer.util.TreeRepresentationUtils;
  */
 public class TreeMinerTest {
 
+	/** the seed of the random forests, so that the tests do not depend on chance */
+	private static final long FOREST_SEED = 42;
+
 	/**
 	 * Test the functionality of the contains subtree method that checks whether a
 	 * tree contains a subtree.
@@ -34,6 +67,137 @@ public class TreeMinerTest {
 		assertEquals(false, TreeRepresentationUtils.containsSubtree("A B - C -", "A c - B -"));
 	}
 
+	/**
+	 * Test the functionality of the contains subtree method on trees that are
+	 * encoded by a tree database.
+	 */
+	@Test
+	public void testContainsSubtreeEncoded() {
+		TreeDatabase database = new TreeDatabase(Arrays.asList("A B - C -", "A B C - -"));
+		assertEquals(true, TreeRepresentationUtils.containsSubtree(database.getEncoding(0), database.encode("A C -")));
+		assertEquals(false,
+				TreeRepresentationUtils.containsSubtree(database.getEncoding(1), database.encode("A C -")));
+		assertEquals(false, TreeRepresentationUtils.containsSubtree(database.getEncoding(0), database.encode("D")));
+	}
+
+	/**
+	 * Test parsing a forest into a tree database.
+	 */
+	@Test
+	public void testTreeDatabase() {
+		TreeDatabase database = new TreeDatabase(Arrays.asList("A B - C -", "Aa"));
+		assertEquals(2, database.size());
+		assertEquals(4, database.getNumberOfLabels());
+		assertArrayEquals(new int[] { 0, 1, 2 }, database.getNodeLabels(0));
+		assertArrayEquals(new int[] { 2, 1, 2 }, database.getScopeUpperBounds(0));
+		assertArrayEquals(new int[] { 0, 1, TreeDatabase.MOVE_UP_ID, 2, TreeDatabase.MOVE_UP_ID },
+				database.getEncoding(0));
+		assertEquals("Aa", database.getTree(1));
+	}
+
+	/**
+	 * Test that elements added to a scope list out of order are kept sorted and
+	 * that duplicate occurrences are only kept once.
+	 */
+	@Test
+	public void testScopeListKeepsElementsSorted() {
+		ScopeListRepresentation scopeList = new ScopeListRepresentation(1);
+		scopeList.add(1, 0, 2, 3);
+		scopeList.add(0, 0, 1, 1);
+		scopeList.add(1, 0, 1, 3);
+		scopeList.add(1, 1, 2, 3);
+		scopeList.add(2, 0, 0, 0);
+
+		assertEquals(4, scopeList.size());
+		assertEquals("[(0, 0, (1, 1)), (1, 0, (1, 3)), (1, 0, (2, 3)), (2, 0, (0, 0))]", scopeList.toString());
+	}
+
+	/**
+	 * Test that adding all elements of another scope list keeps the elements
+	 * sorted, whether or not the other list starts after this list.
+	 */
+	@Test
+	public void testScopeListAddAll() {
+		ScopeListRepresentation scopeList = new ScopeListRepresentation(1);
+		scopeList.add(0, 0, 1, 1);
+		ScopeListRepresentation following = new ScopeListRepresentation();
+		following.add(1, 0, 2, 3);
+		following.add(2, 0, 0, 0);
+		ScopeListRepresentation overlapping = new ScopeListRepresentation();
+		overlapping.add(0, 0, 1, 1);
+		overlapping.add(1, 0, 1, 3);
+
+		scopeList.addAll(following);
+		scopeList.addAll(overlapping);
+
+		assertEquals(4, scopeList.size());
+		assertEquals("[(0, 0, (1, 1)), (1, 0, (1, 3)), (1, 0, (2, 3)), (2, 0, (0, 0))]", scopeList.toString());
+	}
+
+	/**
+	 * Test that the trees shared by two scope lists are found both by merging their
+	 * trees on the first comparisons and from their tree bitsets on later ones,
+	 * also after elements have been added to a list and for lists that only occur
+	 * in a few distant trees.
+	 */
+	@Test
+	public void testScopeListsShareTrees() {
+		ScopeListRepresentation xScopeList = new ScopeListRepresentation();
+		xScopeList.add(1, 0, 1, 1);
+		xScopeList.add(1, 0, 2, 2);
+		xScopeList.add(70, 0, 1, 1);
+		ScopeVectorListRepresentation yScopeList = new ScopeVectorListRepresentation();
+		yScopeList.add(new ScopeVectorListElement(1, Arrays.asList(new Scope(0, 2))));
+		yScopeList.add(new ScopeVectorListElement(2, Arrays.asList(new Scope(0, 2))));
+		yScopeList.add(new ScopeVectorListElement(70, Arrays.asList(new Scope(0, 2))));
+
+		assertEquals(2, xScopeList.getNumberOfTrees());
+		for (int comparison = 0; comparison < 3; comparison++) {
+			assertEquals(true, xScopeList.sharesTreesWith(yScopeList, 2));
+			assertEquals(false, xScopeList.sharesTreesWith(yScopeList, 3));
+		}
+
+		xScopeList.add(2, 0, 1, 1);
+		assertEquals(3, xScopeList.getNumberOfTrees());
+		for (int comparison = 0; comparison < 3; comparison++) {
+			assertEquals(true, xScopeList.sharesTreesWith(yScopeList, 3));
+			assertEquals(true, yScopeList.sharesTreesWith(xScopeList, 3));
+		}
+
+		ScopeListRepresentation sparseScopeList = new ScopeListRepresentation();
+		sparseScopeList.add(70, 0, 1, 1);
+		sparseScopeList.add(1000000, 0, 1, 1);
+		ScopeListRepresentation denseScopeList = new ScopeListRepresentation();
+		for (int tree = 999990; tree < 1000070; tree++) {
+			denseScopeList.add(tree, 0, 1, 1);
+		}
+		for (int comparison = 0; comparison < 3; comparison++) {
+			assertEquals(true, sparseScopeList.sharesTreesWith(xScopeList, 1));
+			assertEquals(false, sparseScopeList.sharesTreesWith(xScopeList, 2));
+			assertEquals(true, denseScopeList.sharesTreesWith(sparseScopeList, 1));
+			assertEquals(false, denseScopeList.sharesTreesWith(sparseScopeList, 2));
+			assertEquals(false, denseScopeList.sharesTreesWith(xScopeList, 1));
+		}
+	}
+
+	/**
+	 * Test that the in scope join of scope vector lists only considers scopes of
+	 * the same tree when checking whether a join is minimal.
+	 */
+	@Test
+	public void testScopeVectorInScopeJoinIsMinimalPerTree() {
+		ScopeVectorListRepresentation xScopeList = new ScopeVectorListRepresentation();
+		xScopeList.add(new ScopeVectorListElement(0, Arrays.asList(new Scope(0, 5))));
+		xScopeList.add(new ScopeVectorListElement(0, Arrays.asList(new Scope(3, 3))));
+		xScopeList.add(new ScopeVectorListElement(1, Arrays.asList(new Scope(1, 4))));
+		ScopeVectorListRepresentation yScopeList = new ScopeVectorListRepresentation();
+		yScopeList.add(new ScopeVectorListElement(0, Arrays.asList(new Scope(2, 2))));
+		yScopeList.add(new ScopeVectorListElement(1, Arrays.asList(new Scope(2, 2))));
+
+		assertEquals("[(0, [(0, 5), (2, 2)]), (1, [(1, 4), (2, 2)])]",
+				xScopeList.inScopeJoin(yScopeList).toString());
+	}
+
 	/**
 	 * Test adding a node to the last node of a subtree.
 	 */
@@ -69,6 +233,155 @@ public class TreeMinerTest {
 				TreeRepresentationUtils.addNodeToTree("a b c - e - - -", new ImmutablePair<String, Integer>("d", 1)));
 	}
 
+	/**
+	 * Test that extending a pattern keeps the depths and the rightmost path of its
+	 * nodes, and that both extensions of the same pattern are independent.
+	 */
+	@Test
+	public void testSubtreePatternExtend() {
+		TreeDatabase database = new TreeDatabase(Arrays.asList("Aa Bb - Cc -", "Dd"));
+		SubtreePattern prefix = SubtreePattern.empty(database).extend("Aa", -1).extend("Bb", 0);
+		SubtreePattern deeper = prefix.extend("Cc", 1);
+		SubtreePattern wider = prefix.extend("Dd", 0);
+
+		assertEquals("Aa Bb Cc - -", deeper.toString());
+		assertEquals("Aa Bb - Dd -", wider.toString());
+		assertEquals("Aa Bb - Cc -", prefix.toStringExtendedBy("Cc", 0));
+		assertEquals(2, deeper.getDepth(2));
+		assertEquals(1, wider.getDepth(2));
+		assertArrayEquals(new int[] { 0, 2 }, wider.getRightmostPath());
+		assertEquals(SubtreePattern.empty(database).extend("Aa", -1).extend("Bb", 0), prefix);
+	}
+
+	/**
+	 * Test that the elements of an equivalence class are kept in order when some
+	 * of them are removed, and that the Pair-based view matches them.
+	 */
+	@Test
+	public void testEquivalenceClassElements() {
+		TreeDatabase database = new TreeDatabase(Arrays.asList("A B - C -"));
+		EquivalenceClass equivalenceClass = new EquivalenceClass(SubtreePattern.empty(database).extend("A", -1));
+		equivalenceClass.addElement(database.getLabelId("B"), 0);
+		equivalenceClass.addElement(new ImmutablePair<>("C", 0));
+		equivalenceClass.addElement(database.getLabelId("A"), 0);
+		equivalenceClass.retainElements(element -> equivalenceClass.getElementLabelId(element) != database
+				.getLabelId("B"));
+
+		assertEquals(2, equivalenceClass.getNumberOfElements());
+		assertEquals("C", equivalenceClass.getElementLabel(0));
+		assertEquals("A A -", equivalenceClass.getSubtreeFor(1));
+		assertEquals(Arrays.asList(new ImmutablePair<>("C", 0), new ImmutablePair<>("A", 0)),
+				equivalenceClass.getElementList());
+	}
+
+	/**
+	 * Test that an equivalence class that is created with the String
+	 * representation of its prefix resolves the labels of its elements.
+	 */
+	@SuppressWarnings("deprecation")
+	@Test
+	public void testEquivalenceClassWithStringPrefix() {
+		EquivalenceClass equivalenceClass = new EquivalenceClass("A B C - -",
+				Arrays.asList(new ImmutablePair<>("B", 1)));
+		equivalenceClass.addElement(new ImmutablePair<>("D", 0));
+
+		assertEquals("A B C - -", equivalenceClass.getPrefix());
+		assertEquals("A B C - B - -", equivalenceClass.getSubtreeFor(0));
+		assertEquals("A B C - - D -", equivalenceClass.getSubtreeFor(1));
+		assertEquals("", new EquivalenceClass("").getPrefix());
+	}
+
+	/**
+	 * Test that the scope lists of an equivalence class stay with their elements
+	 * when elements are removed, and that the map of scope lists by subtree is
+	 * derived from them.
+	 */
+	@Test
+	public void testEquivalenceClassScopeLists() {
+		TreeDatabase database = new TreeDatabase(Arrays.asList("A B - C -"));
+		EquivalenceClass equivalenceClass = new EquivalenceClass(SubtreePattern.empty(database).extend("A", -1));
+		ScopeListRepresentation cScopeList = new ScopeListRepresentation();
+		cScopeList.add(0, 0, 2, 2);
+		ScopeListRepresentation bScopeList = new ScopeListRepresentation();
+		bScopeList.add(0, 0, 1, 1);
+		bScopeList.add(1, 0, 1, 1);
+		equivalenceClass.addElement(database.getLabelId("C"), 0, cScopeList);
+		equivalenceClass.addElement(database.getLabelId("B"), 0, bScopeList);
+
+		assertEquals(Arrays.asList("A B -", "A C -"), new ArrayList<>(equivalenceClass.getScopeLists().keySet()));
+		equivalenceClass.discardNonFrequentElements(2);
+		assertEquals(1, equivalenceClass.getNumberOfElements());
+		assertEquals(bScopeList, equivalenceClass.getScopeList(0));
+		assertEquals(bScopeList, equivalenceClass.getScopeListFor("A B -"));
+		assertEquals(null, equivalenceClass.getScopeListFor("A C -"));
+	}
+
+	/**
+	 * Test that the scope lists of an equivalence class that are spilled to a file
+	 * can be looked up without loading them, and that loading them for the
+	 * expansion of the class truncates the file and keeps them in memory.
+	 */
+	@Test
+	public void testEquivalenceClassSpillScopeLists() {
+		TreeDatabase database = new TreeDatabase(Arrays.asList("A B - C -"));
+		EquivalenceClass equivalenceClass = new EquivalenceClass(SubtreePattern.empty(database).extend("A", -1));
+		ScopeListRepresentation bScopeList = new ScopeListRepresentation();
+		bScopeList.add(0, 0, 1, 1, true);
+		bScopeList.add(1, 0, 1, 1);
+		ScopeVectorListRepresentation cScopeList = new ScopeVectorListRepresentation();
+		cScopeList.add(new ScopeVectorListElement(0, Arrays.asList(new Scope(0, 2), new Scope(2, 2)), true));
+		equivalenceClass.addElement(database.getLabelId("B"), 0, bScopeList);
+		equivalenceClass.addElement(database.getLabelId("C"), 0, cScopeList);
+		String expected = equivalenceClass.getScopeLists().toString();
+
+		try (ScopeListSpillFile spillFile = new ScopeListSpillFile()) {
+			long spilledBytes = equivalenceClass.spillScopeLists(spillFile, 1);
+			assertEquals(spillFile.getLength(), spilledBytes);
+			assertEquals(true, equivalenceClass.hasSpilledScopeLists());
+			assertEquals(expected, equivalenceClass.getScopeLists().toString());
+			assertEquals(true, equivalenceClass.hasSpilledScopeLists());
+
+			equivalenceClass.loadSpilledScopeLists();
+			assertEquals(false, equivalenceClass.hasSpilledScopeLists());
+			assertEquals(0, spillFile.getLength());
+			assertEquals(2, equivalenceClass.getScopeList(0).getNumberOfTrees());
+			assertEquals(0, equivalenceClass.spillScopeLists(spillFile, 1));
+		}
+	}
+
+	/**
+	 * Test that spilling the scope lists of the classes waiting to be expanded
+	 * gives the same subtrees, also when only searching for induced subtrees. The
+	 * garbage collection before each search leaves more than the budget in use, so
+	 * that the serial search always spills.
+	 */
+	@Test
+	public void testFindSubtreesSpillingScopeLists() {
+		List<String> trees = new ArrayList<>();
+		for (int i = 0; i < 1500; i++) {
+			trees.add("A B C - - D E - -");
+		}
+
+		for (boolean onlySearchForInducedSubtrees : new boolean[] { false, true }) {
+			TreeMiner treeMiner = new TreeMiner();
+			treeMiner.setOnlySearchForInducedSubtrees(onlySearchForInducedSubtrees);
+			List<String> expected = treeMiner.findFrequentSubtrees(trees, 1000);
+
+			for (int parallelism : new int[] { 1, 4 }) {
+				TreeMiner spillingMiner = new TreeMiner();
+				spillingMiner.setOnlySearchForInducedSubtrees(onlySearchForInducedSubtrees);
+				spillingMiner.setParallelism(parallelism);
+				spillingMiner.setHeapMemoryBudget(0);
+				spillingMiner.setMinSpilledScopeListSize(1000);
+				System.gc();
+				assertFindsSameSubtrees(treeMiner, expected, spillingMiner, trees, 1000);
+				if (parallelism == 1) {
+					assertEquals(true, spillingMiner.getStatistics().getNumberOfSpilledBytes() > 0);
+				}
+			}
+		}
+	}
+
 	/**
 	 * Test correctness of tree miner when finding non-distinct pattern occurrences.
 	 */
@@ -107,6 +420,414 @@ public class TreeMinerTest {
 		assertArrayEquals(new double[] { 1, 1, 0, 1, 1, 0, 1, 0, 1 }, characterizations[3], 0);
 	}
 	
+	/**
+	 * Test that labels that consist of more than one character are mined like
+	 * single characters.
+	 */
+	@Test
+	public void testFindSubtreesMultiCharacterLabels() {
+		TreeMiner treeMiner = new TreeMiner();
+		List<String> foundTrees = treeMiner
+				.findFrequentSubtrees(Arrays.asList("Aa Bb - Cc -", "Aa", "Aa Cc -", "Aa Bb Dd - -"), 2);
+		assertEquals(Arrays.asList("Aa", "Aa Bb -", "Aa Cc -", "Bb", "Cc"), foundTrees);
+	}
+
+	/**
+	 * Test that mining a parsed tree database gives the same result as mining the
+	 * String representations of the trees.
+	 */
+	@Test
+	public void testFindSubtreesInTreeDatabase() {
+		List<String> trees = Arrays.asList("A B - C -", "A", "A C -", "A B D - -");
+		List<String> expected = new TreeMiner().findFrequentSubtrees(trees, 1);
+		assertEquals(expected, new TreeMiner().findFrequentSubtrees(new TreeDatabase(trees), 1));
+	}
+
+	/**
+	 * Test that a pattern is found if it only occurs directly below a node that
+	 * also matches its root, but not below the first such node.
+	 */
+	@Test
+	public void testFindSubtreesOccurringBelowMatchingNode() {
+		for (boolean countMultipleOccurrences : new boolean[] { true, false }) {
+			TreeMiner treeMiner = new TreeMiner();
+			treeMiner.setCountMultipleOccurrences(countMultipleOccurrences);
+			List<String> foundTrees = treeMiner.findFrequentSubtrees(Arrays.asList("A A B B - - -"), 1);
+			assertEquals(Arrays.asList("A", "A A -", "A A B - -", "A A B B - - -", "A B -", "A B B - -", "B", "B B -"),
+					foundTrees);
+		}
+	}
+
+	/**
+	 * Test that the support of a pattern is the number of distinct trees it occurs
+	 * in, so that a pattern that occurs often in a single tree is not frequent.
+	 */
+	@Test
+	public void testFindSubtreesDistinctTreeSupport() {
+		for (boolean countMultipleOccurrences : new boolean[] { true, false }) {
+			TreeMiner treeMiner = new TreeMiner();
+			treeMiner.setCountMultipleOccurrences(countMultipleOccurrences);
+			List<String> foundTrees = treeMiner.findFrequentSubtrees(Arrays.asList("A B - B - B -", "A C -"), 2);
+			assertEquals(Arrays.asList("A"), foundTrees);
+		}
+	}
+
+	/**
+	 * Test that the synthetic forest generator gives the same forest for the same
+	 * seed, also when the forest is generated again or written to a file, and that
+	 * it has the given number of trees, which can be parsed.
+	 * 
+	 * @throws IOException
+	 *             if the forest cannot be written to a temporary file
+	 */
+	@Test
+	public void testSyntheticForestGenerator() throws IOException {
+		SyntheticForestGenerator generator = new SyntheticForestGenerator(10, 100, 4, 5, 50, 7);
+		List<String> trees = generator.generateTrees();
+		assertEquals(trees, generator.generateTrees());
+		assertEquals(trees, new SyntheticForestGenerator(10, 100, 4, 5, 50, 7).generateTrees());
+		assertEquals(false, trees.equals(new SyntheticForestGenerator(10, 100, 4, 5, 50, 8).generateTrees()));
+
+		TreeDatabase database = new TreeDatabase(trees);
+		assertEquals(50, database.size());
+		assertEquals(true, database.getNumberOfLabels() <= 10);
+
+		Path file = Files.createTempFile("forest", ".txt");
+		try {
+			generator.writeTrees(file);
+			assertEquals(trees, SyntheticForestGenerator.readTrees(file));
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	/**
+	 * Test that F2 patterns are only created for label pairs that occur in the
+	 * trees, so that a large alphabet of frequent labels can be mined.
+	 */
+	@Test
+	public void testFindSubtreesLargeAlphabet() {
+		List<String> trees = new ArrayList<>();
+		for (int i = 0; i < 20000; i++) {
+			trees.add("A" + i + " B" + i + " -");
+		}
+		List<String> foundTrees = new TreeMiner().findFrequentSubtrees(trees, 1);
+		assertEquals(3 * trees.size(), foundTrees.size());
+		assertEquals(true, foundTrees.contains("A7 B7 -"));
+		assertEquals(false, foundTrees.contains("A7 B8 -"));
+	}
+
+	/**
+	 * Test that exploring equivalence classes in parallel gives the same result as
+	 * exploring them serially.
+	 */
+	@Test
+	public void testFindSubtreesParallel() {
+		List<String> trees = generateForest();
+		TreeMiner serialMiner = new TreeMiner();
+		List<String> expected = serialMiner.findFrequentSubtrees(trees, 3);
+
+		TreeMiner parallelMiner = new TreeMiner();
+		parallelMiner.setParallelism(4);
+		assertFindsSameSubtrees(serialMiner, expected, parallelMiner, trees, 3);
+	}
+
+	/**
+	 * Test that releasing the scope lists of finished classes gives the same
+	 * subtrees and characterizations, and that no scope lists are kept.
+	 */
+	@Test
+	public void testFindSubtreesReleasingScopeLists() {
+		List<String> trees = generateForest();
+		TreeMiner treeMiner = new TreeMiner();
+		List<String> expected = treeMiner.findFrequentSubtrees(trees, 3);
+
+		for (int parallelism : new int[] { 1, 4 }) {
+			TreeMiner releasingMiner = new TreeMiner();
+			releasingMiner.setReleaseScopeListsOfFinishedClasses(true);
+			releasingMiner.setParallelism(parallelism);
+			assertFindsSameSubtrees(treeMiner, expected, releasingMiner, trees, 3);
+			for (EquivalenceClass equivalenceClass : releasingMiner.getFoundEquivalenceClasses()) {
+				assertEquals(true, equivalenceClass.getScopeLists().isEmpty());
+			}
+		}
+	}
+
+	/**
+	 * Test that the statistics of a search are consistent, the same with serial and
+	 * parallel processing, and can be read through the platform MBean server.
+	 */
+	@Test
+	public void testMiningStatistics() throws JMException {
+		List<String> trees = generateForest();
+		TreeMiner serialMiner = new TreeMiner();
+		List<String> foundTrees = serialMiner.findFrequentSubtrees(trees, 3);
+		MiningStatistics serialStatistics = serialMiner.getStatistics();
+		assertEquals(null, serialStatistics.getPhase());
+		assertEquals(foundTrees.size(), serialStatistics.getNumberOfFoundPatterns());
+		assertEquals(serialStatistics.getNumberOfInitialElements(),
+				serialStatistics.getNumberOfExploredInitialElements());
+		assertEquals(serialStatistics.getNumberOfJoinsAttempted(),
+				serialStatistics.getNumberOfCandidatesBySize().values().stream().mapToLong(Long::longValue).sum());
+		assertEquals(true, serialStatistics.getNumberOfJoinsSucceeded() > 0);
+		assertEquals(true,
+				serialStatistics.getNumberOfJoinsSucceeded() <= serialStatistics.getNumberOfJoinsAttempted());
+		assertEquals(true, serialStatistics.getMaxScopeListSize() >= serialStatistics.getAverageScopeListSize());
+
+		TreeMiner parallelMiner = new TreeMiner();
+		parallelMiner.setParallelism(4);
+		parallelMiner.findFrequentSubtrees(trees, 3);
+		MiningStatistics parallelStatistics = parallelMiner.getStatistics();
+		assertEquals(serialStatistics.getNumberOfCandidatesBySize(), parallelStatistics.getNumberOfCandidatesBySize());
+		assertEquals(serialStatistics.getNumberOfJoinsSucceeded(), parallelStatistics.getNumberOfJoinsSucceeded());
+		assertEquals(serialStatistics.getNumberOfJoinsPruned(), parallelStatistics.getNumberOfJoinsPruned());
+		assertEquals(serialStatistics.getNumberOfExploredClasses(), parallelStatistics.getNumberOfExploredClasses());
+
+		ObjectName objectName = serialStatistics.registerMBean("testMiningStatistics");
+		try {
+			assertEquals(serialStatistics.getNumberOfJoinsAttempted(), ManagementFactory.getPlatformMBeanServer()
+					.getAttribute(objectName, "NumberOfJoinsAttempted"));
+		} finally {
+			serialStatistics.unregisterMBean();
+		}
+	}
+
+	/**
+	 * Test that a search that exceeds its budget or is cancelled returns an
+	 * incomplete result of frequent subtrees, and that an unlimited search is
+	 * complete.
+	 */
+	@Test
+	public void testFindSubtreesWithBudget() {
+		TreeDatabase trees = new TreeDatabase(generateForest());
+		TreeMiner treeMiner = new TreeMiner();
+		List<String> expected = treeMiner.findFrequentSubtrees(trees, 3);
+
+		for (int parallelism : new int[] { 1, 4 }) {
+			treeMiner.setParallelism(parallelism);
+			MiningResult result = treeMiner.findFrequentSubtrees(trees, 3, new MiningBudget(), null, null);
+			assertEquals(true, result.isComplete());
+			assertEquals(expected, result.getFrequentSubtrees());
+			long joinedScopeListElements = treeMiner.getStatistics().getTotalScopeListSize();
+
+			MiningBudget budget = new MiningBudget();
+			budget.setMaxPatterns(expected.size() / 2);
+			result = treeMiner.findFrequentSubtrees(trees, 3, budget, null, null);
+			assertEquals(MiningResult.StopReason.MAX_PATTERNS, result.getStopReason());
+			assertEquals(expected.size() / 2, result.getFrequentSubtrees().size());
+			assertEquals(true, expected.containsAll(result.getFrequentSubtrees()));
+
+			budget.setMaxPatterns(expected.size());
+			result = treeMiner.findFrequentSubtrees(trees, 3, budget, null, null);
+			assertEquals(expected, result.getFrequentSubtrees());
+			assertEquals(true, result.isComplete());
+
+			budget = new MiningBudget();
+			budget.setMaxJoinedScopeListElements(0);
+			result = treeMiner.findFrequentSubtrees(trees, 3, budget, null, null);
+			assertEquals(MiningResult.StopReason.MAX_JOINED_SCOPE_LIST_ELEMENTS, result.getStopReason());
+
+			budget.setMaxJoinedScopeListElements(joinedScopeListElements);
+			result = treeMiner.findFrequentSubtrees(trees, 3, budget, null, null);
+			assertEquals(expected, result.getFrequentSubtrees());
+
+			budget = new MiningBudget();
+			budget.setDeadline(Instant.now());
+			result = treeMiner.findFrequentSubtrees(trees, 3, budget, null, null);
+			assertEquals(MiningResult.StopReason.DEADLINE, result.getStopReason());
+			// The search is stopped during the initialization
+			assertEquals(0, result.getFrequentSubtrees().size());
+			assertEquals(0, treeMiner.getSparseCharacterizationsOfTrainingExamples().getNumberOfPatterns());
+
+			CancellationToken cancellationToken = new CancellationToken();
+			cancellationToken.cancel();
+			result = treeMiner.findFrequentSubtrees(trees, 3, null, cancellationToken, null);
+			assertEquals(MiningResult.StopReason.CANCELLED, result.getStopReason());
+			assertEquals(true, expected.containsAll(result.getFrequentSubtrees()));
+			assertEquals(0, treeMiner.getStatistics().getNumberOfExploredInitialElements());
+		}
+	}
+
+	/**
+	 * Test that the computation of the characterizations is stopped by a cancelled
+	 * token.
+	 */
+	@Test(expected = CancellationException.class)
+	public void testCharacterizationCancelled() {
+		TreeMiner treeMiner = new TreeMiner();
+		treeMiner.findFrequentSubtrees(generateForest(), 3);
+		CancellationToken cancellationToken = new CancellationToken();
+		cancellationToken.cancel();
+		treeMiner.getSparseCharacterizationsOfTrainingExamples(null, cancellationToken);
+	}
+
+	/**
+	 * Test that an asynchronous search reports its progress and completes its
+	 * future with the result, and that a search that is cancelled by a progress
+	 * listener completes its future with an incomplete result.
+	 */
+	@Test
+	public void testFindSubtreesAsync() throws InterruptedException, ExecutionException {
+		TreeDatabase trees = new TreeDatabase(generateForest());
+		TreeMiner treeMiner = new TreeMiner();
+		List<String> expected = treeMiner.findFrequentSubtrees(trees, 3);
+
+		List<Long> progress = new ArrayList<>();
+		MiningResult result = treeMiner.findFrequentSubtreesAsync(trees, 3, null, null,
+				statistics -> progress.add(statistics.getNumberOfExploredInitialElements())).get();
+		assertEquals(true, result.isComplete());
+		assertEquals(expected, result.getFrequentSubtrees());
+		assertEquals(treeMiner.getStatistics().getNumberOfInitialElements(), progress.size());
+		assertEquals((long) progress.size(), (long) progress.get(progress.size() - 1));
+
+		CancellationToken cancellationToken = new CancellationToken();
+		result = treeMiner.findFrequentSubtreesAsync(trees, 3, null, cancellationToken, statistics -> {
+			if (statistics.getNumberOfExploredInitialElements() == 2) {
+				cancellationToken.cancel();
+			}
+		}).get();
+		assertEquals(MiningResult.StopReason.CANCELLED, result.getStopReason());
+		assertEquals(2, treeMiner.getStatistics().getNumberOfExploredInitialElements());
+		assertEquals(true, expected.containsAll(result.getFrequentSubtrees()));
+	}
+
+	/**
+	 * Test that a search emits a Java Flight Recorder event for each phase, scope
+	 * list join and expanded equivalence class if the thresholds are 0.
+	 */
+	@Test
+	public void testMiningEvents() throws IOException {
+		Assume.assumeTrue(MiningEvents.isAvailable() && FlightRecorder.isAvailable());
+		List<String> trees = generateForest();
+		TreeMiner treeMiner = new TreeMiner();
+		Path file = Files.createTempFile("treeminer", ".jfr");
+		try (Recording recording = new Recording()) {
+			recording.enable(MiningPhaseEvent.class);
+			recording.enable(ScopeListJoinEvent.class).withThreshold(Duration.ZERO);
+			recording.enable(EquivalenceClassExpandedEvent.class).withThreshold(Duration.ZERO);
+			recording.start();
+			treeMiner.findFrequentSubtrees(trees, 3);
+			recording.stop();
+			recording.dump(file);
+
+			Map<String, Integer> numberOfEvents = new TreeMap<>();
+			List<String> phases = new ArrayList<>();
+			for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+				numberOfEvents.merge(event.getEventType().getName(), 1, Integer::sum);
+				if (event.getEventType().getName().equals("treeminer.MiningPhase")) {
+					phases.add(event.getString("phase"));
+				}
+			}
+			// The events are not necessarily written in the order in which they occurred
+			phases.sort(null);
+			assertEquals(Arrays.asList("F1", "F2", "SEARCH"), phases);
+			assertEquals(treeMiner.getStatistics().getNumberOfJoinsAttempted(),
+					(long) numberOfEvents.get("treeminer.ScopeListJoin"));
+			assertEquals(true, numberOfEvents.get("treeminer.EquivalenceClassExpanded") >= treeMiner.getStatistics()
+					.getNumberOfExploredClasses());
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	/**
+	 * Test that the sparse characterization contains the same pattern occurrences
+	 * as the dense one.
+	 */
+	@Test
+	public void testSparseCharacterization() {
+		TreeMiner treeMiner = new TreeMiner();
+		treeMiner.findFrequentSubtrees(Arrays.asList("A B - C -", "A", "A C -", "A B D - -"), 1);
+		SparseCharacterization characterization = treeMiner.getSparseCharacterizationsOfTrainingExamples();
+
+		assertEquals(4, characterization.getNumberOfTrees());
+		assertEquals(9, characterization.getNumberOfPatterns());
+		assertEquals(16, characterization.getNumberOfOccurrences());
+		assertArrayEquals(new int[] { 0 }, characterization.getPatternsOfTree(1));
+		assertEquals(true, characterization.contains(2, 2));
+		assertEquals(false, characterization.contains(2, 3));
+		assertArrayEquals(treeMiner.getCharacterizationsOfTrainingExamples(), characterization.toDenseMatrix());
+	}
+
+	/**
+	 * Test that the frequent subtrees passed to a consumer are the same as the
+	 * ones that are returned, and that they are passed with their support.
+	 */
+	@Test
+	public void testFindSubtreesWithConsumer() {
+		List<String> trees = Arrays.asList("A B - C -", "A", "A C -", "A B D - -");
+		TreeMiner treeMiner = new TreeMiner();
+		List<String> expected = treeMiner.findFrequentSubtrees(trees, 1);
+
+		Map<String, Integer> foundTrees = new TreeMap<>();
+		treeMiner.findFrequentSubtrees(trees, 1, foundTrees::put);
+		assertEquals(expected, new ArrayList<>(foundTrees.keySet()));
+		assertEquals(Integer.valueOf(4), foundTrees.get("A"));
+		assertEquals(Integer.valueOf(2), foundTrees.get("A C -"));
+		assertEquals(Integer.valueOf(1), foundTrees.get("A B D - -"));
+	}
+
+	/**
+	 * Test that a finder that only implements the methods returning lists and
+	 * dense characterizations gets the consumer and sparse characterization
+	 * methods from the interface.
+	 */
+	@Test
+	public void testFrequentSubtreeFinderDefaults() {
+		List<String> trees = Arrays.asList("A B - C -", "A", "A C -", "A B D - -");
+		TreeMiner treeMiner = new TreeMiner();
+		FrequentSubtreeFinder finder = new FrequentSubtreeFinder() {
+
+			@Override
+			public List<String> findFrequentSubtrees(List<String> trees, int minSupport) {
+				return treeMiner.findFrequentSubtrees(trees, minSupport);
+			}
+
+			@Override
+			public List<String> findFrequentSubtrees(TreeDatabase trees, int minSupport) {
+				return treeMiner.findFrequentSubtrees(trees, minSupport);
+			}
+
+			@Override
+			public List<EquivalenceClass> getFoundEquivalenceClasses() {
+				return treeMiner.getFoundEquivalenceClasses();
+			}
+
+			@Override
+			public double[][] getCharacterizationsOfTrainingExamples() {
+				return treeMiner.getCharacterizationsOfTrainingExamples();
+			}
+		};
+
+		Map<String, Integer> foundTrees = new TreeMap<>();
+		finder.findFrequentSubtrees(trees, 1, foundTrees::put);
+		assertEquals(new TreeMiner().findFrequentSubtrees(trees, 1), new ArrayList<>(foundTrees.keySet()));
+		assertEquals(Integer.valueOf(4), foundTrees.get("A"));
+		assertEquals(Integer.valueOf(2), foundTrees.get("A C -"));
+		assertEquals(Integer.valueOf(1), foundTrees.get("A B D - -"));
+
+		SparseCharacterization characterization = finder.getSparseCharacterizationsOfTrainingExamples();
+		assertEquals(9, characterization.getNumberOfPatterns());
+		assertEquals(16, characterization.getNumberOfOccurrences());
+		assertArrayEquals(treeMiner.getCharacterizationsOfTrainingExamples(), characterization.toDenseMatrix());
+	}
+
+	/**
+	 * Test that in induced mode, patterns that only occur embedded are not found,
+	 * whether multiple occurrences are counted or not.
+	 */
+	@Test
+	public void testFindInducedSubtrees() {
+		List<String> trees = Arrays.asList("A B C - D - -", "A B C - - D -", "A C -");
+		for (boolean countMultipleOccurrences : new boolean[] { true, false }) {
+			TreeMiner treeMiner = new TreeMiner();
+			treeMiner.setCountMultipleOccurrences(countMultipleOccurrences);
+			treeMiner.setOnlySearchForInducedSubtrees(true);
+			List<String> foundTrees = treeMiner.findFrequentSubtrees(trees, 2);
+			assertEquals(Arrays.asList("A", "A B -", "A B C - -", "B", "B C -", "C", "D"), foundTrees);
+		}
+	}
+
 	@Test
 	public void testFindSubtreesRootOnlyDistinct() {
 		TreeMiner treeMiner = new TreeMiner();
@@ -122,4 +843,37 @@ public class TreeMinerTest {
 		assertArrayEquals(new double[] { 1, 0, 1, 0, 0}, characterizations[2], 0);
 		assertArrayEquals(new double[] { 1, 1, 0, 0, 1}, characterizations[3], 0);
 	}
+
+	/**
+	 * Generates a random forest from a fixed seed, so that the same forest is
+	 * searched in each run.
+	 * 
+	 * @return the String representations of the trees of the forest
+	 */
+	private static List<String> generateForest() {
+		return TreeDatabaseSupplier.generateTreesForPerformanceTest(5, 10, 30, FOREST_SEED);
+	}
+
+	/**
+	 * Searches the given trees with the given miner and asserts that it finds the
+	 * expected subtrees and the same characterizations as the miner that found
+	 * them.
+	 * 
+	 * @param expectedMiner
+	 *            the miner that found the expected subtrees
+	 * @param expected
+	 *            the expected subtrees
+	 * @param treeMiner
+	 *            the miner that is compared to the expected miner
+	 * @param trees
+	 *            the trees to search
+	 * @param minSupport
+	 *            the minimum support of the subtrees
+	 */
+	private static void assertFindsSameSubtrees(TreeMiner expectedMiner, List<String> expected, TreeMiner treeMiner,
+			List<String> trees, int minSupport) {
+		assertEquals(expected, treeMiner.findFrequentSubtrees(trees, minSupport));
+		assertArrayEquals(expectedMiner.getCharacterizationsOfTrainingExamples(),
+				treeMiner.getCharacterizationsOfTrainingExamples());
+	}
 }
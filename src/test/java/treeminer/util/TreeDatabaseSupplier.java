@@ -2,6 +2,7 @@ package treeminer.util;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 
 /**
  * A supplier for generated trees and databases of trees for performance tests.
@@ -23,12 +24,30 @@ public class TreeDatabaseSupplier {
 	 * @return the newly constructed tree
 	 */
 	public static String generateTree(int[] labels, int numNodes) {
+		return generateTree(labels, numNodes, new Random());
+	}
+
+	/**
+	 * Generate a tree made up of the given labels that in total has the given
+	 * number of nodes, making the random choices with the given random number
+	 * generator.
+	 * 
+	 * @param labels
+	 *            the labels that should occur in the tree (it is not guaranteed
+	 *            that all labels will occur as they are chosen randomly)
+	 * @param numNodes
+	 *            the number of nodes that the tree should have in total
+	 * @param random
+	 *            the random number generator
+	 * @return the newly constructed tree
+	 */
+	public static String generateTree(int[] labels, int numNodes, Random random) {
 		List<String> labelsInTree = new ArrayList<>();
 		;
 		int numMoveUpTokensToDistribute = -1;
 
 		for (int i = 0; i < numNodes; i++) {
-			labelsInTree.add(String.valueOf(labels[(int) (Math.random() * labels.length)]));
+			labelsInTree.add(String.valueOf(labels[random.nextInt(labels.length)]));
 		}
 
 		String moveUpToken = "-";
@@ -49,7 +68,7 @@ public class TreeDatabaseSupplier {
 				numMoveUpTokensToDistribute--;
 			} else {
 				// if we have both moveuptokens & labels choose randomly what to do
-				if (Math.random() > 0.5) {
+				if (random.nextBoolean()) {
 					builder.append(separator);
 					builder.append(labelsInTree.get(0));
 					labelsInTree.remove(0);
@@ -79,6 +98,31 @@ public class TreeDatabaseSupplier {
 	 * @return the newly generated database of trees
 	 */
 	public static List<String> generateTreesForPerformanceTest(int numLabels, int numNodesPerTree, int numTrees) {
+		return generateTreesForPerformanceTest(numLabels, numNodesPerTree, numTrees, new Random());
+	}
+
+	/**
+	 * Generate a database of trees that can be used for a performance test of the
+	 * tree miner. The same seed always gives the same database.
+	 * 
+	 * @param numLabels
+	 *            the total number of distinct labels that should occur in the
+	 *            database
+	 * @param numNodesPerTree
+	 *            how many nodes each tree should have
+	 * @param numTrees
+	 *            how many trees there should be
+	 * @param seed
+	 *            the seed of the random choices
+	 * @return the newly generated database of trees
+	 */
+	public static List<String> generateTreesForPerformanceTest(int numLabels, int numNodesPerTree, int numTrees,
+			long seed) {
+		return generateTreesForPerformanceTest(numLabels, numNodesPerTree, numTrees, new Random(seed));
+	}
+
+	private static List<String> generateTreesForPerformanceTest(int numLabels, int numNodesPerTree, int numTrees,
+			Random random) {
 		int[] labels = new int[numLabels];
 		for (int i = 0; i < numLabels; i++) {
 			labels[i] = i;
@@ -86,7 +130,7 @@ public class TreeDatabaseSupplier {
 
 		List<String> trees = new ArrayList<>();
 		for (int i = 0; i < numTrees; i++) {
-			trees.add(generateTree(labels, numNodesPerTree));
+			trees.add(generateTree(labels, numNodesPerTree, random));
 		}
 
 		return trees;